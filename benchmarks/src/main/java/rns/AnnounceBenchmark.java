@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import ab.Utils;
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.bouncycastle.crypto.signers.Ed25519Signer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation of a signed announce. {@code baseline} decodes the signing key and concatenates
+ * the signed data and the announce data for every announce like Destination.announce does,
+ * {@code announce} uses the cached key and the precomputed start of the signed data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnnounceBenchmark {
+
+  final byte[] app_data = "g00n Cloud (Dallas)".getBytes();
+  Identity identity;
+  Destination destination;
+
+  @Setup
+  public void setup() {
+    identity = new Identity(true);
+    destination = new Destination(identity, Destination.IN, Destination.SINGLE, "nomadnetwork", "node");
+  }
+
+  @Benchmark
+  public byte[] baseline() {
+    byte[] random_hash = new byte[10];
+    Identity.random.nextBytes(random_hash);
+    byte[] signed_data = Utils.concatenate(destination.hash, identity.get_public_key(), destination.name_hash,
+        random_hash, app_data);
+    Ed25519Signer signer = new Ed25519Signer();
+    signer.init(true, new Ed25519PrivateKeyParameters(identity.sig_prv_bytes));
+    signer.update(signed_data, 0, signed_data.length);
+    byte[] signature = signer.generateSignature();
+    byte[] announce_data = Utils.concatenate(identity.get_public_key(), destination.name_hash, random_hash,
+        signature, app_data);
+    return Utils.concatenate(new byte[]{0x01, 0}, destination.hash, new byte[]{0}, announce_data);
+  }
+
+  @Benchmark
+  public byte[] announce() {
+    return destination.announce_packet(app_data, false, System.currentTimeMillis() / 1000);
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Destination hash of the captured announce, a nomadnetwork.node, from its full name and the announced identity.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DestinationHashBenchmark {
+
+  static final String NAME = "nomadnetwork.node";
+
+  final byte[] raw = Frames.announce();
+  final Identity identity = new Identity();
+
+  @Setup
+  public void setup() {
+    identity.load_public_key(Arrays.copyOfRange(raw, 19, 19 + Identity.KEYSIZE / 8));
+    if (!Arrays.equals(Destination.hash_from_name_and_identity(NAME, identity), Arrays.copyOfRange(raw, 2, 18))) {
+      throw new IllegalStateException("The fixture is not a " + NAME + " announce");
+    }
+  }
+
+  @Benchmark
+  public byte[] hash_from_name_and_identity() {
+    return Destination.hash_from_name_and_identity(NAME, identity);
+  }
+
+  @Benchmark
+  public byte[] name_hash_from_name() {
+    return Destination.name_hash_from_name(NAME);
+  }
+
+}
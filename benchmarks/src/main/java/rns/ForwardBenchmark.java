@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import ab.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rns.interfaces.Framer;
+import rns.interfaces.Interface;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwarded packets per second for a transit data packet with a known path, from the received
+ * frame to the frame written for the outbound interface. {@code baseline} unpacks and hashes the
+ * packet and assembles a new raw array for the next hop, {@code forward} is the Transport fast path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForwardBenchmark {
+
+  static class Sink extends Interface {
+    final Framer framer = Framer.HDLC;
+    final ByteBuffer out = ByteBuffer.allocate(framer.max_encoded_length(Reticulum.MTU));
+
+    @Override
+    public boolean process_outgoing(byte[] data) {
+      return process_outgoing(data, 0, data.length);
+    }
+
+    @Override
+    public boolean process_outgoing(byte[] data, int offset, int length) {
+      out.clear();
+      framer.encode(ByteBuffer.wrap(data, offset, length), out);
+      sent(out.position());
+      return true;
+    }
+  }
+
+  final Sink sink = new Sink();
+  final Transport transport = new Transport();
+  final byte[] next_hop = new byte[Packet.DST_LEN];
+  byte[] frame;
+  byte[] buffer;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0);
+    byte[] public_key = new byte[Identity.KEYSIZE / 8];
+    random.nextBytes(public_key);
+    Transport.identity = new Identity();
+    Transport.identity.load_public_key(public_key);
+    Transport.transport_enabled = true;
+    byte[] destination_hash = new byte[Packet.DST_LEN];
+    random.nextBytes(destination_hash);
+    random.nextBytes(next_hop);
+    long now = System.currentTimeMillis() / 1000;
+    Transport.path_table.put(destination_hash,
+        new PathTable.Path(next_hop, 3, now, now + Transport.PATHFINDER_E, now, sink, null));
+    frame = new byte[2 + 2 * Packet.DST_LEN + 1 + 200];
+    random.nextBytes(frame);
+    frame[0] = (byte) (Packet.HEADER_2 << 6 | Transport.TRANSPORT << 4 | Packet.DATA);
+    frame[1] = 1;
+    System.arraycopy(Transport.identity.hash, 0, frame, 2, Packet.DST_LEN);
+    System.arraycopy(destination_hash, 0, frame, 2 + Packet.DST_LEN, Packet.DST_LEN);
+    buffer = new byte[Reticulum.MTU];
+  }
+
+  @TearDown
+  public void tearDown() {
+    Transport.transport_enabled = false;
+  }
+
+  @Benchmark
+  public int baseline() {
+    Packet packet = new Packet(null, Arrays.copyOf(frame, frame.length));
+    packet.unpack();
+    packet.get_transport_id();
+    packet.get_data();
+    packet.get_hash();
+    packet.hops += 1;
+    PathTable.Path path = Transport.path_table.get(packet.get_destination_hash());
+    byte[] new_raw = Utils.concatenate(Arrays.copyOfRange(packet.raw, 0, 1), new byte[]{(byte) packet.hops},
+        path.next_hop, Arrays.copyOfRange(packet.raw, 2 + Packet.DST_LEN, packet.raw.length));
+    path.receiving_interface.process_outgoing(new_raw);
+    return sink.out.position();
+  }
+
+  @Benchmark
+  public int forward() {
+    // the receive buffer is rewritten in place, so every packet is copied into it as a reader would
+    System.arraycopy(frame, 0, buffer, 0, frame.length);
+    transport.inbound(buffer, frame.length, null);
+    return sink.out.position();
+  }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rns.interfaces.Framer;
+import rns.interfaces.Hdlc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a single frame with each framing. The {@code plain} payload has
+ * no byte to escape and takes the fast path, {@code announce} is the captured announce.
+ * {@code baseline_encode} and {@code baseline_decode} are the byte at a time Hdlc helpers of HdlcBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FramerBenchmark {
+
+  @Param({"hdlc", "kiss"})
+  String framing;
+
+  @Param({"announce", "plain"})
+  String payload;
+
+  Framer framer;
+  byte[] data;
+  byte[] encoded;
+  byte[] hdlc;
+  ByteBuffer out;
+  Framer.Deframer deframer;
+  int length;
+
+  @Setup
+  public void setup() {
+    framer = Framer.forName(framing);
+    data = Frames.announce();
+    if (payload.equals("plain")) {
+      for (int i = 0; i < data.length; i++) if (data[i] == (byte) 0x7E || data[i] == (byte) 0x7D
+          || data[i] == (byte) 0xC0 || data[i] == (byte) 0xDB) data[i] = 0;
+    }
+    out = ByteBuffer.allocate(framer.max_encoded_length(data.length));
+    framer.encode(ByteBuffer.wrap(data), out);
+    encoded = Arrays.copyOf(out.array(), out.position());
+    hdlc = Hdlc.encode(data);
+    deframer = framer.deframer(new BufferPool(Reticulum.MTU, 16), Reticulum.MTU, (frame, length) -> {
+      this.length = length;
+      return false;
+    });
+  }
+
+  @Benchmark
+  public byte[] baseline_encode() {
+    byte[] escaped = HdlcBenchmark.escape(data);
+    byte[] bytes = new byte[escaped.length + 2];
+    bytes[0] = Hdlc.FLAG;
+    System.arraycopy(escaped, 0, bytes, 1, escaped.length);
+    bytes[bytes.length - 1] = Hdlc.FLAG;
+    return bytes;
+  }
+
+  @Benchmark
+  public int encode() {
+    out.clear();
+    framer.encode(ByteBuffer.wrap(data), out);
+    return out.position();
+  }
+
+  @Benchmark
+  public byte[] baseline_decode() {
+    return HdlcBenchmark.decode(hdlc);
+  }
+
+  @Benchmark
+  public int decode() {
+    deframer.receive(ByteBuffer.wrap(encoded));
+    return length;
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import ab.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rns.interfaces.Hdlc;
+import rns.interfaces.HdlcDeframer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deframing throughput of a stream of announces delivered in reads of {@code chunk} bytes.
+ * {@code baseline} is the deframing as LocalClientInterface did it before the streaming deframer:
+ * the pending bytes are concatenated with every read and rescanned from the start.
+ * The score is the time to deframe the whole stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HdlcBenchmark {
+
+  @Param({"16", "256", "4096"})
+  int chunk;
+
+  byte[] stream;
+  int frames;
+  HdlcDeframer deframer = new HdlcDeframer(new BufferPool(Reticulum.MTU, 16), 262144, (frame, length) -> {
+    frames++;
+    return false;
+  });
+
+  @Setup
+  public void setup() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] frame = Hdlc.encode(Frames.announce());
+    for (int i = 0; i < 64; i++) out.writeBytes(frame);
+    stream = out.toByteArray();
+  }
+
+  @Benchmark
+  public int baseline() {
+    frames = 0;
+    byte[] frame_buffer = new byte[0];
+    for (int i = 0; i < stream.length; i += chunk) {
+      frame_buffer = Utils.concatenate(frame_buffer, Arrays.copyOfRange(stream, i, Math.min(stream.length, i + chunk)));
+      while (true) {
+        int frame_start = Utils.indexOf(frame_buffer, Hdlc.FLAG, 0);
+        if (frame_start < 0) break;
+        int frame_end = Utils.indexOf(frame_buffer, Hdlc.FLAG, frame_start + 1);
+        if (frame_end < 0) break;
+        byte[] frame = unescape(Arrays.copyOfRange(frame_buffer, frame_start + 1, frame_end));
+        if (frame.length > Reticulum.HEADER_MINSIZE) frames++;
+        frame_buffer = Arrays.copyOfRange(frame_buffer, frame_end, frame_buffer.length);
+      }
+    }
+    return frames;
+  }
+
+  @Benchmark
+  public int deframer() {
+    frames = 0;
+    for (int i = 0; i < stream.length; i += chunk) deframer.receive(stream, i, Math.min(chunk, stream.length - i));
+    return frames;
+  }
+
+  // the byte at a time helpers Hdlc had before the framers, kept as the baselines
+
+  static byte[] escape(byte[] data) {
+    byte[] bytes = new byte[data.length * 2];
+    int length = 0;
+    for (byte b : data) {
+      if (b == Hdlc.FLAG || b == Hdlc.ESCAPE) {
+        bytes[length++] = Hdlc.ESCAPE;
+        b ^= Hdlc.MASK;
+      }
+      bytes[length++] = b;
+    }
+    return Arrays.copyOf(bytes, length);
+  }
+
+  static byte[] unescape(byte[] data) {
+    byte[] bytes = new byte[data.length];
+    int length = 0;
+    for (int i = 0; i < data.length; i++) {
+      byte b = data[i];
+      if (b == Hdlc.FLAG) throw new IllegalStateException(); // end of frame
+      if (b == Hdlc.ESCAPE) {
+        b = (byte) (data[++i] ^ Hdlc.MASK);
+        if (b != Hdlc.FLAG && b != Hdlc.ESCAPE) throw new IllegalStateException();
+      }
+      bytes[length++] = b;
+    }
+    return Arrays.copyOf(bytes, length);
+  }
+
+  static byte[] decode(byte[] data) {
+    if (data.length < 1 || data[0] != Hdlc.FLAG) throw new IllegalStateException();
+    byte[] bytes = new byte[data.length];
+    int length = 0;
+    for (int i = 1; i < data.length; i++) {
+      byte b = data[i];
+      if (b == Hdlc.FLAG) break; // end of frame
+      if (b == Hdlc.ESCAPE) {
+        b = (byte) (data[++i] ^ Hdlc.MASK);
+        if (b != Hdlc.FLAG && b != Hdlc.ESCAPE) throw new IllegalStateException();
+      }
+      bytes[length++] = b;
+    }
+    return Arrays.copyOf(bytes, length);
+  }
+
+}
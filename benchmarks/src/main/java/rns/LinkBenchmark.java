@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rns.interfaces.Interface;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages per second from the sender to the receiving callback, a 200-byte message to a SINGLE
+ * destination. {@code baseline} encrypts every message for the destination identity with its own
+ * ephemeral key exchange, {@code link} sends it over an established link, picking the links round robin.
+ * Both nodes live in this process, joined by a pair of interfaces that process the frame synchronously.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkBenchmark {
+
+  /**
+   * One end of the wire, the frame is copied into the receive buffer of the peer
+   * and processed with the packet hashlist of the receiving node.
+   */
+  static class Pipe extends Interface {
+    Pipe peer;
+    final PacketHashlist hashlist = new PacketHashlist(Transport.HASHLIST_MAXSIZE / 2, Transport.HASHLIST_FP_RATE);
+    final byte[] buffer = new byte[Reticulum.MTU];
+    final Transport transport = new Transport();
+
+    @Override
+    public boolean process_outgoing(byte[] data) {
+      return process_outgoing(data, 0, data.length);
+    }
+
+    @Override
+    public boolean process_outgoing(byte[] data, int offset, int length) {
+      System.arraycopy(data, offset, peer.buffer, 0, length);
+      PacketHashlist hashlist = Transport.packet_hashlist;
+      Transport.packet_hashlist = peer.hashlist;
+      try {
+        peer.transport.inbound(peer.buffer, length, peer);
+      } finally {
+        Transport.packet_hashlist = hashlist;
+      }
+      return true;
+    }
+  }
+
+  @Param({"1", "4096"})
+  int links;
+
+  final Pipe client = new Pipe();
+  final Pipe server = new Pipe();
+  Destination destination;
+  Destination out;
+  Link[] link;
+  byte[] message;
+  int next;
+  long received;
+
+  @Setup
+  public void setup() {
+    client.peer = server;
+    server.peer = client;
+    client.online = true;
+    server.online = true;
+    Transport.identity = new Identity(true);
+    Transport.packet_hashlist = client.hashlist;
+    Transport.interfaces.add(client);
+    destination = new Destination(new Identity(true), Destination.IN, Destination.SINGLE, "benchmark", "link");
+    destination.set_link_established_callback(l -> l.set_packet_callback((data, packet) -> received += data.length));
+    Identity identity = new Identity();
+    identity.load_public_key(destination.identity.get_public_key());
+    out = new Destination(identity, Destination.OUT, Destination.SINGLE, "benchmark", "link");
+    link = new Link[links];
+    for (int i = 0; i < links; i++) {
+      link[i] = new Link(out);
+      if (link[i].get_status() != Link.ACTIVE) throw new IllegalStateException("Link is not established");
+    }
+    message = new byte[200];
+    new Random(0).nextBytes(message);
+  }
+
+  @TearDown
+  public void tearDown() {
+    for (Link l : link) l.teardown();
+    Transport.interfaces.remove(client);
+    Transport.deregister_destination(destination);
+  }
+
+  @Benchmark
+  public long baseline() {
+    byte[] ciphertext = out.encrypt(message);
+    byte[] plaintext = destination.decrypt(ciphertext);
+    received += plaintext.length;
+    return received;
+  }
+
+  @Benchmark
+  public long link() {
+    link[next].send(message);
+    if (++next == links) next = 0;
+    return received;
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import ab.SignatureUtils;
+import ab.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packing and hashing of a small DATA packet. {@code baseline} assembles the header and the
+ * hashable part from concatenated arrays like Packet.pack does, {@code builder} reuses one
+ * PacketBuilder, run with {@code -prof gc} to see the allocation per packet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackBenchmark {
+
+  final byte[] destination_hash = new byte[Packet.DST_LEN];
+  final byte[] data = new byte[64];
+  final byte[] packet_hash = new byte[32];
+  PacketBuilder builder;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0);
+    random.nextBytes(destination_hash);
+    random.nextBytes(data);
+    builder = new PacketBuilder().destination_hash(destination_hash)
+        .destination_type(Destination.SINGLE).packet_type(Packet.DATA).context(Packet.NONE);
+  }
+
+  @Benchmark
+  public byte[] baseline() {
+    int flags = Packet.HEADER_1 << 6 | Destination.SINGLE << 2 | Packet.DATA;
+    byte[] header = Utils.concatenate(new byte[]{(byte) flags, 0}, destination_hash, new byte[]{Packet.NONE});
+    byte[] raw = Utils.concatenate(header, data);
+    byte[] hashable_part = Utils.concatenate(new byte[]{(byte) (raw[0] & 0x0F)}, Arrays.copyOfRange(raw, 2, raw.length));
+    return SignatureUtils.sha256().digest(hashable_part);
+  }
+
+  @Benchmark
+  public byte[] builder() {
+    builder.reset().data(data).pack().get_hash(packet_hash);
+    return packet_hash;
+  }
+
+}
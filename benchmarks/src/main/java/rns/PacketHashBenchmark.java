@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import ab.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-packet hashing cost, {@code baseline} is the hashing as it was done before the hash became lazy:
+ * the hashable part is assembled into a new array and a new digest is created for every packet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketHashBenchmark {
+
+  byte[] raw = Frames.announce();
+
+  @Benchmark
+  public byte[] baseline() throws NoSuchAlgorithmException {
+    byte[] hashable = Utils.concatenate(new byte[]{(byte) (raw[0] & 0x0F)}, Arrays.copyOfRange(raw, 2, raw.length));
+    return MessageDigest.getInstance("SHA-256").digest(hashable);
+  }
+
+  @Benchmark
+  public byte[] get_hash() {
+    Packet packet = new Packet(null, raw);
+    packet.unpack();
+    return packet.get_hash();
+  }
+
+  @Benchmark
+  public int unpack() {
+    Packet packet = new Packet(null, raw);
+    packet.unpack();
+    return packet.packet_type;
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import ab.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a 400-byte payload through a GROUP token. {@code baseline} looks up the Cipher and
+ * Mac and builds the key specs and the token from concatenated arrays for every call, {@code token}
+ * reuses the Token and the per-thread instances and decrypts into a buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBenchmark {
+
+  final byte[] key = Cryptography.Token.generate_key();
+  final byte[] data = new byte[400];
+  Cryptography.Token token;
+  byte[] encrypted;
+  byte[] plaintext;
+
+  @Setup
+  public void setup() {
+    token = new Cryptography.Token(key);
+    encrypted = new byte[Cryptography.Token.token_length(data.length)];
+    plaintext = new byte[encrypted.length];
+  }
+
+  @Benchmark
+  public byte[] baseline() throws GeneralSecurityException {
+    byte[] iv = new byte[16];
+    Identity.random.nextBytes(iv);
+    Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Arrays.copyOfRange(key, 32, 64), "AES"), new IvParameterSpec(iv));
+    byte[] signed_parts = Utils.concatenate(iv, cipher.doFinal(data));
+    Mac mac = Mac.getInstance("HmacSHA256");
+    mac.init(new SecretKeySpec(Arrays.copyOf(key, 32), "HmacSHA256"));
+    byte[] token = Utils.concatenate(signed_parts, mac.doFinal(signed_parts));
+
+    mac = Mac.getInstance("HmacSHA256");
+    mac.init(new SecretKeySpec(Arrays.copyOf(key, 32), "HmacSHA256"));
+    byte[] received_hmac = Arrays.copyOfRange(token, token.length - 32, token.length);
+    byte[] expected_hmac = mac.doFinal(Arrays.copyOf(token, token.length - 32));
+    if (!Arrays.equals(received_hmac, expected_hmac)) throw new IllegalStateException();
+    cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+    cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(Arrays.copyOfRange(key, 32, 64), "AES"),
+        new IvParameterSpec(Arrays.copyOf(token, 16)));
+    return cipher.doFinal(Arrays.copyOfRange(token, 16, token.length - 32));
+  }
+
+  @Benchmark
+  public int token() {
+    int length = token.encrypt(data, 0, data.length, encrypted, 0);
+    return token.decrypt(encrypted, 0, length, plaintext, 0);
+  }
+
+}
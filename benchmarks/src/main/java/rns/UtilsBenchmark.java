@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import ab.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hex rendering of a destination hash as it goes into names and log messages,
+ * and the concatenation of the signed data of the captured announce.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+  final byte[] raw = Frames.announce();
+  final byte[] destination_hash = Arrays.copyOfRange(raw, 2, 18);
+  final byte[] announce_data = Arrays.copyOfRange(raw, 19, 19 + 84);
+  final byte[] app_data = Arrays.copyOfRange(raw, 19 + 148, raw.length);
+
+  @Benchmark
+  public String toHex() {
+    return Utils.toHex(destination_hash);
+  }
+
+  @Benchmark
+  public String toHexLowerCase() {
+    return Utils.toHexLowerCase(destination_hash);
+  }
+
+  @Benchmark
+  public byte[] concatenate() {
+    return Utils.concatenate(destination_hash, announce_data, app_data);
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import ab.SignatureUtils;
+import org.bouncycastle.jcajce.spec.RawEncodedKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ed25519 verification of a captured announce, {@code baseline} decodes the key and creates
+ * the signature object for every call as verify25519 did before the key cache.
+ * {@code validate_announce} is the whole announce check from the unpacked frame, remembering included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerifyBenchmark {
+
+  static {
+    SignatureUtils.sha256(new byte[0]); // registers the provider
+  }
+
+  byte[] raw = Frames.announce();
+  byte[] key = Arrays.copyOfRange(raw, 19 + 32, 19 + 64);
+  byte[] signature = Arrays.copyOfRange(raw, 19 + 84, 19 + 148);
+  byte[] data = ab.Utils.concatenate(Arrays.copyOfRange(raw, 2, 18), Arrays.copyOfRange(raw, 19, 19 + 84),
+      Arrays.copyOfRange(raw, 19 + 148, raw.length));
+
+  @Benchmark
+  public boolean baseline() throws GeneralSecurityException {
+    PublicKey k = KeyFactory.getInstance("Ed25519", "BC").generatePublic(new RawEncodedKeySpec(key));
+    Signature s = Signature.getInstance("Ed25519", "BC");
+    s.initVerify(k);
+    s.update(data);
+    return s.verify(signature);
+  }
+
+  @Benchmark
+  public boolean verify25519() {
+    return SignatureUtils.verify25519(key, signature, data);
+  }
+
+  @Benchmark
+  public boolean validate_announce() {
+    Packet packet = new Packet(null, raw);
+    packet.unpack();
+    return Identity.validate_announce(packet, false);
+  }
+
+}
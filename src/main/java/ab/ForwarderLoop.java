@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ab;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Event loop of TcpForwarder, one thread serves many connections. The upstream socket
+ * is connected without blocking, the data is moved through a direct buffer per direction.
+ * When the destination can not take more, reading from the source stops until the buffer
+ * is written, and an end of stream is passed on as a half close once the buffer is empty.
+ * The chunks are queued for the consumers after they are forwarded.
+ */
+class ForwarderLoop implements Runnable {
+
+  private static final int BUFFER_SIZE = 1 << 14;
+
+  private final TcpForwarder forwarder;
+  private final Selector selector;
+  private final Queue<Connection> accepted = new ConcurrentLinkedQueue<>();
+
+  ForwarderLoop(TcpForwarder forwarder) throws IOException {
+    this.forwarder = forwarder;
+    this.selector = Selector.open();
+  }
+
+  /**
+   * Hands an accepted client over to the loop, called by the accepting thread.
+   */
+  void add(SocketChannel client, InetSocketAddress remote) {
+    accepted.add(new Connection(client, remote));
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        selector.select();
+      } catch (IOException e) {
+        e.printStackTrace();
+        return;
+      }
+      for (Connection connection; (connection = accepted.poll()) != null; ) connection.open();
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        ((Connection) key.attachment()).handle(key);
+      }
+    }
+  }
+
+  private class Direction {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    final boolean outbound;
+    final Tap.Producer tap;
+    byte[] chunk;
+    boolean eof;
+    boolean shut;
+
+    Direction(boolean outbound) {
+      this.outbound = outbound;
+      this.tap = (outbound ? forwarder.outbound_tap : forwarder.inbound_tap).open();
+    }
+
+    void read(SocketChannel source) throws IOException {
+      int position = buffer.position();
+      int n = source.read(buffer);
+      if (n < 0) {
+        eof = true;
+        return;
+      }
+      if (n > 0 && forwarder.tapped(outbound)) {
+        chunk = new byte[n];
+        buffer.duplicate().position(position).limit(position + n).get(chunk);
+      }
+    }
+
+    void tap() {
+      if (chunk == null) return;
+      tap.offer(chunk);
+      chunk = null;
+    }
+
+    void write(SocketChannel destination) throws IOException {
+      if (buffer.position() > 0) {
+        buffer.flip();
+        destination.write(buffer);
+        buffer.compact();
+      }
+      if (eof && !shut && buffer.position() == 0) {
+        destination.shutdownOutput();
+        shut = true;
+      }
+    }
+  }
+
+  private class Connection {
+    final SocketChannel client;
+    final InetSocketAddress address;
+    SocketChannel remote;
+    SelectionKey client_key;
+    SelectionKey remote_key;
+    boolean connected;
+    final Direction outbound = new Direction(true);
+    final Direction inbound = new Direction(false);
+
+    Connection(SocketChannel client, InetSocketAddress address) {
+      this.client = client;
+      this.address = address;
+    }
+
+    void open() {
+      try {
+        client.configureBlocking(false);
+        client_key = client.register(selector, 0, this);
+        remote = SocketChannel.open();
+        remote.configureBlocking(false);
+        remote_key = remote.register(selector, 0, this);
+        connected = remote.connect(address);
+        update();
+      } catch (IOException e) {
+        close();
+      }
+    }
+
+    void handle(SelectionKey key) {
+      try {
+        if (!key.isValid()) return;
+        if (key.isConnectable()) connected = remote.finishConnect();
+        if (key.isReadable()) {
+          if (key == client_key) {
+            outbound.read(client);
+          } else {
+            inbound.read(remote);
+          }
+        }
+        // write whatever is pending, a read is usually forwarded in the same pass
+        if (connected) {
+          outbound.write(remote);
+          inbound.write(client);
+        }
+        outbound.tap();
+        inbound.tap();
+        if (outbound.shut && inbound.shut) {
+          close();
+        } else {
+          update();
+        }
+      } catch (IOException e) {
+        close();
+      }
+    }
+
+    private void update() {
+      int client_ops = 0;
+      int remote_ops = 0;
+      if (!connected) {
+        remote_ops = SelectionKey.OP_CONNECT;
+      } else {
+        if (!outbound.eof && outbound.buffer.hasRemaining()) client_ops |= SelectionKey.OP_READ;
+        if (outbound.buffer.position() > 0) remote_ops |= SelectionKey.OP_WRITE;
+        if (!inbound.eof && inbound.buffer.hasRemaining()) remote_ops |= SelectionKey.OP_READ;
+        if (inbound.buffer.position() > 0) client_ops |= SelectionKey.OP_WRITE;
+      }
+      client_key.interestOps(client_ops);
+      remote_key.interestOps(remote_ops);
+    }
+
+    void close() {
+      outbound.tap.close();
+      inbound.tap.close();
+      try {
+        client.close();
+        if (remote != null) remote.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+}
@@ -18,7 +18,9 @@
 package ab;
 
 import org.bouncycastle.jcajce.spec.RawEncodedKeySpec;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
 import java.security.MessageDigest;
@@ -26,32 +28,157 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.Security;
 import java.security.Signature;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 public class SignatureUtils {
 
+  public static final int ED25519_SIGNATURE_LENGTH = 64;
+
   static {
-    Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+    Security.addProvider(new BouncyCastleProvider());
   }
 
-  public static byte[] sha256(byte[] bytes) {
+  // the cache is striped by key, so the verifier threads rarely wait for the lock of an LRU stripe
+  private static final int PUBLIC_KEY_STRIPES = 16;
+  private static final LongAdder publicKeyCacheHits = new LongAdder();
+  private static final LongAdder publicKeyCacheMisses = new LongAdder();
+  private static final KeyCache[] PUBLIC_KEYS = new KeyCache[PUBLIC_KEY_STRIPES];
+
+  static {
+    for (int i = 0; i < PUBLIC_KEY_STRIPES; i++) PUBLIC_KEYS[i] = new KeyCache(8192 / PUBLIC_KEY_STRIPES);
+  }
+
+  private static final ThreadLocal<Verifier> VERIFIER = ThreadLocal.withInitial(Verifier::new);
+
+  private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
     try {
-      return MessageDigest.getInstance("SHA-256").digest(bytes);
+      return MessageDigest.getInstance("SHA-256");
     } catch (NoSuchAlgorithmException e) {
       throw new Error(e);
     }
+  });
+
+  /**
+   * @return per-thread SHA-256 digest in its initial state, must not be shared with other threads
+   */
+  public static MessageDigest sha256() {
+    MessageDigest digest = SHA256.get();
+    digest.reset();
+    return digest;
+  }
+
+  public static byte[] sha256(byte[] bytes) {
+    return sha256().digest(bytes);
   }
 
   public static boolean verify25519(byte[] key, byte[] signature, byte[] data) {
-    // FIXME: 2025-11-26 make the code Java 17 compatible
+    return verify25519(key, signature, 0, ByteBuffer.wrap(data));
+  }
+
+  /**
+   * Verifies a signature over the concatenation of the data buffers without assembling them into one array.
+   * Decoded public keys are cached, see {@link #setPublicKeyCacheSize(int)}.
+   * @throws IllegalStateException if the key or the signature is malformed
+   */
+  public static boolean verify25519(byte[] key, byte[] signature, int signatureOffset, ByteBuffer... data) {
+    Verifier verifier = VERIFIER.get();
     try {
-      PublicKey k = KeyFactory.getInstance("Ed25519").generatePublic(new RawEncodedKeySpec(key));
-      Signature s = Signature.getInstance("Ed25519");
-      s.initVerify(k);
-      s.update(data);
-      return s.verify(signature);
-    } catch (GeneralSecurityException e) {
+      verifier.init(publicKey25519(key));
+      for (ByteBuffer buffer : data) verifier.signature.update(buffer);
+      return verifier.signature.verify(signature, signatureOffset, ED25519_SIGNATURE_LENGTH);
+    } catch (GeneralSecurityException | IllegalArgumentException e) {
+      // malformed key or signature, the data may be left in the verifier, so it is initialized again next time
+      verifier.key = null;
       throw new IllegalStateException(e);
     }
   }
 
+  /**
+   * @return decoded Ed25519 public key from the bounded LRU cache
+   */
+  public static PublicKey publicKey25519(byte[] key) throws GeneralSecurityException {
+    ByteBuffer cacheKey = ByteBuffer.wrap(key);
+    KeyCache cache = PUBLIC_KEYS[cacheKey.hashCode() & (PUBLIC_KEY_STRIPES - 1)];
+    PublicKey publicKey;
+    synchronized (cache) {
+      publicKey = cache.get(cacheKey);
+    }
+    if (publicKey != null) {
+      publicKeyCacheHits.increment();
+      return publicKey;
+    }
+    publicKeyCacheMisses.increment();
+    publicKey = VERIFIER.get().keyFactory.generatePublic(new RawEncodedKeySpec(key));
+    synchronized (cache) {
+      cache.put(ByteBuffer.wrap(key.clone()), publicKey);
+    }
+    return publicKey;
+  }
+
+  /**
+   * @param size number of cached keys, shared evenly between the stripes of the cache
+   */
+  public static void setPublicKeyCacheSize(int size) {
+    if (size < 0) throw new IllegalArgumentException();
+    for (KeyCache cache : PUBLIC_KEYS) {
+      synchronized (cache) {
+        cache.maxSize = (size + PUBLIC_KEY_STRIPES - 1) / PUBLIC_KEY_STRIPES;
+        cache.clear();
+      }
+    }
+  }
+
+  public static long publicKeyCacheHits() {
+    return publicKeyCacheHits.sum();
+  }
+
+  public static long publicKeyCacheMisses() {
+    return publicKeyCacheMisses.sum();
+  }
+
+  /**
+   * Stripe of the public key cache, an access ordered map guarded by its own monitor.
+   */
+  private static class KeyCache extends LinkedHashMap<ByteBuffer, PublicKey> {
+    int maxSize;
+
+    KeyCache(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<ByteBuffer, PublicKey> eldest) {
+      return size() > maxSize;
+    }
+  }
+
+  /**
+   * Per-thread Ed25519 objects, the signature stays initialized with the last used key
+   * because the same destinations tend to announce in bursts.
+   */
+  private static class Verifier {
+    final KeyFactory keyFactory;
+    final Signature signature;
+    PublicKey key;
+
+    Verifier() {
+      try {
+        keyFactory = KeyFactory.getInstance("Ed25519", BouncyCastleProvider.PROVIDER_NAME);
+        signature = Signature.getInstance("Ed25519", BouncyCastleProvider.PROVIDER_NAME);
+      } catch (GeneralSecurityException e) {
+        throw new Error(e);
+      }
+    }
+
+    void init(PublicKey key) throws GeneralSecurityException {
+      if (this.key == key) return;
+      this.key = null;
+      signature.initVerify(key);
+      this.key = key;
+    }
+  }
+
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ab;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue for exactly one producer thread and one consumer thread.
+ * The producer caches the consumer position and reads the shared one only when
+ * the cached one says the queue is full.
+ */
+final class SpscQueue<E> {
+
+  private final Object[] buffer;
+  private final int mask;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+  private long head_cache;
+
+  SpscQueue(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+    buffer = new Object[size];
+    mask = size - 1;
+  }
+
+  int capacity() {
+    return buffer.length;
+  }
+
+  /**
+   * Producer side.
+   * @return false if the queue is full
+   */
+  boolean offer(E e) {
+    long t = tail.get();
+    if (t - head_cache >= buffer.length) {
+      head_cache = head.get();
+      if (t - head_cache >= buffer.length) return false;
+    }
+    buffer[(int) t & mask] = e;
+    tail.lazySet(t + 1);
+    return true;
+  }
+
+  /**
+   * Consumer side.
+   * @return the oldest element or null if the queue is empty
+   */
+  @SuppressWarnings("unchecked")
+  E poll() {
+    long h = head.get();
+    if (h >= tail.get()) return null;
+    int index = (int) h & mask;
+    E e = (E) buffer[index];
+    buffer[index] = null;
+    head.lazySet(h + 1);
+    return e;
+  }
+
+  int size() {
+    return (int) (tail.get() - head.get());
+  }
+
+}
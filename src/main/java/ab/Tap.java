@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ab;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Passes the forwarded chunks of one direction to the consumers on a dispatcher thread,
+ * so a slow consumer does not delay the forwarding. Every connection has its own
+ * single producer queue and consumer, the dispatcher drains them all, the chunks of a connection
+ * stay in order and never reach the consumer of another connection. What happens when a queue is full is set by the overflow policy.
+ */
+class Tap {
+
+  private static final int SAMPLE_RATE = 8;
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final Supplier<Consumer<byte[]>> connection;
+  private final int capacity;
+  private final TcpForwarder.Overflow overflow;
+  private final List<Producer> producers = new CopyOnWriteArrayList<>();
+  private final LongAdder dropped = new LongAdder();
+  private final Thread thread;
+  private volatile boolean waiting;
+
+  /**
+   * @param connection called for every new connection, the consumer gets the chunks of that connection
+   */
+  Tap(String name, Supplier<Consumer<byte[]>> connection, int capacity, TcpForwarder.Overflow overflow) {
+    this.connection = connection;
+    this.capacity = capacity;
+    this.overflow = overflow;
+    thread = new Thread(this::run, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * @return queue of a new connection, to be used by a single thread
+   */
+  Producer open() {
+    Producer producer = new Producer(capacity, connection.get());
+    producers.add(producer);
+    return producer;
+  }
+
+  long dropped() {
+    return dropped.sum();
+  }
+
+  private void run() {
+    while (true) {
+      boolean idle = true;
+      for (Producer producer : producers) {
+        boolean closed = producer.closed;
+        for (byte[] chunk; (chunk = producer.queue.poll()) != null; ) {
+          idle = false;
+          producer.accept(chunk);
+        }
+        if (closed) producers.remove(producer);
+      }
+      if (idle) {
+        waiting = true;
+        // a producer that offered before it could see the flag does not unpark
+        if (!pending()) LockSupport.parkNanos(this, IDLE_NANOS);
+        waiting = false;
+      }
+    }
+  }
+
+  private boolean pending() {
+    for (Producer producer : producers) if (producer.queue.size() > 0) return true;
+    return false;
+  }
+
+  class Producer {
+    final SpscQueue<byte[]> queue;
+    // called by the dispatcher thread only
+    private final Consumer<byte[]> consumer;
+    volatile boolean closed;
+    private long sample;
+
+    Producer(int capacity, Consumer<byte[]> consumer) {
+      queue = new SpscQueue<>(capacity);
+      this.consumer = consumer;
+    }
+
+    private void accept(byte[] chunk) {
+      if (consumer == null) return;
+      try {
+        consumer.accept(chunk);
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+      }
+    }
+
+    void offer(byte[] chunk) {
+      switch (overflow) {
+        case SAMPLE:
+          // above half full only every SAMPLE_RATE-th chunk is passed on
+          if (queue.size() >= queue.capacity() / 2 && ++sample % SAMPLE_RATE != 0) {
+            dropped.increment();
+            return;
+          }
+          // fall through
+        case DROP:
+          if (!queue.offer(chunk)) {
+            dropped.increment();
+            return;
+          }
+          break;
+        case BLOCK:
+          while (!queue.offer(chunk)) {
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(10_000);
+          }
+          break;
+      }
+      if (waiting) LockSupport.unpark(thread);
+    }
+
+    void close() {
+      closed = true;
+    }
+  }
+
+}
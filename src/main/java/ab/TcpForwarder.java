@@ -17,17 +17,17 @@
 
 package ab;
 
-import rns.Identity;
-import rns.Packet;
-import rns.interfaces.Hdlc;
-
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class TcpForwarder extends Thread {
 
@@ -36,6 +36,42 @@ public class TcpForwarder extends Thread {
   private int remotePort;
   public Consumer<byte[]> inbound;
   public Consumer<byte[]> outbound;
+  /**
+   * Called for every new connection, the consumer gets the chunks of that connection only, in place of
+   * inbound or outbound. For consumers that keep state between the chunks, such as deframers.
+   */
+  public Supplier<Consumer<byte[]>> inbound_connection;
+  public Supplier<Consumer<byte[]>> outbound_connection;
+  /**
+   * Number of event loop threads, 0 to use three threads per connection.
+   */
+  public int loops;
+  /**
+   * Chunks queued per connection and direction for the consumers.
+   */
+  public int tap_capacity = 1024;
+  public Overflow tap_overflow = Overflow.DROP;
+  Tap inbound_tap;
+  Tap outbound_tap;
+
+  /**
+   * What happens to a chunk when the consumer is behind and the queue of the connection is full.
+   */
+  public enum Overflow {
+    /**
+     * The chunk is not passed to the consumer.
+     */
+    DROP,
+    /**
+     * As DROP, and only every 8th chunk is passed while the queue is more than half full,
+     * so the consumer sees a sample of the whole traffic instead of its bursts.
+     */
+    SAMPLE,
+    /**
+     * Forwarding waits for the consumer, nothing is lost but the consumer sets the pace.
+     */
+    BLOCK
+  }
 
   public TcpForwarder(int localPort, String remoteHost, int remotePort) {
     this.localPort = localPort;
@@ -43,8 +79,42 @@ public class TcpForwarder extends Thread {
     this.remotePort = remotePort;
   }
 
+  /**
+   * @return number of chunks not passed to the consumers because of the overflow policy
+   */
+  public long tap_dropped() {
+    return (inbound_tap == null ? 0 : inbound_tap.dropped()) + (outbound_tap == null ? 0 : outbound_tap.dropped());
+  }
+
+  /**
+   * @return consumer of a new connection, made by the factory or reading the shared one for every chunk
+   */
+  private static Consumer<byte[]> consumer(Supplier<Consumer<byte[]>> factory, Supplier<Consumer<byte[]>> shared) {
+    if (factory != null) return factory.get();
+    return chunk -> {
+      Consumer<byte[]> consumer = shared.get();
+      if (consumer != null) consumer.accept(chunk);
+    };
+  }
+
+  /**
+   * @return true if the chunks of the direction are passed to a consumer
+   */
+  boolean tapped(boolean outbound) {
+    return outbound ? this.outbound != null || outbound_connection != null
+        : inbound != null || inbound_connection != null;
+  }
+
   @Override
   public void run() {
+    inbound_tap = new Tap("tcp-forwarder-inbound",
+        () -> consumer(inbound_connection, () -> inbound), tap_capacity, tap_overflow);
+    outbound_tap = new Tap("tcp-forwarder-outbound",
+        () -> consumer(outbound_connection, () -> outbound), tap_capacity, tap_overflow);
+    if (loops > 0) {
+      run_loops();
+      return;
+    }
     try (ServerSocket serverSocket = new ServerSocket(localPort)) {
       //System.out.println("Listening on port " + localPort);
 
@@ -62,6 +132,26 @@ public class TcpForwarder extends Thread {
     }
   }
 
+  private void run_loops() {
+    try (ServerSocketChannel serverSocket = ServerSocketChannel.open()) {
+      ForwarderLoop[] forwarderLoops = new ForwarderLoop[loops];
+      for (int i = 0; i < loops; i++) {
+        forwarderLoops[i] = new ForwarderLoop(this);
+        Thread thread = new Thread(forwarderLoops[i], "tcp-forwarder-" + i);
+        thread.setDaemon(true);
+        thread.start();
+      }
+      serverSocket.bind(new InetSocketAddress(localPort));
+      for (int i = 0; ; i = (i + 1) % loops) {
+        SocketChannel clientSocket = serverSocket.accept();
+        // the name is resolved here, the loops never block
+        forwarderLoops[i].add(clientSocket, new InetSocketAddress(remoteHost, remotePort));
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
   private class Forwarder implements Runnable {
     private Socket clientSocket;
     private Socket remoteSocket;
@@ -88,56 +178,21 @@ public class TcpForwarder extends Thread {
       }
     }
 
-    private void print(byte[] buffer, Socket destination) {
-      buffer = Hdlc.decode(buffer);
-      Packet packet = new Packet(null, buffer);
-      if (packet.packet_type == Packet.ANNOUNCE) Identity.validate_announce(packet, true);
-      StringBuilder s = new StringBuilder();
-      int flags = buffer[0] & 0xFF;
-//      if (destination != remoteSocket) return;
-      s.append(destination == remoteSocket ? "O" : "I");
-      s.append(" ");
-      //s.append(" IFAC");
-      s.append(flags >> 7);
-      if (flags >> 7 > 0) s.append(" IFAC "); //IFAC Flag
-      //s.append(" Header");
-      s.append(flags >> 6 & 1);
-      //s.append(" Context");
-      s.append(flags >> 5 & 1);
-      //s.append(" Propagation");
-      s.append(flags >> 4 & 1);
-      s.append(" ");
-      //s.append(" Destination");
-      s.append(flags >> 2 & 3);
-      //s.append(" Packet");
-      s.append(flags & 3);
-      s.append(" ");
-      //s.append(" Hops");
-      s.append(buffer[1]);
-      s.append(" length");
-      s.append(buffer.length);
-
-      s.append("\n  ");
-      s.append(Utils.toHex(buffer));
-      //s.append(" ").append(new String(buffer));
-      s.append("\n");
-      System.out.print(s);
-    }
-
     private void forwardData(Socket source, Socket destination) {
+      Tap.Producer tap = (destination == remoteSocket ? outbound_tap : inbound_tap).open();
       try (InputStream in = source.getInputStream();
            OutputStream out = destination.getOutputStream()) {
         byte[] buffer = new byte[4096];
         int bytesRead;
         while ((bytesRead = in.read(buffer)) != -1) {
-          Consumer<byte[]> consumer = destination == remoteSocket ? outbound : inbound;
-          if (consumer != null) consumer.accept(Arrays.copyOf(buffer, bytesRead));
-          //print(Arrays.copyOf(buffer, bytesRead), destination);
           out.write(buffer, 0, bytesRead);
           out.flush();
+          tap.offer(Arrays.copyOf(buffer, bytesRead));
         }
       } catch (IOException e) {
         e.printStackTrace();
+      } finally {
+        tap.close();
       }
     }
   }
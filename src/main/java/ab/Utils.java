@@ -19,10 +19,24 @@ package ab;
 
 public class Utils {
 
+  private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+  private static final char[] HEX_LOWER = "0123456789abcdef".toCharArray();
+
   public static String toHex(byte[] bytes) {
-    StringBuilder s = new StringBuilder();
-    for (byte b : bytes) s.append(String.format("%02X", b));
-    return s.toString();
+    return toHex(bytes, HEX_UPPER);
+  }
+
+  public static String toHexLowerCase(byte[] bytes) {
+    return toHex(bytes, HEX_LOWER);
+  }
+
+  private static String toHex(byte[] bytes, char[] digits) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = digits[bytes[i] >> 4 & 0x0F];
+      chars[2 * i + 1] = digits[bytes[i] & 0x0F];
+    }
+    return new String(chars);
   }
 
   public static byte[] concatenate(byte[]... byteArrays) {
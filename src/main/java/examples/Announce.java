@@ -49,7 +49,7 @@ public class Announce {
     rns.Reticulum reticulum = new rns.Reticulum(configpath);
 
     // Randomly create a new identity for our example
-    rns.Identity identity = new rns.Identity();
+    rns.Identity identity = new rns.Identity(true);
 
     // Using the identity we just created, we create two destinations
     // in the "example_utilities.announcesample" application space.
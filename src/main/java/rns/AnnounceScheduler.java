@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import rns.interfaces.Interface;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Announce egress queue of an interface, the counterpart of Interface.announce_queue.
+ *
+ * Announces are sent within announce_cap of the interface bitrate, metered by a token
+ * bucket that holds one second of budget and may go into debt by one frame, so a single
+ * announce waits at most for its own transmission budget, like announce_allowed_at does.
+ * Waiting announces are ordered by hops, then by age. A newer announce for a queued
+ * destination replaces the queued one, and each run sends every announce the bucket allows.
+ * A full queue drops the announce with the most hops.
+ */
+public class AnnounceScheduler {
+
+  static final long BATCH_INTERVAL = 1000;
+  private static final Comparator<Entry> ORDER = Comparator.<Entry>comparingInt(e -> e.hops)
+      .thenComparingLong(e -> e.time).thenComparingLong(e -> e.sequence);
+
+  private final Interface anInterface;
+  private final ScheduledExecutorService executor;
+  private final int max_queued;
+  private final TreeSet<Entry> queue = new TreeSet<>(ORDER);
+  private final Map<ByteBuffer, Entry> destinations = new HashMap<>();
+  private double tokens = Double.NaN;
+  private long refilled;
+  private long sequence;
+  private boolean scheduled;
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * @param executor runs the queue, null when the queue is run by calling drain
+   */
+  public AnnounceScheduler(Interface anInterface, ScheduledExecutorService executor, int max_queued) {
+    if (max_queued <= 0) throw new IllegalArgumentException();
+    this.anInterface = anInterface;
+    this.executor = executor;
+    this.max_queued = max_queued;
+  }
+
+  /**
+   * @return announce budget in bytes per millisecond, 0 if the interface is not capped
+   */
+  private double rate() {
+    double rate = anInterface.bitrate * anInterface.announce_cap / 8 / 1000;
+    return rate > 0 ? rate : 0;
+  }
+
+  private void refill(long now) {
+    double depth = rate() * BATCH_INTERVAL;
+    if (Double.isNaN(tokens)) tokens = depth;
+    else tokens = Math.min(depth, tokens + (now - refilled) * rate());
+    refilled = now;
+  }
+
+  /**
+   * Sends the announce if the budget allows, otherwise queues it.
+   * @param raw announce frame, not modified afterwards
+   * @return false if the announce was dropped
+   */
+  public boolean submit(byte[] destination_hash, int hops, long emitted, byte[] raw) {
+    return submit(destination_hash, hops, emitted, raw, System.currentTimeMillis());
+  }
+
+  boolean submit(byte[] destination_hash, int hops, long emitted, byte[] raw, long now) {
+    synchronized (this) {
+      refill(now);
+      double rate = rate();
+      if (rate > 0 && (!queue.isEmpty() || tokens <= 0)) return enqueue(destination_hash, hops, emitted, raw, now);
+      tokens -= raw.length;
+    }
+    transmit(raw);
+    return true;
+  }
+
+  private boolean enqueue(byte[] destination_hash, int hops, long emitted, byte[] raw, long now) { // 1030
+    ByteBuffer key = ByteBuffer.wrap(destination_hash.clone());
+    Entry entry = new Entry(key, hops, now, emitted, raw, sequence++);
+    Entry existing = destinations.get(key);
+    if (existing != null) {
+      coalesced.increment();
+      if (emitted <= existing.emitted) return true;
+      queue.remove(existing);
+    } else if (queue.size() >= max_queued) {
+      Entry last = queue.last();
+      dropped.increment();
+      if (ORDER.compare(entry, last) > 0) return false;
+      queue.pollLast();
+      destinations.remove(last.key);
+    }
+    queue.add(entry);
+    destinations.put(key, entry);
+    schedule();
+    return true;
+  }
+
+  /**
+   * Schedules the next run for when the bucket is out of debt, the caller holds the lock.
+   */
+  private void schedule() {
+    if (scheduled || executor == null || queue.isEmpty()) return;
+    scheduled = true;
+    long delay = tokens > 0 ? 0 : (long) Math.ceil(-tokens / rate()) + 1;
+    executor.schedule(() -> drain(System.currentTimeMillis()), delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Sends the batch of queued announces the budget allows.
+   * @return number of announces sent
+   */
+  int drain(long now) { // Interface.process_announce_queue
+    List<Entry> batch = new ArrayList<>();
+    synchronized (this) {
+      scheduled = false;
+      refill(now);
+      double rate = rate();
+      while ((tokens > 0 || rate == 0) && !queue.isEmpty()) {
+        Entry entry = queue.pollFirst();
+        destinations.remove(entry.key);
+        if (now > entry.time + Reticulum.QUEUED_ANNOUNCE_LIFE * 1000L) {
+          dropped.increment();
+          continue;
+        }
+        tokens -= entry.raw.length;
+        batch.add(entry);
+      }
+      schedule();
+    }
+    for (Entry entry : batch) transmit(entry.raw);
+    return batch.size();
+  }
+
+  private void transmit(byte[] raw) {
+    if (Transport.transmit(anInterface, raw)) sent.increment();
+  }
+
+  public synchronized int size() {
+    return queue.size();
+  }
+
+  public long sent_count() {
+    return sent.sum();
+  }
+
+  /**
+   * @return announces merged with a queued announce for the same destination
+   */
+  public long coalesced_count() {
+    return coalesced.sum();
+  }
+
+  /**
+   * @return announces dropped from a full queue or expired while queued
+   */
+  public long dropped_count() {
+    return dropped.sum();
+  }
+
+  private static class Entry {
+    final ByteBuffer key;
+    final int hops;
+    final long time;
+    final long emitted;
+    final byte[] raw;
+    final long sequence;
+
+    Entry(ByteBuffer key, int hops, long time, long emitted, byte[] raw, long sequence) {
+      this.key = key;
+      this.hops = hops;
+      this.time = time;
+      this.emitted = emitted;
+      this.raw = raw;
+      this.sequence = sequence;
+    }
+  }
+
+}
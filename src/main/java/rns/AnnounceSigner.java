@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Announces many destinations at once. The destinations are split into a few chunks
+ * per worker, each worker signs its chunk and passes every announce to the announce
+ * queues of the interfaces as soon as it is signed.
+ */
+public class AnnounceSigner {
+
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final ExecutorService executor;
+  private final int threads;
+
+  /**
+   * @param threads number of signing workers, 0 signs on the calling thread
+   */
+  public AnnounceSigner(int threads) {
+    if (threads < 0) throw new IllegalArgumentException();
+    this.threads = threads;
+    if (threads == 0) {
+      executor = null;
+      return;
+    }
+    AtomicInteger counter = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "announce-signer-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Announces the destinations and waits until all are signed and queued.
+   * @param app_data app data of each destination, may return null
+   * @return number of announces sent, a destination that fails to announce is logged and skipped
+   */
+  public int announce(Collection<Destination> destinations, Function<Destination, byte[]> app_data) {
+    List<Destination> list = new ArrayList<>(destinations);
+    if (executor == null || list.size() < 2) return announce(list, app_data);
+    int chunks = Math.min(list.size(), threads * CHUNKS_PER_THREAD);
+    List<Future<Integer>> futures = new ArrayList<>(chunks);
+    for (int i = 0; i < chunks; i++) {
+      List<Destination> chunk = list.subList(list.size() * i / chunks, list.size() * (i + 1) / chunks);
+      futures.add(executor.submit(() -> announce(chunk, app_data)));
+    }
+    int sent = 0;
+    try {
+      for (Future<Integer> future : futures) sent += future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      for (Future<Integer> future : futures) future.cancel(true);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    return sent;
+  }
+
+  private static int announce(List<Destination> destinations, Function<Destination, byte[]> app_data) {
+    int sent = 0;
+    for (Destination destination : destinations) {
+      if (Thread.currentThread().isInterrupted()) break;
+      try {
+        destination.announce(app_data.apply(destination));
+        sent++;
+      } catch (RuntimeException e) {
+        Rns.logError("An error occurred while announcing " + destination.name);
+        Rns.trace_exception(e);
+      }
+    }
+    return sent;
+  }
+
+  public void shutdown() {
+    if (executor != null) executor.shutdown();
+  }
+
+}
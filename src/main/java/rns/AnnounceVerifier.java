@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Verifies announce signatures on a pool of worker threads and passes the
+ * valid announces to the sink one at a time, in the order they were submitted.
+ * When the work queue is full the submitting thread verifies the announce
+ * itself, which throttles the interface reader instead of dropping announces.
+ * After shutdown() the queued announces are still verified, later ones are dropped.
+ */
+public class AnnounceVerifier {
+
+  private final Consumer<Packet> sink;
+  private final ThreadPoolExecutor executor;
+  private final int threads;
+  private final long started = System.nanoTime();
+  private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock dispatch = new ReentrantLock();
+  private final AtomicInteger queue_depth = new AtomicInteger();
+  private final AtomicInteger active = new AtomicInteger();
+  private final LongAdder busy_nanos = new LongAdder();
+  private final LongAdder valid = new LongAdder();
+  private final LongAdder invalid = new LongAdder();
+
+  /**
+   * @param threads number of verification workers, 0 verifies on the submitting thread
+   * @param sink receives the valid announces in arrival order, never called concurrently
+   */
+  public AnnounceVerifier(int threads, Consumer<Packet> sink) {
+    if (threads < 0) throw new IllegalArgumentException();
+    this.sink = sink;
+    this.threads = threads;
+    if (threads == 0) {
+      executor = null;
+      return;
+    }
+    AtomicInteger counter = new AtomicInteger();
+    executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(threads * 64), r -> {
+      Thread thread = new Thread(r, "announce-verifier-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }, (task, pool) -> {
+      if (!pool.isShutdown()) {
+        task.run();
+      } else {
+        // the entry of a dropped announce must not hold back the ones submitted before the shutdown
+        Pending p = (Pending) task;
+        p.state = Pending.DROPPED;
+        drain();
+      }
+    });
+  }
+
+  public void submit(Packet packet) {
+    Pending p = new Pending(packet);
+    queue_depth.incrementAndGet();
+    pending.add(p);
+    if (executor == null) {
+      verify(p);
+    } else {
+      executor.execute(p);
+    }
+  }
+
+  private void verify(Pending p) {
+    active.incrementAndGet();
+    long t = System.nanoTime();
+    boolean result = false;
+    try {
+      result = Identity.verify_announce(p.packet, false);
+    } catch (RuntimeException e) {
+      Rns.logError("An error in the verification of an announce:");
+      Rns.trace_exception(e);
+    } finally {
+      long elapsed = System.nanoTime() - t;
+      busy_nanos.add(elapsed);
+      Metrics.verify.record(elapsed);
+      active.decrementAndGet();
+    }
+    (result ? valid : invalid).increment();
+    if (!result) Metrics.drop(Metrics.DROP_INVALID_SIGNATURE);
+    p.state = result ? Pending.VALID : Pending.INVALID;
+    drain();
+  }
+
+  private void drain() {
+    while (dispatch.tryLock()) {
+      try {
+        Pending head;
+        while ((head = pending.peek()) != null && head.state != Pending.PENDING) {
+          pending.poll();
+          queue_depth.decrementAndGet();
+          if (head.state == Pending.VALID) {
+            try {
+              sink.accept(head.packet);
+            } catch (RuntimeException e) {
+              Rns.logError("An error in the processing of an announce:");
+              Rns.trace_exception(e);
+            }
+          }
+        }
+      } finally {
+        dispatch.unlock();
+      }
+      // a worker that finished while the lock was held may have skipped its own drain
+      Pending head = pending.peek();
+      if (head == null || head.state == Pending.PENDING) return;
+    }
+  }
+
+  /**
+   * @return announces submitted but not yet dispatched or dropped
+   */
+  public int queue_depth() {
+    return queue_depth.get();
+  }
+
+  public int active_workers() {
+    return active.get();
+  }
+
+  /**
+   * @return share of the worker capacity spent verifying since the verifier was created, 0 to 1
+   */
+  public double utilization() {
+    long elapsed = System.nanoTime() - started;
+    return elapsed <= 0 ? 0 : (double) busy_nanos.sum() / elapsed / Math.max(threads, 1);
+  }
+
+  public long valid_count() {
+    return valid.sum();
+  }
+
+  public long invalid_count() {
+    return invalid.sum();
+  }
+
+  public void shutdown() {
+    if (executor != null) executor.shutdown();
+  }
+
+  private class Pending implements Runnable {
+    static final int PENDING = 0;
+    static final int VALID = 1;
+    static final int INVALID = 2;
+    static final int DROPPED = 3;
+    final Packet packet;
+    volatile int state = PENDING;
+
+    Pending(Packet packet) {
+      this.packet = packet;
+    }
+
+    @Override
+    public void run() {
+      verify(this);
+    }
+  }
+
+}
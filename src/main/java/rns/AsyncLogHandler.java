@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Puts log records in a bounded ring buffer and publishes them to the delegate
+ * handler on a background thread, so formatting and console or file I/O never run
+ * on the thread that logs. When the buffer is full the record is dropped and counted.
+ */
+public class AsyncLogHandler extends Handler {
+
+  private final Handler delegate;
+  private final BlockingQueue<LogRecord> queue;
+  private final LongAdder dropped = new LongAdder();
+  private final Thread thread;
+  private volatile boolean closed;
+
+  public AsyncLogHandler(Handler delegate, int capacity) {
+    this.delegate = delegate;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    thread = new Thread(this::run, "rns-log");
+    thread.setDaemon(true);
+    thread.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+  }
+
+  public Handler delegate() {
+    return delegate;
+  }
+
+  private void run() {
+    try {
+      while (!closed) delegate.publish(queue.take());
+    } catch (InterruptedException ignore) {
+      // closed
+    }
+  }
+
+  @Override
+  public void publish(LogRecord record) {
+    if (closed || !isLoggable(record)) return;
+    // the caller can not be inferred on the logging thread
+    record.setSourceClassName(null);
+    if (!queue.offer(record)) dropped.increment();
+  }
+
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  @Override
+  public void flush() {
+    for (LogRecord record; (record = queue.poll()) != null; ) delegate.publish(record);
+    delegate.flush();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    thread.interrupt();
+    try {
+      // the record being published is finished before the rest is flushed in order
+      thread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+    delegate.close();
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of equally sized byte arrays for frames that are received or sent.
+ * An empty pool allocates, a full pool lets the released array be collected,
+ * so the pool never blocks and only caps the number of idle arrays.
+ */
+public class BufferPool {
+
+  private final int buffer_size;
+  private final BlockingQueue<byte[]> buffers;
+  private final LongAdder allocated = new LongAdder();
+
+  public BufferPool(int buffer_size, int capacity) {
+    if (buffer_size <= 0) throw new IllegalArgumentException();
+    this.buffer_size = buffer_size;
+    this.buffers = new ArrayBlockingQueue<>(capacity);
+  }
+
+  public int buffer_size() {
+    return buffer_size;
+  }
+
+  /**
+   * @return array of buffer_size bytes, its content is undefined
+   */
+  public byte[] acquire() {
+    byte[] buffer = buffers.poll();
+    if (buffer != null) return buffer;
+    allocated.increment();
+    return new byte[buffer_size];
+  }
+
+  /**
+   * Returns the array to the pool, arrays of another size are ignored.
+   */
+  public void release(byte[] buffer) {
+    if (buffer != null && buffer.length == buffer_size) buffers.offer(buffer);
+  }
+
+  /**
+   * @return number of arrays allocated because the pool was empty
+   */
+  public long allocated() {
+    return allocated.sum();
+  }
+
+  public int idle() {
+    return buffers.size();
+  }
+
+}
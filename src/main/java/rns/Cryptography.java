@@ -15,14 +15,177 @@
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
 
+
 package rns;
 
 import ab.SignatureUtils;
 
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
 public class Cryptography {
 
+  static final int HASH_LENGTH = 32;
+
+  private static final ThreadLocal<Mac> HMAC_SHA256 = ThreadLocal.withInitial(() -> {
+    try {
+      return Mac.getInstance("HmacSHA256");
+    } catch (GeneralSecurityException e) {
+      throw new Error(e);
+    }
+  });
+
+  private static final ThreadLocal<Cipher> AES_CBC = ThreadLocal.withInitial(() -> {
+    try {
+      return Cipher.getInstance("AES/CBC/PKCS5Padding");
+    } catch (GeneralSecurityException e) {
+      throw new Error(e);
+    }
+  });
+
   public static byte[] sha256(byte[] bytes) {
     return SignatureUtils.sha256(bytes);
   }
 
+  /**
+   * @return per-thread HMAC-SHA256 initialized with the key, must not be shared with other threads
+   */
+  static Mac hmac_sha256(SecretKeySpec key) {
+    Mac mac = HMAC_SHA256.get();
+    try {
+      mac.init(key);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalArgumentException(e);
+    }
+    return mac;
+  }
+
+  public static byte[] hmac_sha256(byte[] key, byte[] data) {
+    return hmac_sha256(new SecretKeySpec(key, "HmacSHA256")).doFinal(data);
+  }
+
+  /**
+   * HKDF with HMAC-SHA256, an empty salt is replaced with 32 zero bytes.
+   */
+  public static byte[] hkdf(int length, byte[] derive_from, byte[] salt, byte[] context) {
+    if (length < 1) throw new IllegalArgumentException("Invalid output key length");
+    if (derive_from == null || derive_from.length == 0) throw new IllegalArgumentException("Cannot derive key from empty input material");
+    if (salt == null || salt.length == 0) salt = new byte[HASH_LENGTH];
+    if (context == null) context = new byte[0];
+    Mac mac = hmac_sha256(new SecretKeySpec(salt, "HmacSHA256"));
+    byte[] pseudorandom_key = mac.doFinal(derive_from);
+    mac = hmac_sha256(new SecretKeySpec(pseudorandom_key, "HmacSHA256"));
+    byte[] derived = new byte[(length + HASH_LENGTH - 1) / HASH_LENGTH * HASH_LENGTH];
+    for (int i = 0; i * HASH_LENGTH < length; i++) {
+      if (i > 0) mac.update(derived, (i - 1) * HASH_LENGTH, HASH_LENGTH);
+      mac.update(context);
+      mac.update((byte) (i + 1));
+      try {
+        mac.doFinal(derived, i * HASH_LENGTH);
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return length == derived.length ? derived : Arrays.copyOf(derived, length);
+  }
+
+  /**
+   * Fernet-like token, iv + AES-CBC ciphertext + HMAC-SHA256 of both, without the version and timestamp
+   * fields of Fernet. A 64-byte key is the HMAC key followed by an AES-256 key, a 32-byte key selects AES-128.
+   * The key specs are built once, the Cipher and Mac instances are per thread.
+   */
+  public static class Token {
+    public static final int IV_LENGTH = 16;
+    public static final int TOKEN_OVERHEAD = IV_LENGTH + HASH_LENGTH;
+
+    private final SecretKeySpec signing_key;
+    private final SecretKeySpec encryption_key;
+
+    public Token(byte[] key) {
+      if (key.length != 32 && key.length != 64) {
+        throw new IllegalArgumentException("Token key must be 128 or 256 bits, not " + key.length * 4);
+      }
+      signing_key = new SecretKeySpec(key, 0, key.length / 2, "HmacSHA256");
+      encryption_key = new SecretKeySpec(key, key.length / 2, key.length / 2, "AES");
+    }
+
+    public static byte[] generate_key() {
+      byte[] key = new byte[64];
+      Identity.random.nextBytes(key);
+      return key;
+    }
+
+    /**
+     * @return length of the token of a plaintext, PKCS7 padding always adds 1 to 16 bytes
+     */
+    public static int token_length(int plaintext_length) {
+      return IV_LENGTH + (plaintext_length / 16 + 1) * 16 + HASH_LENGTH;
+    }
+
+    public byte[] encrypt(byte[] data) {
+      byte[] token = new byte[token_length(data.length)];
+      encrypt(data, 0, data.length, token, 0);
+      return token;
+    }
+
+    /**
+     * Encrypts the data into the token array, which must hold token_length bytes from token_offset.
+     * @return token length
+     */
+    public int encrypt(byte[] data, int offset, int length, byte[] token, int token_offset) {
+      byte[] iv = new byte[IV_LENGTH];
+      Identity.random.nextBytes(iv);
+      return encrypt(data, offset, length, token, token_offset, iv);
+    }
+
+    int encrypt(byte[] data, int offset, int length, byte[] token, int token_offset, byte[] iv) {
+      try {
+        Cipher cipher = AES_CBC.get();
+        cipher.init(Cipher.ENCRYPT_MODE, encryption_key, new IvParameterSpec(iv));
+        System.arraycopy(iv, 0, token, token_offset, IV_LENGTH);
+        int ciphertext = cipher.doFinal(data, offset, length, token, token_offset + IV_LENGTH);
+        Mac mac = hmac_sha256(signing_key);
+        mac.update(token, token_offset, IV_LENGTH + ciphertext);
+        mac.doFinal(token, token_offset + IV_LENGTH + ciphertext);
+        return IV_LENGTH + ciphertext + HASH_LENGTH;
+      } catch (GeneralSecurityException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+
+    public byte[] decrypt(byte[] token) {
+      byte[] plaintext = new byte[Math.max(token.length - TOKEN_OVERHEAD, 0)];
+      int length = decrypt(token, 0, token.length, plaintext, 0);
+      return length == plaintext.length ? plaintext : Arrays.copyOf(plaintext, length);
+    }
+
+    /**
+     * Verifies and decrypts the token into the plaintext array, which must hold length - TOKEN_OVERHEAD bytes.
+     * The plaintext may overlap the token.
+     * @return plaintext length
+     * @throws IllegalArgumentException if the token is malformed or its HMAC is invalid
+     */
+    public int decrypt(byte[] token, int offset, int length, byte[] plaintext, int plaintext_offset) {
+      int ciphertext = length - TOKEN_OVERHEAD;
+      if (ciphertext <= 0 || ciphertext % 16 != 0) throw new IllegalArgumentException("Cannot verify HMAC on invalid token");
+      Mac mac = hmac_sha256(signing_key);
+      mac.update(token, offset, IV_LENGTH + ciphertext);
+      byte[] expected = mac.doFinal();
+      int difference = 0;
+      for (int i = 0; i < HASH_LENGTH; i++) difference |= expected[i] ^ token[offset + IV_LENGTH + ciphertext + i];
+      if (difference != 0) throw new IllegalArgumentException("Token HMAC was invalid");
+      try {
+        Cipher cipher = AES_CBC.get();
+        cipher.init(Cipher.DECRYPT_MODE, encryption_key, new IvParameterSpec(token, offset, IV_LENGTH));
+        return cipher.doFinal(token, offset + IV_LENGTH, ciphertext, plaintext, plaintext_offset);
+      } catch (GeneralSecurityException e) {
+        throw new IllegalArgumentException("Could not decrypt token", e);
+      }
+    }
+  }
+
 }
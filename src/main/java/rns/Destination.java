@@ -20,6 +20,10 @@ package rns;
 import ab.Utils;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class Destination {
   // types
@@ -40,23 +44,239 @@ public class Destination {
   int type;
   String app_name;
   String[] aspects;
+  int proof_strategy = PROVE_NONE;
   public byte[] hash;
+  public byte[] name_hash;
   public String name;
+  public String hexhash;
+  // destination hash + public key + name hash, the part of the signed announce data that never changes
+  private byte[] announce_prefix;
+  // symmetric key of a GROUP destination
+  byte[] prv_bytes;
+  private Cryptography.Token prv;
+  volatile boolean accept_link_requests = true;
+  volatile Consumer<Link> link_established_callback;
+  volatile Consumer<Link> link_closed_callback;
+  volatile BiConsumer<byte[], Packet> packet_callback;
 
-  public Destination(Identity identity, int direction, int type, String app_name, String... aspects) {
+  public Destination(Identity identity, int direction, int type, String app_name, String... aspects) { // 139
+    if (direction != IN && direction != OUT) throw new IllegalArgumentException("Unknown destination direction");
+    if (identity != null && type == PLAIN) {
+      throw new IllegalArgumentException("Selected destination type PLAIN cannot hold an identity");
+    }
+    if (identity == null && direction == IN && type != PLAIN) {
+      identity = new Identity(true);
+      aspects = Arrays.copyOf(aspects, aspects.length + 1);
+      aspects[aspects.length - 1] = identity.hexhash;
+    }
     this.identity = identity;
     this.direction = direction;
     this.type = type;
     this.app_name = app_name;
     this.aspects = aspects;
+    this.name = expand_name(identity, app_name, aspects);
+    this.hash = hash(identity, app_name, aspects);
+    this.name_hash = name_hash(app_name, aspects);
+    this.hexhash = Utils.toHexLowerCase(hash);
+    if (direction == IN) Transport.register_destination(this);
+  }
+
+  /**
+   * With PROVE_ALL every data packet to the destination is proven to the sender,
+   * PROVE_APP is accepted but sends no proofs, there is no callback that asks the application.
+   */
+  public void set_proof_strategy(int proof_strategy) { // 459
+    if (proof_strategy < PROVE_NONE || proof_strategy > PROVE_ALL) {
+      throw new IllegalArgumentException("Unsupported proof strategy");
+    }
+    this.proof_strategy = proof_strategy;
+  }
+
+  /**
+   * @param callback called with every link established to this destination
+   */
+  public void set_link_established_callback(Consumer<Link> callback) { // 392
+    link_established_callback = callback;
+  }
+
+  public void set_link_closed_callback(Consumer<Link> callback) {
+    link_closed_callback = callback;
+  }
+
+  /**
+   * @param callback called with the decrypted data and a copy of the packet for every data packet
+   *     to the destination, both can be kept after the call
+   */
+  public void set_packet_callback(BiConsumer<byte[], Packet> callback) { // 401
+    packet_callback = callback;
+  }
+
+  public void accepts_links(boolean accepts) { // 378
+    accept_link_requests = accepts;
+  }
+
+  /**
+   * Sends the implicit proof of a received packet, the signature of its hash, to the proof destination
+   * of the packet over the interface it was received on.
+   */
+  void prove(Packet packet) { // Packet 379, Identity 818
+    if (identity == null || identity.prv_bytes == null) return;
+    byte[] packet_hash = packet.get_hash();
+    PacketBuilder proof = new PacketBuilder();
+    try {
+      proof.destination_hash(Arrays.copyOf(packet_hash, Packet.DST_LEN)).destination_type(SINGLE)
+          .packet_type(Packet.PROOF).data(identity.sign(packet_hash));
+      Transport.outbound(proof, new byte[32], packet.receiving_interface);
+    } finally {
+      proof.release();
+    }
+  }
+
+  /**
+   * Handles a packet addressed to this IN destination, called by Transport while the receive buffer is valid.
+   * @return true if the packet was accepted
+   */
+  boolean receive(Packet packet) { // 480
+    if (packet.packet_type == Packet.LINKREQUEST) {
+      return accept_link_requests && Link.validate_request(this, packet) != null;
+    }
+    if (packet.packet_type != Packet.DATA) return false;
+    byte[] plaintext = decrypt(packet.get_data());
+    if (plaintext == null) return false;
+    if (proof_strategy == PROVE_ALL) prove(packet);
+    BiConsumer<byte[], Packet> callback = packet_callback;
+    if (callback != null) {
+      try {
+        // the packet is in a pooled receive buffer, which is reused when Transport returns
+        callback.accept(plaintext, packet.detach());
+      } catch (RuntimeException e) {
+        Rns.logError("Error while executing receive callback from " + this);
+        Rns.trace_exception(e);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Creates a new symmetric key for a GROUP destination.
+   */
+  public void create_keys() { // 529
+    if (type != GROUP) throw new IllegalStateException("Only GROUP destinations hold a symmetric key");
+    load_private_key(Cryptography.Token.generate_key());
   }
 
-  public void set_proof_strategy(int proof_strategy) {
+  public byte[] get_private_key() { // 546
+    if (type != GROUP) throw new IllegalStateException("Only GROUP destinations hold a symmetric key");
+    return prv_bytes;
+  }
 
+  public void load_private_key(byte[] key) { // 561
+    if (type != GROUP) throw new IllegalStateException("Only GROUP destinations hold a symmetric key");
+    prv = new Cryptography.Token(key);
+    prv_bytes = key.clone();
   }
 
+  /**
+   * Encrypts the plaintext for the destination, PLAIN destinations are not encrypted.
+   * A SINGLE destination is encrypted for its latest known ratchet, if it announced one.
+   */
+  public byte[] encrypt(byte[] plaintext) { // 621
+    if (type == PLAIN) return plaintext;
+    if (type == SINGLE && identity != null) return identity.encrypt(plaintext, Identity.get_ratchet(hash));
+    if (type == GROUP) {
+      Cryptography.Token prv = this.prv;
+      if (prv == null) throw new IllegalStateException("No private key held by GROUP destination. Did you create or load one?");
+      return prv.encrypt(plaintext);
+    }
+    throw new IllegalStateException("Destination " + name + " can not encrypt");
+  }
+
+  /**
+   * @return the plaintext or null if the ciphertext could not be decrypted
+   */
+  public byte[] decrypt(byte[] ciphertext) { // 647
+    if (type == PLAIN) return ciphertext;
+    if (type == SINGLE && identity != null) return identity.decrypt(ciphertext);
+    if (type == GROUP) {
+      Cryptography.Token prv = this.prv;
+      if (prv == null) throw new IllegalStateException("No private key held by GROUP destination. Did you create or load one?");
+      try {
+        return prv.decrypt(ciphertext);
+      } catch (IllegalArgumentException e) {
+        Rns.log(() -> "The GROUP destination could not decrypt data: " + e.getMessage(), Rns.LOG_DEBUG);
+        return null;
+      }
+    }
+    throw new IllegalStateException("Destination " + name + " can not decrypt");
+  }
+
+  /**
+   * Announces the destination on all interfaces.
+   */
   public void announce(byte[] app_data) {
+    announce(app_data, false);
+  }
 
+  public void announce(byte[] app_data, boolean path_response) { // 252
+    byte[] raw = announce_packet(app_data, path_response, System.currentTimeMillis() / 1000);
+    Transport.outbound_announce(raw);
+  }
+
+  /**
+   * Creates and signs an announce frame.
+   * @param now emission time in seconds, carried in the random hash
+   */
+  byte[] announce_packet(byte[] app_data, boolean path_response, long now) {
+    if (type != SINGLE) throw new IllegalStateException("Only SINGLE destination types can be announced");
+    if (direction != IN) throw new IllegalStateException("Only IN destination types can be announced");
+    byte[] prefix = announce_prefix;
+    if (prefix == null) {
+      prefix = Utils.concatenate(hash, identity.get_public_key(), name_hash);
+      announce_prefix = prefix;
+    }
+    int app_data_length = app_data == null ? 0 : app_data.length;
+    int random_hash_length = Identity.RANDOM_HASH_LENGTH / 8;
+    int sig_length = Identity.SIGLENGTH / 8;
+    // signed data is destination_hash + public_key + name_hash + random_hash + app_data
+    byte[] signed_data = Arrays.copyOf(prefix, prefix.length + random_hash_length + app_data_length);
+    int random_hash = prefix.length;
+    byte[] random_bytes = new byte[random_hash_length / 2];
+    Identity.random.nextBytes(random_bytes);
+    System.arraycopy(random_bytes, 0, signed_data, random_hash, random_bytes.length);
+    for (int i = 0; i < random_hash_length / 2; i++) {
+      signed_data[random_hash + random_hash_length - 1 - i] = (byte) (now >> 8 * i);
+    }
+    if (app_data != null) System.arraycopy(app_data, 0, signed_data, random_hash + random_hash_length, app_data_length);
+
+    // announce frame is the header, public_key + name_hash + random_hash + signature + app_data
+    int header = 2 + Packet.DST_LEN + 1;
+    int announce_data_length = prefix.length - Packet.DST_LEN + random_hash_length + sig_length + app_data_length;
+    if (header + announce_data_length > Reticulum.MTU) {
+      throw new IllegalStateException("Announce size exceeds MTU of " + Reticulum.MTU + " bytes");
+    }
+    byte[] raw = new byte[header + announce_data_length];
+    raw[0] = (byte) (Packet.HEADER_1 << 6 | Transport.BROADCAST << 4 | type << 2 | Packet.ANNOUNCE);
+    System.arraycopy(hash, 0, raw, 2, Packet.DST_LEN);
+    raw[2 + Packet.DST_LEN] = (byte) (path_response ? Packet.PATH_RESPONSE : Packet.NONE);
+    int signature = header + prefix.length - Packet.DST_LEN + random_hash_length;
+    System.arraycopy(signed_data, Packet.DST_LEN, raw, header, signature - header);
+    identity.sign(signed_data, 0, signed_data.length, raw, signature);
+    if (app_data != null) System.arraycopy(app_data, 0, raw, signature + sig_length, app_data_length);
+    return raw;
+  }
+
+  /**
+   * Announces many destinations, signing on the Transport announce signer pool.
+   * @param app_data app data of each destination, may return null
+   * @return number of announces sent
+   */
+  public static int announce_all(Collection<Destination> destinations, Function<Destination, byte[]> app_data) {
+    return Transport.announce_signer().announce(destinations, app_data);
+  }
+
+  @Override
+  public String toString() {
+    return "<" + name + ":" + hexhash + ">";
   }
 
   static String expand_name(Identity identity, String app_name, String[] aspects) { // 96
@@ -71,9 +291,13 @@ public class Destination {
     return name.toString();
   }
 
-  static byte[] hash(Identity identity, String app_name, String[] aspects) { // 116
+  static byte[] name_hash(String app_name, String[] aspects) {
     byte[] fullHash = Identity.full_hash(Destination.expand_name(null, app_name, aspects).getBytes());
-    byte[] name_hash = Arrays.copyOf(fullHash, Identity.NAME_HASH_LENGTH / 8);
+    return Arrays.copyOf(fullHash, Identity.NAME_HASH_LENGTH / 8);
+  }
+
+  static byte[] hash(Identity identity, String app_name, String[] aspects) { // 116
+    byte[] name_hash = name_hash(app_name, aspects);
     byte[] addr_hash_material = name_hash;
     if (identity != null) addr_hash_material = Utils.concatenate(addr_hash_material, identity.hash);
     return Arrays.copyOf(rns.Identity.full_hash(addr_hash_material), rns.Reticulum.TRUNCATED_HASHLENGTH / 8);
@@ -83,6 +307,14 @@ public class Destination {
     return full_name.split("\\.");
   }
 
+  /**
+   * @return name hash of a full destination name without identity, like an announce handler aspect filter
+   */
+  public static byte[] name_hash_from_name(String full_name) {
+    String[] appNameAspects = app_and_aspects_from_name(full_name);
+    return Destination.name_hash(appNameAspects[0], Arrays.copyOfRange(appNameAspects, 1, appNameAspects.length));
+  }
+
   public static byte[] hash_from_name_and_identity(String full_name, Identity identity) { // 141
     String[] appNameAspects = app_and_aspects_from_name(full_name);
     return Destination.hash(identity, appNameAspects[0], Arrays.copyOfRange(appNameAspects, 1, appNameAspects.length));
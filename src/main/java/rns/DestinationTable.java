@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Known destinations keyed by the 16-byte destination hash, held as two longs.
+ *
+ * Every entry is a single packed record, packet hash + public key + app data,
+ * in a StripedTable ordered by the timestamp of the record. When a stripe reaches
+ * its share of max_size a sampled oldest entry is evicted, expire() removes entries by age.
+ */
+public class DestinationTable {
+
+  public static final int PACKET_HASH = 0;
+  public static final int PUBLIC_KEY = 32;
+  public static final int APP_DATA = PUBLIC_KEY + Identity.KEYSIZE / 8;
+
+  private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+  private final StripedTable<byte[]> table;
+
+  public DestinationTable(int max_size) {
+    table = new StripedTable<>(max_size);
+  }
+
+  public void set_max_size(int max_size) {
+    table.set_max_size(max_size);
+  }
+
+  static long key0(byte[] hash, int offset) {
+    return (long) LONG.get(hash, offset);
+  }
+
+  static long key1(byte[] hash, int offset) {
+    return (long) LONG.get(hash, offset + 8);
+  }
+
+  public static byte[] record(byte[] packet_hash, byte[] public_key, byte[] app_data) {
+    if (public_key.length != APP_DATA - PUBLIC_KEY) throw new IllegalArgumentException();
+    int app_data_length = app_data == null ? 0 : app_data.length;
+    byte[] record = new byte[APP_DATA + app_data_length];
+    if (packet_hash != null) System.arraycopy(packet_hash, 0, record, PACKET_HASH, PUBLIC_KEY - PACKET_HASH);
+    System.arraycopy(public_key, 0, record, PUBLIC_KEY, public_key.length);
+    if (app_data != null) System.arraycopy(app_data, 0, record, APP_DATA, app_data_length);
+    return record;
+  }
+
+  public void put(byte[] destination_hash, long timestamp, byte[] record) {
+    table.put(key0(destination_hash, 0), key1(destination_hash, 0), timestamp, record);
+  }
+
+  /**
+   * Stores the record unless the table holds a newer one for the destination.
+   */
+  public void put_if_newer(byte[] destination_hash, int offset, long timestamp, byte[] record) {
+    table.put(key0(destination_hash, offset), key1(destination_hash, offset), timestamp, record,
+        (known_timestamp, known) -> known_timestamp <= timestamp);
+  }
+
+  /**
+   * @return packed record, the returned array must not be modified
+   */
+  public byte[] get(byte[] destination_hash) {
+    return get(destination_hash, 0);
+  }
+
+  public byte[] get(byte[] destination_hash, int offset) {
+    return table.get(key0(destination_hash, offset), key1(destination_hash, offset));
+  }
+
+  public boolean remove(byte[] destination_hash) {
+    return table.remove(key0(destination_hash, 0), key1(destination_hash, 0));
+  }
+
+  /**
+   * Removes the entries stored before the timestamp.
+   * @return number of removed entries
+   */
+  public int expire(long timestamp) {
+    return table.remove_before(timestamp);
+  }
+
+  public int size() {
+    return table.size();
+  }
+
+  public interface Visitor {
+    void visit(long k0, long k1, long timestamp, byte[] record);
+  }
+
+  /**
+   * Visits all entries stripe by stripe, each stripe is read under its lock.
+   */
+  public void for_each(Visitor visitor) {
+    table.for_each(visitor::visit);
+  }
+
+  public static byte[] destination_hash(long k0, long k1) {
+    return ByteBuffer.allocate(16).putLong(k0).putLong(k1).array();
+  }
+
+}
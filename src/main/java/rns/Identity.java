@@ -19,17 +19,26 @@ package rns;
 
 import ab.SignatureUtils;
 import ab.Utils;
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
+import org.bouncycastle.crypto.params.X25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
+import org.bouncycastle.math.ec.rfc8032.Ed25519;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
+import java.security.SecureRandom;
 import java.security.Signature;
 import java.security.SignatureException;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
 public class Identity {
 
@@ -39,10 +48,22 @@ public class Identity {
   public static final int RANDOM_HASH_LENGTH = 80;
   public static final int SIGLENGTH = KEYSIZE;
   public static final int TRUNCATED_HASHLENGTH = rns.Reticulum.TRUNCATED_HASHLENGTH;
+  public static final int DERIVED_KEY_LENGTH = 512 / 8;
+
+  public static final int KNOWN_DESTINATIONS_MAXSIZE = 1 << 20;
+  public static final int RATCHET_EXPIRY = 60 * 60 * 24 * 30;
 
   // Storage
-  static Map<String, byte[][]> known_destinations = new HashMap<>();
-  static Map<String, byte[][]> known_ratchets = new HashMap<>();
+  static DestinationTable known_destinations = new DestinationTable(KNOWN_DESTINATIONS_MAXSIZE);
+  static final byte STORAGE_DESTINATION = 1;
+  static final byte STORAGE_RATCHET = 2;
+  // one thread appends all the records, the announce verifier threads only queue them
+  static final Executor storage_writer = StorageWriter.daemon("identity-storage-writer");
+  static final StorageWriter known_destinations_writer = new StorageWriter(STORAGE_DESTINATION, storage_writer);
+  static final RatchetStore known_ratchets =
+      new RatchetStore(KNOWN_DESTINATIONS_MAXSIZE, RATCHET_EXPIRY * 1000L, storage_writer);
+  static MappedLog storage;
+  static volatile boolean storage_loaded = true;
 
   byte[] prv_bytes;
   byte[] sig_prv_bytes;
@@ -54,28 +75,154 @@ public class Identity {
   String hexhash;
   byte[] app_data;
 
+  // the keys are decoded once, when they are loaded
+  private Ed25519PrivateKeyParameters sig_prv;
+  private Ed25519PublicKeyParameters sig_pub;
+  private X25519PrivateKeyParameters prv;
+  private X25519PublicKeyParameters pub;
+  static final SecureRandom random = new SecureRandom();
+
   public static void remember(byte[] packet_hash, byte[] destination_hash, byte[] public_key, byte[] app_data) { // 99
     if (public_key.length != Identity.KEYSIZE / 8) throw new IllegalStateException();
-    known_destinations.put(Utils.toHex(destination_hash), new byte[][]{{}, packet_hash, public_key, app_data});
+    long timestamp = System.currentTimeMillis();
+    byte[] record = DestinationTable.record(packet_hash, public_key, app_data);
+    known_destinations.put(destination_hash, timestamp, record);
+    known_destinations_writer.submit(destination_hash, timestamp, record);
+  }
+
+  /**
+   * The ratchet is written to storage in the background, see RatchetStore.
+   */
+  static void remember_ratchet(byte[] destination_hash, byte[] ratchet) { // 303
+    known_ratchets.remember(destination_hash, ratchet, System.currentTimeMillis());
   }
 
+  public static byte[] get_ratchet(byte[] destination_hash) { // 357
+    return known_ratchets.get(destination_hash);
+  }
+
+  /**
+   * Maps the storage log and indexes it in the background, newest records first,
+   * so recall serves the recently announced destinations right away and the older
+   * ones as the index fills up. storage_loaded is set when the index is complete.
+   * A log mapped by an earlier call is written out and closed first.
+   */
+  static synchronized void load_known_destinations(Path storagepath) { // 182
+    try {
+      MappedLog previous = storage;
+      if (previous != null) {
+        known_destinations_writer.flush();
+        known_ratchets.flush();
+        known_destinations_writer.storage(null);
+        known_ratchets.writer.storage(null);
+        storage = null;
+        previous.close();
+      }
+      Files.createDirectories(storagepath);
+      storage = new MappedLog(storagepath.resolve("known_destinations.log"));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    known_destinations_writer.storage(storage);
+    known_ratchets.writer.storage(storage);
+    storage_loaded = false;
+    MappedLog log = storage;
+    Thread thread = new Thread(() -> {
+      log.read_backward((type, timestamp, payload) -> {
+        byte[] destination_hash = new byte[Reticulum.TRUNCATED_HASHLENGTH / 8];
+        byte[] record = new byte[payload.remaining() - destination_hash.length];
+        payload.get(destination_hash).get(record);
+        if (type == STORAGE_DESTINATION) known_destinations.put_if_newer(destination_hash, 0, timestamp, record);
+        if (type == STORAGE_RATCHET) known_ratchets.load(destination_hash, timestamp, record);
+        return true;
+      });
+      storage_loaded = true;
+      Rns.log("Loaded {0} known destinations from storage", Rns.LOG_VERBOSE, known_destinations.size());
+    }, "identity-storage");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static void write_table(MappedLog log, byte type, DestinationTable table) throws IOException {
+    IOException[] exception = new IOException[1];
+    table.for_each((k0, k1, timestamp, record) -> {
+      if (exception[0] != null) return;
+      byte[] destination_hash = DestinationTable.destination_hash(k0, k1);
+      try {
+        log.append(type, timestamp, destination_hash, 0, destination_hash.length, record, 0, record.length);
+      } catch (IOException e) {
+        exception[0] = e;
+      }
+    });
+    if (exception[0] != null) throw exception[0];
+  }
+
+  /**
+   * Expires the old ratchets, writes the pending records, flushes the storage log and compacts it to the live entries when most of it is superseded.
+   */
+  static synchronized void persist_data() { // 224
+    MappedLog storage = Identity.storage;
+    if (storage == null || !storage_loaded) return;
+    known_ratchets.expire(System.currentTimeMillis());
+    known_destinations_writer.flush();
+    known_ratchets.flush();
+    try {
+      storage.force();
+      if (storage.count() < 2L * (known_destinations.size() + known_ratchets.size()) + 1000) return;
+      storage.compact(log -> {
+        write_table(log, STORAGE_DESTINATION, known_destinations);
+        write_table(log, STORAGE_RATCHET, known_ratchets.table());
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * While the storage log is still being indexed a destination missing from known_destinations
+   * is looked up in the log, so a persisted destination is recalled before the index reaches it.
+   * @throws IllegalStateException if the destination is not known
+   */
   public static Identity recall(byte[] target_hash, boolean from_identity_hash) { // 107
     if (from_identity_hash) throw new IllegalStateException();
-    byte[][] identity_data = known_destinations.get(Utils.toHex(target_hash));
+    byte[] identity_data = known_destinations.get(target_hash);
+    if (identity_data == null && !storage_loaded) identity_data = scan_storage(target_hash);
     if (identity_data != null) {
       Identity identity = new Identity();
-      identity.load_public_key(identity_data[2]);
-      identity.app_data = identity_data[3];
+      identity.load_public_key(Arrays.copyOfRange(identity_data, DestinationTable.PUBLIC_KEY, DestinationTable.APP_DATA));
+      identity.app_data = Arrays.copyOfRange(identity_data, DestinationTable.APP_DATA, identity_data.length);
       return identity;
 
     }
     throw new IllegalStateException();
   }
 
+  /**
+   * @return newest record of the destination in the storage log, it is added to known_destinations
+   */
+  private static byte[] scan_storage(byte[] destination_hash) {
+    MappedLog log = storage;
+    if (log == null) return null;
+    byte[][] found = new byte[1][];
+    log.read_backward((type, timestamp, payload) -> {
+      if (type != STORAGE_DESTINATION) return true;
+      for (int i = 0; i < destination_hash.length; i++) {
+        if (payload.get(i) != destination_hash[i]) return true;
+      }
+      byte[] record = new byte[payload.remaining() - destination_hash.length];
+      payload.position(destination_hash.length);
+      payload.get(record);
+      known_destinations.put_if_newer(destination_hash, 0, timestamp, record);
+      found[0] = record;
+      return false;
+    });
+    return found[0];
+  }
+
   static byte[] recall_app_data(byte[] destination_hash) { // 149
-    byte[][] identity_data = known_destinations.get(Utils.toHex(destination_hash));
+    byte[] identity_data = known_destinations.get(destination_hash);
     if (identity_data == null) return null;
-    return identity_data[3];
+    return Arrays.copyOfRange(identity_data, DestinationTable.APP_DATA, identity_data.length);
   }
 
   public static byte[] full_hash(byte[] data) { // 239
@@ -87,65 +234,106 @@ public class Identity {
   }
 
   public static boolean validate_announce(Packet packet, boolean only_validate_signature) { // 391
+    if (!verify_announce(packet, only_validate_signature)) return false;
+    if (!only_validate_signature) remember_announce(packet);
+    return true;
+  }
+
+  /**
+   * Side effect free part of validate_announce, safe to run on any thread.
+   */
+  static boolean verify_announce(Packet packet, boolean only_validate_signature) {
     if (packet.packet_type != Packet.ANNOUNCE) throw new IllegalStateException();
     int keysize = KEYSIZE / 8;
-    int ratchetsize = RATCHETSIZE / 8;
     int name_hash_len = NAME_HASH_LENGTH / 8;
-    int random_hash_len = RANDOM_HASH_LENGTH / 8;
     int sig_len = SIGLENGTH / 8;
-    byte[] destination_hash = packet.destination_hash;
-    int i = 0;
-    byte[] public_key = Arrays.copyOfRange(packet.data, i, i + keysize);
-    i += keysize;
-    byte[] name_hash = Arrays.copyOfRange(packet.data, i, i + name_hash_len);
-    i += name_hash_len;
-    byte[] random_hash = Arrays.copyOfRange(packet.data, i, i + random_hash_len);
-    i += random_hash_len;
-    byte[] ratchet = new byte[0];
-    if (packet.context_flag == Packet.FLAG_SET) {
-      ratchet = Arrays.copyOfRange(packet.data, i, i + ratchetsize);
-      i += ratchetsize;
-    }
-    byte[] signature = Arrays.copyOfRange(packet.data, i, i + sig_len);
-    i += sig_len;
-    byte[] app_data = Arrays.copyOfRange(packet.data, i, packet.data.length);
-
-    byte[] signed_data = Utils.concatenate(destination_hash, public_key, name_hash, random_hash, ratchet, app_data);
+    PacketView view = packet.view();
+    byte[] raw = view.raw();
+    int destination_hash = view.destination_hash_offset();
+    int public_key = view.data_offset();
+    int name_hash = public_key + keysize;
+    int signature = announce_signature_offset(packet);
+    int app_data = signature + sig_len;
+    int end = view.offset() + view.length();
+    if (app_data > end) return false;
 
     Identity announced_identity = new Identity(false);
-    announced_identity.load_public_key(public_key);
+    announced_identity.load_public_key(Arrays.copyOfRange(raw, public_key, name_hash));
 
-    if (!announced_identity.validate(signature, signed_data)) {
-      Rns.log("Received invalid announce for " + Rns.prettyhexrep(destination_hash) + ": Invalid signature.");
+    // signed data is destination_hash + public_key + name_hash + random_hash + ratchet + app_data
+    if (!announced_identity.validate(raw, signature, view.slice(destination_hash, Packet.DST_LEN),
+        view.slice(public_key, signature - public_key), view.slice(app_data, end - app_data))) {
+      Rns.log(() -> "Received invalid announce for " + Rns.prettyhexrep(packet.get_destination_hash()) + ": Invalid signature.", Rns.LOG_DEBUG);
       return false;
     }
     if (only_validate_signature) return true;
-    byte[] hash_material = Utils.concatenate(name_hash, announced_identity.hash);
-    byte[] expected_hash = Arrays.copyOfRange(rns.Identity.full_hash(hash_material), 0, rns.Reticulum.TRUNCATED_HASHLENGTH / 8);
-    if (!Arrays.equals(destination_hash, expected_hash)) {
-      Rns.log("Received invalid announce for " + Rns.prettyhexrep(destination_hash) + ": Destination mismatch.");
+    byte[] hash_material = Utils.concatenate(Arrays.copyOfRange(raw, name_hash, name_hash + name_hash_len),
+        announced_identity.hash);
+    byte[] expected_hash = rns.Identity.full_hash(hash_material);
+    if (!Arrays.equals(raw, destination_hash, destination_hash + Packet.DST_LEN, expected_hash, 0, Packet.DST_LEN)) {
+      Rns.log(() -> "Received invalid announce for " + Rns.prettyhexrep(packet.get_destination_hash()) + ": Destination mismatch.", Rns.LOG_DEBUG);
       return false;
     }
-    remember(packet.get_hash(), destination_hash, public_key, app_data);
     return true;
   }
 
+  /**
+   * Remembers the identity and the ratchet of an announce that passed verify_announce.
+   */
+  static void remember_announce(Packet packet) {
+    PacketView view = packet.view();
+    int public_key = view.data_offset();
+    int signature = announce_signature_offset(packet);
+    int app_data = signature + SIGLENGTH / 8;
+    remember(packet.get_hash(), packet.get_destination_hash(),
+        Arrays.copyOfRange(view.raw(), public_key, public_key + KEYSIZE / 8),
+        Arrays.copyOfRange(view.raw(), app_data, view.offset() + view.length()));
+    if (packet.context_flag == Packet.FLAG_SET) { // 434
+      remember_ratchet(packet.get_destination_hash(),
+          Arrays.copyOfRange(view.raw(), signature - RATCHETSIZE / 8, signature));
+    }
+  }
+
+  private static int announce_signature_offset(Packet packet) {
+    int i = packet.view().data_offset() + KEYSIZE / 8 + NAME_HASH_LENGTH / 8 + RANDOM_HASH_LENGTH / 8;
+    return packet.context_flag == Packet.FLAG_SET ? i + RATCHETSIZE / 8 : i;
+  }
+
   public Identity(boolean create_keys) { // 549
-    if (create_keys) throw new IllegalStateException();
+    if (create_keys) create_keys();
   }
 
+  /**
+   * Creates an identity without keys, load_private_key or load_public_key sets them.
+   */
   public Identity() {
   }
 
+  void create_keys() { // 569
+    X25519PrivateKeyParameters prv = new X25519PrivateKeyParameters(random);
+    Ed25519PrivateKeyParameters sig_prv = new Ed25519PrivateKeyParameters(random);
+    load_private_key(Utils.concatenate(prv.getEncoded(), sig_prv.getEncoded()));
+    Rns.log("Identity keys created for {0}", Rns.LOG_VERBOSE, Rns.hexrep(hash));
+  }
+
+  public byte[] get_private_key() { // 584
+    return Utils.concatenate(prv_bytes, sig_prv_bytes);
+  }
+
   public byte[] get_public_key() { // 590
     return Utils.concatenate(pub_bytes, sig_pub_bytes);
   }
 
-  void load_private_key(byte[] prv_bytes) { // 596
+  public void load_private_key(byte[] prv_bytes) { // 596
+    if (prv_bytes.length != KEYSIZE / 8) throw new IllegalArgumentException("Invalid private key length");
     this.prv_bytes = Arrays.copyOfRange(prv_bytes, 0, Identity.KEYSIZE / 8 / 2);
     this.sig_prv_bytes = Arrays.copyOfRange(prv_bytes, Identity.KEYSIZE / 8 / 2, prv_bytes.length);
-    this.pub_bytes = new byte[0];
-    this.sig_pub_bytes = new byte[0];
+    sig_prv = new Ed25519PrivateKeyParameters(sig_prv_bytes);
+    sig_pub = sig_prv.generatePublicKey();
+    prv = new X25519PrivateKeyParameters(this.prv_bytes);
+    pub = prv.generatePublicKey();
+    this.pub_bytes = pub.getEncoded();
+    this.sig_pub_bytes = sig_pub.getEncoded();
     update_hashes();
   }
 
@@ -153,12 +341,102 @@ public class Identity {
     int keysize = KEYSIZE / 8;
     this.pub_bytes = Arrays.copyOfRange(pub_bytes, 0, keysize / 2);
     this.sig_pub_bytes = Arrays.copyOfRange(pub_bytes, keysize / 2, keysize);
+    this.pub = new X25519PublicKeyParameters(this.pub_bytes);
     update_hashes();
   }
 
   void update_hashes() { // 643
     hash = rns.Identity.truncated_hash(get_public_key());
-    hexhash = Utils.toHex(hash).toLowerCase();
+    hexhash = Utils.toHexLowerCase(hash);
+  }
+
+  byte[] get_salt() { // 653
+    return hash;
+  }
+
+  byte[] get_context() { // 656
+    return null;
+  }
+
+  static byte[] derive_key(X25519PrivateKeyParameters private_key, X25519PublicKeyParameters public_key,
+      byte[] salt, byte[] context) {
+    byte[] shared_key = new byte[X25519PrivateKeyParameters.SECRET_SIZE];
+    private_key.generateSecret(public_key, shared_key, 0);
+    return Cryptography.hkdf(DERIVED_KEY_LENGTH, shared_key, salt, context);
+  }
+
+  public byte[] encrypt(byte[] plaintext) {
+    return encrypt(plaintext, null);
+  }
+
+  /**
+   * Encrypts for this identity with an ephemeral key, the token is the ephemeral public key followed by the Token.
+   * @param ratchet public ratchet key to encrypt for instead of the identity key, or null
+   * @throws IllegalStateException if the instance does not hold a public key
+   */
+  public byte[] encrypt(byte[] plaintext, byte[] ratchet) { // 659
+    X25519PublicKeyParameters target_public_key = ratchet == null ? pub : new X25519PublicKeyParameters(ratchet);
+    if (target_public_key == null) throw new IllegalStateException("Encryption failed because identity does not hold a public key");
+    X25519PrivateKeyParameters ephemeral_key = new X25519PrivateKeyParameters(random);
+    byte[] derived_key = derive_key(ephemeral_key, target_public_key, get_salt(), get_context());
+    int key_length = KEYSIZE / 8 / 2;
+    byte[] token = new byte[key_length + Cryptography.Token.token_length(plaintext.length)];
+    ephemeral_key.generatePublicKey().encode(token, 0);
+    new Cryptography.Token(derived_key).encrypt(plaintext, 0, plaintext.length, token, key_length);
+    return token;
+  }
+
+  /**
+   * @return the plaintext or null if the token could not be decrypted
+   */
+  public byte[] decrypt(byte[] ciphertext_token) { // 691
+    byte[] plaintext = new byte[Math.max(ciphertext_token.length - KEYSIZE / 8 / 2, 0)];
+    int length = decrypt(ciphertext_token, 0, ciphertext_token.length, plaintext, 0);
+    return length < 0 ? null : Arrays.copyOf(plaintext, length);
+  }
+
+  /**
+   * Decrypts the token from offset to offset + length into the plaintext array,
+   * which must hold length - KEYSIZE / 8 / 2 bytes and may overlap the token.
+   * @return plaintext length or -1 if the token could not be decrypted
+   * @throws IllegalStateException if the instance does not hold a private key
+   */
+  public int decrypt(byte[] ciphertext_token, int offset, int length, byte[] plaintext, int plaintext_offset) {
+    X25519PrivateKeyParameters prv = this.prv;
+    if (prv == null) throw new IllegalStateException("Decryption failed because identity does not hold a private key");
+    int key_length = KEYSIZE / 8 / 2;
+    if (length <= key_length) {
+      Rns.log("Decryption failed because the token size was invalid.", Rns.LOG_DEBUG);
+      return -1;
+    }
+    try {
+      X25519PublicKeyParameters peer_pub = new X25519PublicKeyParameters(ciphertext_token, offset);
+      byte[] derived_key = derive_key(prv, peer_pub, get_salt(), get_context());
+      return new Cryptography.Token(derived_key).decrypt(ciphertext_token, offset + key_length, length - key_length,
+          plaintext, plaintext_offset);
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      Rns.log(() -> "Decryption by " + Rns.prettyhexrep(hash) + " failed: " + e.getMessage(), Rns.LOG_DEBUG);
+      return -1;
+    }
+  }
+
+  /**
+   * Signs a message with the cached signing key.
+   * @throws IllegalStateException if the instance does not hold a private key
+   */
+  public byte[] sign(byte[] message) { // 772
+    byte[] signature = new byte[SIGLENGTH / 8];
+    sign(message, 0, message.length, signature, 0);
+    return signature;
+  }
+
+  /**
+   * Signs the message in the bytes from offset to offset + length into the signature array.
+   */
+  void sign(byte[] message, int offset, int length, byte[] signature, int signature_offset) {
+    Ed25519PrivateKeyParameters sig_prv = this.sig_prv;
+    if (sig_prv == null) throw new IllegalStateException("Signing failed because identity does not hold a private key");
+    sig_prv.sign(Ed25519.Algorithm.Ed25519, sig_pub, null, message, offset, length, signature, signature_offset);
   }
 
   /**
@@ -172,4 +450,11 @@ public class Identity {
     return SignatureUtils.verify25519(Objects.requireNonNull(sig_pub_bytes), signature, message);
   }
 
+  /**
+   * Validates a signature stored at the offset of an array against a message split into several parts.
+   */
+  boolean validate(byte[] signature, int signature_offset, ByteBuffer... message) {
+    return SignatureUtils.verify25519(Objects.requireNonNull(sig_pub_bytes), signature, signature_offset, message);
+  }
+
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import rns.interfaces.Interface;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queues of the frames received by all interfaces, processed by a pool of workers.
+ * The interface readers only enqueue, so many uplinks are processed on all cores.
+ * Each interface is hashed to one worker, so its frames are processed in the order received.
+ * A frame is dropped when the queue is full, the reader is never blocked.
+ */
+public class Ingress {
+
+  private final BlockingQueue<Frame>[] queues;
+  private final Thread[] workers;
+  private final LongAdder processed = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private volatile boolean shutdown;
+
+  /**
+   * @param capacity total number of queued frames, shared evenly between the workers
+   */
+  @SuppressWarnings("unchecked")
+  Ingress(int threads, int capacity) {
+    if (threads <= 0) throw new IllegalArgumentException();
+    queues = new BlockingQueue[threads];
+    workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(Math.max(1, capacity / threads));
+      queues[i] = queue;
+      workers[i] = new Thread(() -> run(queue), "transport-ingress-" + (i + 1));
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+  }
+
+  /**
+   * @param raw frame in the bytes from 0 to length, the array is released to the buffer pool when it is processed
+   * @return false if the frame is dropped and the array stays with the caller
+   */
+  boolean offer(byte[] raw, int length, Interface anInterface) {
+    if (queue(anInterface).offer(new Frame(raw, length, anInterface))) return true;
+    dropped.increment();
+    Metrics.drop(Metrics.DROP_INGRESS_FULL);
+    return false;
+  }
+
+  private BlockingQueue<Frame> queue(Interface anInterface) {
+    return queues[Math.floorMod(System.identityHashCode(anInterface), queues.length)];
+  }
+
+  private void run(BlockingQueue<Frame> queue) {
+    Transport transport = new Transport();
+    try {
+      while (!shutdown) {
+        Frame frame = queue.take();
+        Transport.inbound_safely(transport, frame.raw, frame.length, frame.anInterface);
+        Transport.buffer_pool.release(frame.raw);
+        processed.increment();
+      }
+    } catch (InterruptedException ignore) {
+      // shutdown
+    }
+  }
+
+  public int depth() {
+    int depth = 0;
+    for (BlockingQueue<Frame> queue : queues) depth += queue.size();
+    return depth;
+  }
+
+  public long processed() {
+    return processed.sum();
+  }
+
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  void shutdown() {
+    shutdown = true;
+    for (Thread worker : workers) worker.interrupt();
+  }
+
+  private static class Frame {
+    final byte[] raw;
+    final int length;
+    final Interface anInterface;
+
+    Frame(byte[] raw, int length, Interface anInterface) {
+      this.raw = raw;
+      this.length = length;
+      this.anInterface = anInterface;
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram in nanoseconds for hot paths, recording is a few shifts and one LongAdder increment.
+ *
+ * Every power of two is split into four buckets, so a quantile is known to within 25%.
+ * The buckets count from the start, quantiles describe the whole lifetime of the histogram.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKETS = 4;
+  private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+  }
+
+  static int bucket(long nanos) {
+    if (nanos < SUB_BUCKETS) return (int) Math.max(nanos, 0);
+    int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    return exponent * SUB_BUCKETS + (int) (nanos >>> exponent - 2 & SUB_BUCKETS - 1);
+  }
+
+  /**
+   * @return the largest value counted in the bucket
+   */
+  static long upper_bound(int bucket) {
+    if (bucket < SUB_BUCKETS) return bucket;
+    int exponent = bucket / SUB_BUCKETS;
+    long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << exponent - 2;
+    return lower + (1L << exponent - 2) - 1;
+  }
+
+  public void record(long nanos) {
+    buckets[bucket(nanos)].increment();
+    count.increment();
+    sum.add(nanos);
+  }
+
+  /**
+   * Records the time elapsed since the start, taken with System.nanoTime().
+   */
+  public void record_since(long start) {
+    record(System.nanoTime() - start);
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  /**
+   * @return sum of the recorded values in nanoseconds
+   */
+  public long sum() {
+    return sum.sum();
+  }
+
+  /**
+   * @param quantile between 0 and 1
+   * @return upper bound of the bucket holding the quantile in nanoseconds, 0 if nothing was recorded
+   */
+  public long quantile(double quantile) {
+    if (quantile < 0 || quantile > 1) throw new IllegalArgumentException();
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) total += counts[i] = buckets[i].sum();
+    if (total == 0) return 0;
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    for (int i = 0; i < BUCKETS; i++) {
+      rank -= counts[i];
+      if (rank <= 0) return upper_bound(i);
+    }
+    return upper_bound(BUCKETS - 1);
+  }
+
+}
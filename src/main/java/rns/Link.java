@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import ab.SignatureUtils;
+import ab.Utils;
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.X25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
+import rns.interfaces.Interface;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * An encrypted channel to a SINGLE destination, the counterpart of RNS.Link.
+ *
+ * The initiator sends ephemeral X25519 and Ed25519 public keys in a link request, the
+ * destination answers with its own ephemeral X25519 key in a proof signed by its identity,
+ * and both ends derive the session key from the key exchange, salted with the link id.
+ * The Token of the session key is built once, so a packet on an established link
+ * costs one symmetric encryption. The initiator then sends the measured round trip time,
+ * which sets the keep-alive interval of both ends.
+ */
+public class Link {
+
+  public static final int CURVE25519_KEYSIZE = 32;
+  public static final int ECPUBSIZE = 32 + 32;
+  public static final int KEYSIZE = 32;
+  public static final int MDU = (Reticulum.MTU - Reticulum.IFAC_MIN_SIZE - Reticulum.HEADER_MINSIZE
+      - Cryptography.Token.TOKEN_OVERHEAD) / Cryptography.Token.IV_LENGTH * Cryptography.Token.IV_LENGTH - 1;
+  public static final int ESTABLISHMENT_TIMEOUT_PER_HOP = 6;
+  public static final double KEEPALIVE_MAX_RTT = 1.75;
+  public static final int KEEPALIVE_MAX = 360;
+  public static final int KEEPALIVE_MIN = 5;
+  public static final int KEEPALIVE = KEEPALIVE_MAX;
+  public static final int STALE_FACTOR = 2;
+  public static final int STALE_TIME = STALE_FACTOR * KEEPALIVE;
+  // states
+  public static final int PENDING = 0x00;
+  public static final int HANDSHAKE = 0x01;
+  public static final int ACTIVE = 0x02;
+  public static final int STALE = 0x03;
+  public static final int CLOSED = 0x04;
+  // teardown reasons
+  public static final int TIMEOUT = 0x01;
+  public static final int INITIATOR_CLOSED = 0x02;
+  public static final int DESTINATION_CLOSED = 0x03;
+
+  private static final byte KEEPALIVE_REQUEST = (byte) 0xFF;
+  private static final byte KEEPALIVE_RESPONSE = (byte) 0xFE;
+
+  public final byte[] link_id;
+  public final boolean initiator;
+  final Destination destination;
+  private final X25519PrivateKeyParameters prv;
+  private final byte[] pub_bytes;
+  private final byte[] sig_pub_bytes;
+  private X25519PublicKeyParameters peer_pub;
+  private byte[] peer_sig_pub_bytes;
+  private volatile Cryptography.Token token;
+  volatile int status = PENDING;
+  volatile int teardown_reason;
+  volatile Interface attached_interface;
+  volatile double rtt;
+  volatile int keepalive = KEEPALIVE;
+  volatile int stale_time = STALE_TIME;
+  final long request_time;
+  private final long establishment_timeout;
+  volatile long activated_at;
+  volatile long last_inbound;
+  volatile long last_outbound;
+  volatile long last_keepalive;
+  // the packet of a link is built in place, the lock also guards the release of the buffer on close
+  private final PacketBuilder builder = new PacketBuilder();
+  private final byte[] packet_hash = new byte[32];
+  private volatile Consumer<Link> link_established;
+  private volatile Consumer<Link> link_closed;
+  private volatile BiConsumer<byte[], Packet> packet_callback;
+
+  public Link(Destination destination) {
+    this(destination, null, null);
+  }
+
+  /**
+   * Establishes a link to the destination, the link request is sent right away.
+   * @param established_callback called when the link is established
+   * @param closed_callback called when the link is closed or could not be established
+   */
+  public Link(Destination destination, Consumer<Link> established_callback, Consumer<Link> closed_callback) { // 237
+    if (destination.type != Destination.SINGLE) {
+      throw new IllegalArgumentException("Links can only be established to the \"single\" destination type");
+    }
+    if (destination.identity == null) throw new IllegalArgumentException("The destination identity is not known");
+    this.destination = destination;
+    initiator = true;
+    link_established = established_callback;
+    link_closed = closed_callback;
+    prv = new X25519PrivateKeyParameters(Identity.random);
+    pub_bytes = prv.generatePublicKey().getEncoded();
+    sig_pub_bytes = new Ed25519PrivateKeyParameters(Identity.random).generatePublicKey().getEncoded();
+    int hops = Transport.has_path(destination.hash) ? Transport.hops_to(destination.hash) : 1;
+    establishment_timeout = 1000L * ESTABLISHMENT_TIMEOUT_PER_HOP * Math.max(1, hops);
+    request_time = System.currentTimeMillis();
+    PacketBuilder request = new PacketBuilder();
+    try {
+      request.destination_hash(destination.hash).destination_type(Destination.SINGLE)
+          .packet_type(Packet.LINKREQUEST).data(pub_bytes).data(sig_pub_bytes).pack();
+      // the link id is the truncated hash of the request, taken before it is sent
+      byte[] request_hash = new byte[32];
+      request.get_hash(request_hash);
+      link_id = Arrays.copyOf(request_hash, Packet.DST_LEN);
+      builder.destination_hash(link_id).destination_type(Destination.LINK);
+      Transport.register_link(this);
+      Transport.outbound(request, request_hash);
+    } finally {
+      request.release();
+    }
+    Rns.log(() -> "Link request " + Utils.toHexLowerCase(link_id) + " sent to " + destination.name, Rns.LOG_DEBUG);
+  }
+
+  /**
+   * The destination side of a link, created from a link request.
+   */
+  private Link(Destination owner, byte[] link_id, byte[] peer_pub_bytes, byte[] peer_sig_pub_bytes, int hops) {
+    this.destination = owner;
+    this.link_id = link_id;
+    initiator = false;
+    prv = new X25519PrivateKeyParameters(Identity.random);
+    pub_bytes = prv.generatePublicKey().getEncoded();
+    sig_pub_bytes = owner.identity.sig_pub_bytes;
+    peer_pub = new X25519PublicKeyParameters(peer_pub_bytes);
+    this.peer_sig_pub_bytes = peer_sig_pub_bytes;
+    establishment_timeout = 1000L * ESTABLISHMENT_TIMEOUT_PER_HOP * Math.max(1, hops);
+    request_time = System.currentTimeMillis();
+    builder.destination_hash(link_id).destination_type(Destination.LINK);
+  }
+
+  /**
+   * Creates the destination side of a link and sends the proof.
+   * @return the link or null if the request is not valid
+   */
+  static Link validate_request(Destination owner, Packet packet) { // 167
+    PacketView view = packet.view();
+    if (view.data_length() < ECPUBSIZE) {
+      Rns.log("Invalid link request payload size, dropping request", Rns.LOG_DEBUG);
+      return null;
+    }
+    byte[] raw = view.raw();
+    int data = view.data_offset();
+    Link link = new Link(owner, link_id_from_lr_packet(packet),
+        Arrays.copyOfRange(raw, data, data + CURVE25519_KEYSIZE),
+        Arrays.copyOfRange(raw, data + CURVE25519_KEYSIZE, data + ECPUBSIZE), packet.hops);
+    link.link_closed = owner.link_closed_callback;
+    link.attached_interface = packet.receiving_interface;
+    link.handshake();
+    Transport.register_link(link);
+    link.prove();
+    Rns.log(() -> "Incoming link request " + Utils.toHexLowerCase(link.link_id) + " accepted", Rns.LOG_DEBUG);
+    return link;
+  }
+
+  /**
+   * The link id is the truncated hash of the request without the signalling bytes that may follow the keys.
+   */
+  static byte[] link_id_from_lr_packet(Packet packet) { // 340
+    PacketView view = packet.view();
+    int hashable = view.hashable_offset();
+    int end = view.data_offset() + ECPUBSIZE;
+    MessageDigest digest = SignatureUtils.sha256();
+    digest.update((byte) (view.flags() & 0x0F));
+    digest.update(view.raw(), hashable, end - hashable);
+    return Arrays.copyOf(digest.digest(), Packet.DST_LEN);
+  }
+
+  private void handshake() { // 363
+    if (status != PENDING) throw new IllegalStateException("Invalid link state for handshake: " + status);
+    status = HANDSHAKE;
+    token = new Cryptography.Token(Identity.derive_key(prv, peer_pub, link_id, null));
+  }
+
+  private void prove() { // 377
+    // signed data is link_id + pub_bytes + sig_pub_bytes
+    byte[] signed_data = Utils.concatenate(link_id, pub_bytes, sig_pub_bytes);
+    byte[] signature = destination.identity.sign(signed_data);
+    byte[] proof_data = Utils.concatenate(signature, pub_bytes);
+    send(Packet.PROOF, Packet.LRPROOF, proof_data, 0, proof_data.length, false);
+  }
+
+  /**
+   * Completes the initiator side of the handshake with the proof of the destination.
+   */
+  void validate_proof(Packet packet) { // 394
+    if (!initiator || status != PENDING) return;
+    PacketView view = packet.view();
+    int sig_length = Identity.SIGLENGTH / 8;
+    if (view.data_length() < sig_length + CURVE25519_KEYSIZE) {
+      Rns.log("Invalid link request proof length received on link, ignoring", Rns.LOG_DEBUG);
+      return;
+    }
+    byte[] raw = view.raw();
+    int data = view.data_offset();
+    byte[] destination_sig_pub = destination.identity.sig_pub_bytes;
+    if (!destination.identity.validate(raw, data, ByteBuffer.wrap(link_id),
+        ByteBuffer.wrap(raw, data + sig_length, CURVE25519_KEYSIZE), ByteBuffer.wrap(destination_sig_pub))) {
+      Rns.log(() -> "Invalid link proof signature received by " + this + ". Ignoring.", Rns.LOG_DEBUG);
+      return;
+    }
+    peer_pub = new X25519PublicKeyParameters(raw, data + sig_length);
+    peer_sig_pub_bytes = destination_sig_pub;
+    handshake();
+    long now = System.currentTimeMillis();
+    attached_interface = packet.receiving_interface;
+    rtt = (now - request_time) / 1000.0;
+    activate(now);
+    byte[] rtt_data = pack_rtt(rtt);
+    send(Packet.DATA, Packet.LRRTT, rtt_data, 0, rtt_data.length, true);
+    Rns.log(() -> "Link " + this + " established with " + destination.name + ", RTT is " + rtt + "s", Rns.LOG_VERBOSE);
+    callback(link_established);
+  }
+
+  private void activate(long now) {
+    last_inbound = now;
+    activated_at = now;
+    update_keepalive();
+    status = ACTIVE;
+  }
+
+  private void rtt_packet(byte[] plaintext) { // 451
+    if (status != HANDSHAKE) return;
+    double measured_rtt = (System.currentTimeMillis() - request_time) / 1000.0;
+    rtt = Math.max(measured_rtt, unpack_rtt(plaintext));
+    activate(System.currentTimeMillis());
+    Rns.log(() -> "Link " + this + " established with a remote initiator, RTT is " + rtt + "s", Rns.LOG_VERBOSE);
+    callback(destination.link_established_callback);
+  }
+
+  private void update_keepalive() { // 750
+    keepalive = (int) Math.max(Math.min(rtt * (KEEPALIVE_MAX / KEEPALIVE_MAX_RTT), KEEPALIVE_MAX), KEEPALIVE_MIN);
+    stale_time = keepalive * STALE_FACTOR;
+  }
+
+  /**
+   * Handles a packet addressed to the link, called by Transport while the receive buffer is valid.
+   */
+  void receive(Packet packet) { // 972
+    if (status == CLOSED) return;
+    long now = System.currentTimeMillis();
+    last_inbound = now;
+    if (status == STALE) status = ACTIVE;
+    if (packet.packet_type != Packet.DATA) return;
+    PacketView view = packet.view();
+    switch (packet.context) {
+      case Packet.NONE: {
+        byte[] plaintext = decrypt(view);
+        BiConsumer<byte[], Packet> callback = packet_callback;
+        if (plaintext != null && callback != null) {
+          try {
+            callback.accept(plaintext, packet.detach());
+          } catch (RuntimeException e) {
+            Rns.logError("Error while executing link packet callback from " + this);
+            Rns.trace_exception(e);
+          }
+        }
+        break;
+      }
+      case Packet.LINKCLOSE: {
+        byte[] plaintext = decrypt(view);
+        if (plaintext != null && Arrays.equals(plaintext, link_id)) {
+          close(initiator ? DESTINATION_CLOSED : INITIATOR_CLOSED);
+          Rns.log(() -> "Link " + this + " closed by the remote end", Rns.LOG_VERBOSE);
+        }
+        break;
+      }
+      case Packet.LRRTT: {
+        if (initiator) break;
+        byte[] plaintext = decrypt(view);
+        if (plaintext != null) rtt_packet(plaintext);
+        break;
+      }
+      case Packet.KEEPALIVE: {
+        if (!initiator && view.data_length() == 1 && view.raw()[view.data_offset()] == KEEPALIVE_REQUEST) {
+          send(Packet.DATA, Packet.KEEPALIVE, new byte[]{KEEPALIVE_RESPONSE}, 0, 1, false);
+        }
+        break;
+      }
+      default:
+    }
+  }
+
+  /**
+   * Decrypts the link packet, the receive buffer is left as it is.
+   * @return the plaintext or null if the packet could not be decrypted
+   */
+  private byte[] decrypt(PacketView view) { // 1214
+    Cryptography.Token token = this.token;
+    if (token == null) return null;
+    try {
+      byte[] plaintext = new byte[Math.max(view.data_length() - Cryptography.Token.TOKEN_OVERHEAD, 0)];
+      int length = token.decrypt(view.raw(), view.data_offset(), view.data_length(), plaintext, 0);
+      return length == plaintext.length ? plaintext : Arrays.copyOf(plaintext, length);
+    } catch (IllegalArgumentException e) {
+      Rns.log(() -> "Decryption failed on link " + this + ": " + e.getMessage(), Rns.LOG_ERROR);
+      return null;
+    }
+  }
+
+  /**
+   * Sends the data over the link, encrypted with the session key.
+   * @return true if the packet was sent
+   * @throws IllegalStateException if the link is not active
+   * @throws IllegalArgumentException if the data exceeds the link MDU
+   */
+  public boolean send(byte[] data) {
+    return send(data, 0, data.length);
+  }
+
+  public boolean send(byte[] data, int offset, int length) {
+    int status = this.status;
+    if (status != ACTIVE && status != STALE) throw new IllegalStateException("Link " + this + " is not active");
+    return send(Packet.DATA, Packet.NONE, data, offset, length, true);
+  }
+
+  private boolean send(int packet_type, int context, byte[] data, int offset, int length, boolean encrypt) {
+    if (length > MDU) throw new IllegalArgumentException("Packet size of " + length + " exceeds the link MDU of " + MDU);
+    synchronized (builder) {
+      if (status == CLOSED) return false;
+      builder.reset().packet_type(packet_type).context(context);
+      if (encrypt) {
+        ByteBuffer out = builder.data();
+        int n = token.encrypt(data, offset, length, out.array(), out.arrayOffset() + out.position());
+        out.position(out.position() + n);
+      } else {
+        builder.data(data, offset, length);
+      }
+      last_outbound = System.currentTimeMillis();
+      return Transport.outbound(builder, packet_hash, attached_interface);
+    }
+  }
+
+  void send_keepalive() { // 1042
+    last_keepalive = System.currentTimeMillis();
+    send(Packet.DATA, Packet.KEEPALIVE, new byte[]{KEEPALIVE_REQUEST}, 0, 1, false);
+  }
+
+  /**
+   * Closes the link and tells the remote end, which closes its side too.
+   */
+  public void teardown() { // 579
+    teardown(initiator ? INITIATOR_CLOSED : DESTINATION_CLOSED);
+  }
+
+  private void teardown(int reason) {
+    int status = this.status;
+    if (status == CLOSED) return;
+    if (status != PENDING) send(Packet.DATA, Packet.LINKCLOSE, link_id, 0, link_id.length, true);
+    close(reason);
+  }
+
+  private void close(int reason) { // 612
+    synchronized (builder) {
+      if (status == CLOSED) return;
+      status = CLOSED;
+      teardown_reason = reason;
+      builder.release();
+    }
+    Transport.deregister_link(this);
+    callback(link_closed);
+  }
+
+  private void callback(Consumer<Link> callback) {
+    if (callback == null) return;
+    try {
+      callback.accept(this);
+    } catch (RuntimeException e) {
+      Rns.logError("Error while executing link callback from " + this);
+      Rns.trace_exception(e);
+    }
+  }
+
+  /**
+   * Establishment timeout, keep-alive and stale detection, called by the Transport link job.
+   * @param now current time in milliseconds
+   */
+  void watchdog(long now) { // 655
+    switch (status) {
+      case PENDING:
+      case HANDSHAKE:
+        if (now >= request_time + establishment_timeout) {
+          Rns.log(() -> "Link " + this + " establishment timed out", Rns.LOG_VERBOSE);
+          close(TIMEOUT);
+        }
+        break;
+      case ACTIVE:
+        long last = last_inbound;
+        if (now >= last + stale_time * 1000L) {
+          status = STALE;
+        } else if (initiator && now >= last + keepalive * 1000L && now >= last_keepalive + keepalive * 1000L) {
+          send_keepalive();
+        }
+        break;
+      case STALE:
+        Rns.log(() -> "Link " + this + " timed out", Rns.LOG_VERBOSE);
+        teardown(TIMEOUT);
+        break;
+      default:
+    }
+  }
+
+  static byte[] pack_rtt(double rtt) {
+    return ByteBuffer.allocate(9).put((byte) 0xCB).putDouble(rtt).array();
+  }
+
+  /**
+   * Reads the msgpack number sent by the initiator, a float or a positive integer.
+   */
+  static double unpack_rtt(byte[] data) {
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    int type = data.length == 0 ? -1 : buffer.get() & 0xFF;
+    if (type == 0xCB && data.length == 9) return buffer.getDouble();
+    if (type == 0xCA && data.length == 5) return buffer.getFloat();
+    if (type >= 0 && type < 0x80 && data.length == 1) return type;
+    return 0;
+  }
+
+  public void set_link_established_callback(Consumer<Link> callback) {
+    link_established = callback;
+  }
+
+  public void set_link_closed_callback(Consumer<Link> callback) { // 892
+    link_closed = callback;
+  }
+
+  /**
+   * @param callback called with the decrypted data and a copy of the packet, both can be kept after the call
+   */
+  public void set_packet_callback(BiConsumer<byte[], Packet> callback) { // 902
+    packet_callback = callback;
+  }
+
+  public int get_status() {
+    return status;
+  }
+
+  public int get_teardown_reason() {
+    return teardown_reason;
+  }
+
+  /**
+   * @return round trip time in seconds measured during the establishment
+   */
+  public double get_rtt() {
+    return rtt;
+  }
+
+  public Interface get_attached_interface() {
+    return attached_interface;
+  }
+
+  public byte[] get_remote_signing_key() {
+    return peer_sig_pub_bytes;
+  }
+
+  @Override
+  public String toString() {
+    return Utils.toHexLowerCase(link_id);
+  }
+
+}
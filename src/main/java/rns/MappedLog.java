@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only memory-mapped log of typed, timestamped records.
+ *
+ * File layout: 32-byte header (magic, committed end, record count), then records of
+ * length(4) type(1) timestamp(8) payload(length) crc(4) length(4). The header end is
+ * updated after every append, on open the records past it are checked with their CRC
+ * and the first torn record marks the end, so opening does not read the committed records.
+ * The trailing length allows reading the log backwards, newest records first.
+ * A single mapping is used, which limits the log to 2 GB, compaction keeps it well below.
+ */
+public class MappedLog implements Closeable {
+
+  private static final byte[] MAGIC = "RNSLOG01".getBytes(StandardCharsets.US_ASCII);
+  private static final int HEADER = 32;
+  private static final int END = 8;
+  private static final int COUNT = 16;
+  private static final int OVERHEAD = 4 + 1 + 8 + 4 + 4;
+  private static final int MIN_MAPPING = 1 << 20;
+
+  private final Path path;
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private long end;
+  private long count;
+  private final CRC32 crc = new CRC32();
+
+  public MappedLog(Path path) throws IOException {
+    this.path = path;
+    open();
+  }
+
+  private void open() throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    boolean created = channel.size() < HEADER;
+    map(Math.max(channel.size(), MIN_MAPPING));
+    if (created) {
+      buffer.duplicate().put(MAGIC);
+      end = HEADER;
+      count = 0;
+      commit();
+      return;
+    }
+    for (int i = 0; i < MAGIC.length; i++) if (buffer.get(i) != MAGIC[i]) throw new IOException("Not a log file " + path);
+    end = buffer.getLong(END);
+    count = buffer.getLong(COUNT);
+    if (end < HEADER || end > buffer.capacity()) throw new IOException("Corrupted log header " + path);
+    // tail recovery: keep the records written after the last header update, drop a torn one
+    for (int length; (length = valid_record(end)) >= 0; ) {
+      end += OVERHEAD + length;
+      count++;
+    }
+    commit();
+    clear_torn_record();
+  }
+
+  /**
+   * Clears what is left of a torn write at the end, a later record could otherwise line up with it.
+   * Only the torn record is cleared, the mapping past it is not read,
+   * it is left to the length and CRC checks.
+   */
+  private void clear_torn_record() {
+    int p = (int) end;
+    if (p + OVERHEAD > buffer.capacity()) return;
+    int length = buffer.getInt(p);
+    boolean sane = length >= 0 && length <= buffer.capacity() - p - OVERHEAD;
+    int torn_end = p + OVERHEAD + (sane ? length : 0);
+    for (int i = p; i < torn_end; i++) buffer.put(i, (byte) 0);
+  }
+
+  private void map(long size) throws IOException {
+    if (size > Integer.MAX_VALUE) throw new IOException("Log is too large " + path);
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+
+  /**
+   * @return payload length of a complete record at the position or -1
+   */
+  private int valid_record(long position) {
+    int p = (int) position;
+    if (p + OVERHEAD > buffer.capacity()) return -1;
+    int length = buffer.getInt(p);
+    if (length < 0 || p + OVERHEAD + length > buffer.capacity() || buffer.get(p + 4) == 0) return -1;
+    if (buffer.getInt(p + OVERHEAD - 4 + length) != length) return -1;
+    crc.reset();
+    crc.update(buffer.duplicate().position(p + 4).limit(p + 4 + 1 + 8 + length));
+    return (int) crc.getValue() == buffer.getInt(p + 4 + 1 + 8 + length) ? length : -1;
+  }
+
+  private void commit() {
+    buffer.putLong(COUNT, count);
+    buffer.putLong(END, end);
+  }
+
+  /**
+   * Appends a record with the payload made of two parts.
+   * @param type non-zero record type
+   */
+  public synchronized void append(byte type, long timestamp, byte[] a, int a_offset, int a_length,
+      byte[] b, int b_offset, int b_length) throws IOException {
+    if (type == 0) throw new IllegalArgumentException();
+    int length = a_length + b_length;
+    long needed = end + OVERHEAD + length;
+    if (needed > buffer.capacity()) map(Math.max(needed, 2L * buffer.capacity()));
+    int p = (int) end;
+    buffer.putInt(p, length);
+    buffer.put(p + 4, type);
+    buffer.putLong(p + 5, timestamp);
+    buffer.duplicate().position(p + 13).put(a, a_offset, a_length).put(b, b_offset, b_length);
+    crc.reset();
+    crc.update(buffer.duplicate().position(p + 4).limit(p + 13 + length));
+    buffer.putInt(p + 13 + length, (int) crc.getValue());
+    buffer.putInt(p + 17 + length, length);
+    end = needed;
+    count++;
+    commit();
+  }
+
+  public interface Reader {
+    /**
+     * @param payload read-only view of the record payload, valid only during the call
+     * @return false to stop reading
+     */
+    boolean read(byte type, long timestamp, ByteBuffer payload);
+  }
+
+  /**
+   * Reads the records newest first. The log can be appended to and compacted meanwhile,
+   * the reader sees the records that existed when it started.
+   */
+  public void read_backward(Reader reader) {
+    ByteBuffer buffer;
+    long end;
+    synchronized (this) {
+      buffer = this.buffer.duplicate();
+      end = this.end;
+    }
+    for (int p = (int) end; p > HEADER; ) {
+      int length = buffer.getInt(p - 4);
+      p -= OVERHEAD + length;
+      ByteBuffer payload = buffer.duplicate().position(p + 13).limit(p + 13 + length).slice().asReadOnlyBuffer();
+      if (!reader.read(buffer.get(p + 4), buffer.getLong(p + 5), payload)) return;
+    }
+  }
+
+  public synchronized long size() {
+    return end;
+  }
+
+  /**
+   * @return number of records in the log
+   */
+  public synchronized long count() {
+    return count;
+  }
+
+  public synchronized void force() {
+    buffer.force();
+  }
+
+  public interface Snapshot {
+    void write(MappedLog log) throws IOException;
+  }
+
+  /**
+   * Rewrites the log with the records produced by the snapshot. Appends are not
+   * blocked while the snapshot is written, records appended meanwhile are carried
+   * over to the new log before it atomically replaces the old one.
+   */
+  public void compact(Snapshot snapshot) throws IOException {
+    Path temp = path.resolveSibling(path.getFileName() + ".compact");
+    Files.deleteIfExists(temp);
+    long from;
+    synchronized (this) {
+      from = end;
+    }
+    try (MappedLog compacted = new MappedLog(temp)) {
+      snapshot.write(compacted);
+      synchronized (this) {
+        ByteBuffer old = buffer.duplicate();
+        for (int p = (int) from; p < end; ) {
+          int length = old.getInt(p);
+          byte[] payload = new byte[length];
+          old.position(p + 13);
+          old.get(payload);
+          compacted.append(old.get(p + 4), old.getLong(p + 5), payload, 0, length, payload, 0, 0);
+          p += OVERHEAD + length;
+        }
+        compacted.force();
+        compacted.channel.close();
+        channel.close();
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!channel.isOpen()) return;
+    buffer.force();
+    channel.close();
+  }
+
+}
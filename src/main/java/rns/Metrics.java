@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import rns.interfaces.Interface;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Packet, drop and latency counters of Transport and the interfaces.
+ *
+ * The counters are LongAdders and the latencies go to LatencyHistograms, so the hot paths
+ * never contend on a shared word. The values are read on demand, as a text snapshot in the
+ * Prometheus exposition format or as the attributes of the rns:type=Metrics MBean.
+ */
+public class Metrics {
+
+  // drop reasons
+  public static final int DROP_IFAC = 0;
+  public static final int DROP_MALFORMED = 1;
+  public static final int DROP_DUPLICATE = 2;
+  public static final int DROP_INVALID_SIGNATURE = 3;
+  public static final int DROP_MAX_HOPS = 4;
+  public static final int DROP_INGRESS_FULL = 5;
+  static final String[] DROP_REASONS = {
+      "ifac", "malformed", "duplicate", "invalid_signature", "max_hops", "ingress_full"};
+  static final String[] PACKET_TYPES = {"data", "announce", "linkrequest", "proof"};
+  static final double[] QUANTILES = {0.5, 0.9, 0.99};
+  public static final String OBJECT_NAME = "rns:type=Metrics";
+
+  static final LongAdder[] packets_received = adders(PACKET_TYPES.length);
+  static final LongAdder[] packets_sent = adders(PACKET_TYPES.length);
+  static final LongAdder[] drops = adders(DROP_REASONS.length);
+  public static final LatencyHistogram unpack = new LatencyHistogram();
+  public static final LatencyHistogram verify = new LatencyHistogram();
+  public static final LatencyHistogram dispatch = new LatencyHistogram();
+
+  private static LongAdder[] adders(int length) {
+    LongAdder[] adders = new LongAdder[length];
+    for (int i = 0; i < length; i++) adders[i] = new LongAdder();
+    return adders;
+  }
+
+  static void received(int packet_type) {
+    packets_received[packet_type & 0x03].increment();
+  }
+
+  static void sent(int packet_type) {
+    packets_sent[packet_type & 0x03].increment();
+  }
+
+  public static void drop(int reason) {
+    drops[reason].increment();
+  }
+
+  public static long drop_count(int reason) {
+    return drops[reason].sum();
+  }
+
+  public static long received_count(int packet_type) {
+    return packets_received[packet_type].sum();
+  }
+
+  public static long sent_count(int packet_type) {
+    return packets_sent[packet_type].sum();
+  }
+
+  static class Sample {
+    final String name;
+    final String type;
+    final Number value;
+    // label names and values, alternating
+    final String[] labels;
+
+    Sample(String name, String type, Number value, String... labels) {
+      this.name = name;
+      this.type = type;
+      this.value = value;
+      this.labels = labels;
+    }
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  static List<Sample> samples() {
+    List<Sample> samples = new ArrayList<>();
+    for (int i = 0; i < PACKET_TYPES.length; i++) {
+      samples.add(new Sample("rns_packets_received_total", "counter", packets_received[i].sum(),
+          "type", PACKET_TYPES[i]));
+    }
+    for (int i = 0; i < PACKET_TYPES.length; i++) {
+      samples.add(new Sample("rns_packets_sent_total", "counter", packets_sent[i].sum(), "type", PACKET_TYPES[i]));
+    }
+    for (int i = 0; i < DROP_REASONS.length; i++) {
+      samples.add(new Sample("rns_packets_dropped_total", "counter", drops[i].sum(), "reason", DROP_REASONS[i]));
+    }
+    histogram(samples, "unpack", unpack);
+    histogram(samples, "verify", verify);
+    histogram(samples, "dispatch", dispatch);
+    for (Interface anInterface : Transport.interfaces) {
+      String name = anInterface.toString();
+      samples.add(new Sample("rns_interface_received_bytes_total", "counter", anInterface.rxb.sum(),
+          "interface", name));
+      samples.add(new Sample("rns_interface_sent_bytes_total", "counter", anInterface.txb.sum(),
+          "interface", name));
+      samples.add(new Sample("rns_interface_received_frames_total", "counter", anInterface.rx_frames.sum(),
+          "interface", name));
+      samples.add(new Sample("rns_interface_sent_frames_total", "counter", anInterface.tx_frames.sum(),
+          "interface", name));
+      samples.add(new Sample("rns_interface_online", "gauge", anInterface.online ? 1 : 0, "interface", name));
+    }
+    Ingress ingress = Transport.ingress;
+    if (ingress != null) {
+      samples.add(new Sample("rns_ingress_queue_depth", "gauge", ingress.depth()));
+      samples.add(new Sample("rns_ingress_processed_total", "counter", ingress.processed()));
+      samples.add(new Sample("rns_ingress_dropped_total", "counter", ingress.dropped()));
+    }
+    samples.add(new Sample("rns_announce_queue_depth", "gauge", Transport.announce_verifier.queue_depth()));
+    samples.add(new Sample("rns_forwarded_total", "counter", Transport.forwarded_count()));
+    samples.add(new Sample("rns_paths", "gauge", Transport.path_table.size()));
+    samples.add(new Sample("rns_links", "gauge", Transport.link_count()));
+    samples.add(new Sample("rns_known_destinations", "gauge", Identity.known_destinations.size()));
+    samples.add(new Sample("rns_known_ratchets", "gauge", Identity.known_ratchets.size()));
+    return samples;
+  }
+
+  private static void histogram(List<Sample> samples, String operation, LatencyHistogram histogram) {
+    for (double quantile : QUANTILES) {
+      samples.add(new Sample("rns_latency_seconds", "summary", histogram.quantile(quantile) / 1e9,
+          "operation", operation, "quantile", Double.toString(quantile)));
+    }
+    samples.add(new Sample("rns_latency_seconds_sum", null, histogram.sum() / 1e9, "operation", operation));
+    samples.add(new Sample("rns_latency_seconds_count", null, histogram.count(), "operation", operation));
+  }
+
+  /**
+   * @return all metrics in the Prometheus text exposition format
+   */
+  public static String snapshot() {
+    StringBuilder text = new StringBuilder();
+    String last = null;
+    for (Sample sample : samples()) {
+      if (sample.type != null && !sample.name.equals(last)) {
+        text.append("# TYPE ").append(sample.name).append(' ').append(sample.type).append('\n');
+        last = sample.name;
+      }
+      text.append(sample.name);
+      for (int i = 0; i < sample.labels.length; i += 2) {
+        text.append(i == 0 ? '{' : ',').append(sample.labels[i]).append("=\"").append(escape(sample.labels[i + 1]))
+            .append('"');
+      }
+      if (sample.labels.length > 0) text.append('}');
+      text.append(' ').append(sample.value).append('\n');
+    }
+    return text.toString();
+  }
+
+  /**
+   * @return all metrics by flat name, the label values are joined to the name with dots
+   */
+  public static Map<String, Number> values() {
+    Map<String, Number> values = new LinkedHashMap<>();
+    for (Sample sample : samples()) {
+      StringBuilder name = new StringBuilder(sample.name);
+      for (int i = 1; i < sample.labels.length; i += 2) name.append('.').append(sample.labels[i]);
+      values.put(name.toString(), sample.value);
+    }
+    return values;
+  }
+
+  /**
+   * Registers the metrics MBean with the platform MBean server, once.
+   */
+  public static synchronized void register_mbean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!server.isRegistered(name)) server.registerMBean(new Bean(), name);
+    } catch (JMException e) {
+      Rns.logError("Could not register the metrics MBean: " + e);
+    }
+  }
+
+  /**
+   * Read-only MBean with an attribute for every metric, the attribute set follows the interfaces.
+   */
+  static class Bean implements DynamicMBean {
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+      Number value = values().get(attribute);
+      if (value == null) throw new AttributeNotFoundException(attribute);
+      return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+      Map<String, Number> values = values();
+      AttributeList list = new AttributeList();
+      for (String attribute : attributes) {
+        Number value = values.get(attribute);
+        if (value != null) list.add(new Attribute(attribute, value));
+      }
+      return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String action, Object[] params, String[] signature) {
+      throw new UnsupportedOperationException(action);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      Map<String, Number> values = values();
+      MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+      int i = 0;
+      for (Map.Entry<String, Number> entry : values.entrySet()) {
+        attributes[i++] = new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+            entry.getKey(), true, false, false);
+      }
+      return new MBeanInfo(Metrics.class.getName(), "Reticulum metrics", attributes, null, null, null);
+    }
+  }
+
+}
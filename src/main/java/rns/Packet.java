@@ -18,6 +18,7 @@
 package rns;
 
 import ab.Utils;
+import rns.interfaces.Interface;
 
 import java.util.Arrays;
 
@@ -55,7 +56,14 @@ public class Packet {
   public static final int LINKREQUEST = 2;
   public static final int PROOF = 3;
   // Packet context types
+  public static final int NONE = 0x00;
   public static final int PATH_RESPONSE = 0x0B;
+  public static final int KEEPALIVE = 0xFA;
+  public static final int LINKIDENTIFY = 0xFB;
+  public static final int LINKCLOSE = 0xFC;
+  public static final int LINKPROOF = 0xFD;
+  public static final int LRRTT = 0xFE;
+  public static final int LRPROOF = 0xFF;
 
   int flags;
   int hops;
@@ -64,16 +72,19 @@ public class Packet {
   int transport_type;
   int destination_type;
   public int packet_type;
+  // materialized on first access, see get_transport_id, get_destination_hash and get_data
   byte[] transport_id;
   byte[] destination_hash;
   int context;
   byte[] data;
 
   byte[] raw;
+  PacketView view;
   boolean packed;
   boolean fromPacked;
   boolean create_receipt;
   byte[] packet_hash;
+  Interface receiving_interface;
 
   public Packet(Object destination, byte[] data) {
     if (destination != null) {
@@ -87,36 +98,85 @@ public class Packet {
   }
 
   public boolean unpack() {
-    flags = raw[0];
-    hops = raw[0];
-    header_type = flags >> 6 & 1;
-    context_flag = flags >> 5 & 1;
-    transport_type = flags >> 4 & 1;
-    destination_type = flags >> 2 & 3;
-    packet_type = flags & 3;
-    int i = 2;
-    transport_id = header_type == HEADER_2 ? Arrays.copyOfRange(raw, i, i + DST_LEN) : null;
-    if (header_type == HEADER_2) i += DST_LEN;
-    destination_hash = Arrays.copyOfRange(raw, i, i + DST_LEN);
-    i += DST_LEN;
-    context = raw[i++];
-    data = Arrays.copyOfRange(raw, i, raw.length);
+    return unpack(raw.length);
+  }
+
+  /**
+   * Unpacks the frame in the first length bytes of raw, the rest of the array is ignored.
+   */
+  public boolean unpack(int length) {
+    view = new PacketView(raw, 0, length);
+    if (!view.is_valid()) return false;
+    flags = view.flags();
+    hops = view.hops();
+    header_type = view.header_type();
+    context_flag = view.context_flag();
+    transport_type = view.transport_type();
+    destination_type = view.destination_type();
+    packet_type = view.packet_type();
+    transport_id = null;
+    destination_hash = null;
+    context = view.context();
+    data = null;
     packed = false;
-    update_hash();
+    packet_hash = null;
     return true;
   }
 
+  /**
+   * Copies the frame of a packet unpacked from a reused buffer, so the packet can be kept
+   * after the buffer goes back to the pool. The memoized hash, hops and receiving interface are carried over.
+   */
+  Packet detach() {
+    Packet packet = new Packet(null, Arrays.copyOfRange(raw, view.offset(), view.offset() + view.length()));
+    packet.unpack();
+    packet.hops = hops;
+    packet.packet_hash = packet_hash;
+    packet.receiving_interface = receiving_interface;
+    return packet;
+  }
+
+  /**
+   * @return zero-copy view of the unpacked frame
+   */
+  public PacketView view() {
+    return view;
+  }
+
+  byte[] get_transport_id() {
+    if (transport_id == null) transport_id = view.transport_id();
+    return transport_id;
+  }
+
+  byte[] get_destination_hash() {
+    if (destination_hash == null) destination_hash = view.destination_hash();
+    return destination_hash;
+  }
+
+  byte[] get_data() {
+    if (data == null) data = view.data();
+    return data;
+  }
+
   void update_hash() { // 347
-    packet_hash = get_hash();
+    packet_hash = view.hash();
   }
 
-  byte[] get_hash() { // 350
-    return rns.Identity.full_hash(get_hashable_part());
+  /**
+   * The hash is computed on first use and memoized, unpack() does not hash the packet.
+   */
+  public byte[] get_hash() { // 350
+    if (packet_hash == null) update_hash();
+    return packet_hash;
   }
 
+  /**
+   * The hashable part of the unpacked frame, PacketView.hash() digests it without copying.
+   */
   byte[] get_hashable_part() { // 356
-    return Utils.concatenate(new byte[]{(byte) (raw[0] & 0x0F)},
-        Arrays.copyOfRange(raw, 2 + header_type == HEADER_2 ? Reticulum.TRUNCATED_HASHLENGTH / 8 : 0, raw.length));
+    int i = view.hashable_offset();
+    return Utils.concatenate(new byte[]{(byte) (view.flags() & 0x0F)},
+        Arrays.copyOfRange(view.raw(), i, view.offset() + view.length()));
   }
 
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import ab.SignatureUtils;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * Outbound packet packed into a pooled buffer, the counterpart of Packet.pack.
+ *
+ * The payload is written first, at a fixed offset that leaves room for the largest header.
+ * pack() writes the header in front of it, so Transport can still add a transport id
+ * without moving the payload. A builder is reused for every packet of a sender,
+ * after the interfaces return from process_outgoing the buffer can take the next packet.
+ */
+public class PacketBuilder {
+
+  static final int DATA_OFFSET = Reticulum.HEADER_MAXSIZE;
+  /**
+   * Room for the largest packet with the smaller header, which starts a transport id after the buffer start.
+   */
+  public static final int BUFFER_SIZE = Packet.DST_LEN + Reticulum.MTU;
+  static final BufferPool buffer_pool = new BufferPool(BUFFER_SIZE, 256);
+
+  private final BufferPool pool;
+  private byte[] raw;
+  private final ByteBuffer data;
+  int header_type;
+  int context_flag;
+  int transport_type;
+  int destination_type;
+  int packet_type;
+  int context;
+  int hops;
+  private byte[] transport_id;
+  private byte[] destination_hash;
+  private int offset;
+  private int length;
+
+  public PacketBuilder() {
+    this(buffer_pool);
+  }
+
+  public PacketBuilder(BufferPool pool) {
+    if (pool.buffer_size() <= DATA_OFFSET) throw new IllegalArgumentException();
+    this.pool = pool;
+    this.raw = pool.acquire();
+    this.data = ByteBuffer.wrap(raw, DATA_OFFSET, raw.length - DATA_OFFSET).slice();
+  }
+
+  /**
+   * Starts the next packet, the header fields keep their values.
+   */
+  public PacketBuilder reset() {
+    if (raw == null) throw new IllegalStateException("Builder is released");
+    data.clear();
+    hops = 0;
+    length = 0;
+    return this;
+  }
+
+  public PacketBuilder header_type(int header_type) {
+    this.header_type = header_type;
+    return this;
+  }
+
+  public PacketBuilder context_flag(int context_flag) {
+    this.context_flag = context_flag;
+    return this;
+  }
+
+  public PacketBuilder transport_type(int transport_type) {
+    this.transport_type = transport_type;
+    return this;
+  }
+
+  public PacketBuilder destination_type(int destination_type) {
+    this.destination_type = destination_type;
+    return this;
+  }
+
+  public PacketBuilder packet_type(int packet_type) {
+    this.packet_type = packet_type;
+    return this;
+  }
+
+  public PacketBuilder context(int context) {
+    this.context = context;
+    return this;
+  }
+
+  public PacketBuilder hops(int hops) {
+    this.hops = hops;
+    return this;
+  }
+
+  /**
+   * @param transport_id kept by reference until the packet is packed
+   */
+  public PacketBuilder transport_id(byte[] transport_id) {
+    this.transport_id = transport_id;
+    return this;
+  }
+
+  /**
+   * @param destination_hash kept by reference until the packet is packed
+   */
+  public PacketBuilder destination_hash(byte[] destination_hash) {
+    this.destination_hash = destination_hash;
+    return this;
+  }
+
+  byte[] destination_hash() {
+    return destination_hash;
+  }
+
+  /**
+   * @return the payload buffer, written from its position, the limit is the largest payload
+   */
+  public ByteBuffer data() {
+    return data;
+  }
+
+  public PacketBuilder data(byte[] bytes, int offset, int length) {
+    data.put(bytes, offset, length);
+    return this;
+  }
+
+  public PacketBuilder data(byte[] bytes) {
+    return data(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Writes the header in front of the payload.
+   * The payload of a packet that is not sent on a link is limited to the MDU, so Transport can
+   * insert the transport header on the way to a destination that is more than one hop away.
+   * @throws IllegalStateException if the payload exceeds the MDU or the packet exceeds the MTU
+   */
+  public PacketBuilder pack() { // 195
+    return pack(header_type, transport_type, transport_id);
+  }
+
+  /**
+   * Packs the packet with another header type, the header fields of the builder are not changed.
+   */
+  PacketBuilder pack(int header_type, int transport_type, byte[] transport_id) {
+    if (destination_hash == null) throw new IllegalStateException("Packet has no destination");
+    if (header_type == Packet.HEADER_2 && transport_id == null) {
+      throw new IllegalStateException("Packet with header type 2 must have a transport ID");
+    }
+    if (destination_type != Destination.LINK && data.position() > Reticulum.MDU) {
+      throw new IllegalStateException(
+          "Packet data of " + data.position() + " bytes exceeds MDU of " + Reticulum.MDU + " bytes");
+    }
+    offset = header_type == Packet.HEADER_2 ? 0 : Packet.DST_LEN;
+    length = DATA_OFFSET - offset + data.position();
+    if (length > Reticulum.MTU) {
+      throw new IllegalStateException("Packet size of " + length + " exceeds MTU of " + Reticulum.MTU + " bytes");
+    }
+    int i = offset;
+    raw[i++] = (byte) (header_type << 6 | context_flag << 5 | transport_type << 4 | destination_type << 2 | packet_type);
+    raw[i++] = (byte) hops;
+    if (header_type == Packet.HEADER_2) {
+      System.arraycopy(transport_id, 0, raw, i, Packet.DST_LEN);
+      i += Packet.DST_LEN;
+    }
+    System.arraycopy(destination_hash, 0, raw, i, Packet.DST_LEN);
+    raw[DATA_OFFSET - 1] = (byte) context;
+    return this;
+  }
+
+  /**
+   * @return the buffer holding the packed frame from offset to offset + length
+   */
+  public byte[] raw() {
+    return raw;
+  }
+
+  public int offset() {
+    return offset;
+  }
+
+  /**
+   * @return length of the packed frame, 0 until the packet is packed
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Computes the packet hash of the packed frame into the array.
+   */
+  public void get_hash(byte[] packet_hash) { // 350
+    MessageDigest digest = SignatureUtils.sha256();
+    digest.update((byte) (raw[offset] & 0x0F));
+    // transport id and hops are not hashed, for both header types the hashable part ends where the header does
+    int hashable = DATA_OFFSET - 1 - Packet.DST_LEN;
+    digest.update(raw, hashable, offset + length - hashable);
+    try {
+      digest.digest(packet_hash, 0, packet_hash.length);
+    } catch (DigestException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * Returns the buffer to the pool, the builder can not be used afterwards.
+   */
+  public void release() {
+    pool.release(raw);
+    raw = null;
+  }
+
+}
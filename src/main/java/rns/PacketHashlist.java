@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Duplicate filter for packet hashes, the counterpart of Transport.packet_hashlist.
+ *
+ * A pair of blocked Bloom filters is kept, new hashes are added to the current
+ * filter and looked up in both. When the current filter has taken its capacity
+ * it becomes the previous one and the oldest filter is cleared, so the memory
+ * stays fixed and a hash is remembered for at least one full generation.
+ * Every hash touches one 512-bit block, a single cache line.
+ */
+public class PacketHashlist {
+
+  private static final int BLOCK_BITS = 512;
+  private static final int BLOCK_LONGS = BLOCK_BITS / 64;
+  private static final int HASH_LENGTH = 32;
+
+  private final int capacity;
+  private final int blocks;
+  private final int k;
+  private volatile Generation current;
+  private volatile Generation previous;
+  private final LongAdder duplicates = new LongAdder();
+
+  /**
+   * @param capacity hashes per generation, between capacity and twice the capacity hashes are remembered
+   * @param fp_rate target false positive rate of a single generation
+   */
+  public PacketHashlist(int capacity, double fp_rate) {
+    if (capacity <= 0 || fp_rate <= 0 || fp_rate >= 1) throw new IllegalArgumentException();
+    this.capacity = capacity;
+    // start from the size of a classic Bloom filter and grow it until the blocked layout,
+    // which suffers from uneven block load, reaches the target rate
+    double bits = -capacity * Math.log(fp_rate) / (Math.log(2) * Math.log(2));
+    int blocks = (int) Math.max(1, Math.ceil(bits / BLOCK_BITS));
+    int k = 1;
+    while (blocks < Integer.MAX_VALUE / BLOCK_LONGS / 2) {
+      double best = 1;
+      for (int i = 1; i <= 16; i++) {
+        double fp = false_positive_rate(capacity, blocks, i);
+        if (fp < best) {
+          best = fp;
+          k = i;
+        }
+      }
+      if (best <= fp_rate) break;
+      blocks = (int) Math.ceil(blocks * 1.05);
+    }
+    this.blocks = blocks;
+    this.k = k;
+    current = new Generation(blocks);
+    previous = new Generation(blocks);
+  }
+
+  /**
+   * Expected false positive rate of a full blocked Bloom filter,
+   * the block load follows the Poisson distribution.
+   */
+  static double false_positive_rate(int capacity, int blocks, int k) {
+    double lambda = (double) capacity / blocks;
+    int max = (int) (lambda + 10 * Math.sqrt(lambda) + 20);
+    double p = Math.exp(-lambda);
+    double fp = 0;
+    for (int j = 0; j <= max; j++) {
+      if (j > 0) p = p * lambda / j;
+      fp += p * Math.pow(1 - Math.pow(1 - 1.0 / BLOCK_BITS, (double) k * j), k);
+    }
+    return fp;
+  }
+
+  /**
+   * Adds the hash to the list.
+   * @return true if the hash was already in the list
+   */
+  public boolean contains_or_add(byte[] packet_hash) {
+    if (packet_hash.length < HASH_LENGTH) throw new IllegalArgumentException();
+    ByteBuffer hash = ByteBuffer.wrap(packet_hash);
+    int block = (int) Long.remainderUnsigned(hash.getLong(0), blocks) * BLOCK_LONGS;
+    Generation current = this.current;
+    if (current.contains(block, hash, k) || previous.contains(block, hash, k)) {
+      duplicates.increment();
+      return true;
+    }
+    current.add(block, hash, k);
+    if (current.count.incrementAndGet() == capacity) rotate(current);
+    return false;
+  }
+
+  public boolean contains(byte[] packet_hash) {
+    ByteBuffer hash = ByteBuffer.wrap(packet_hash);
+    int block = (int) Long.remainderUnsigned(hash.getLong(0), blocks) * BLOCK_LONGS;
+    return current.contains(block, hash, k) || previous.contains(block, hash, k);
+  }
+
+  /**
+   * The packet hash is a SHA-256, so its bytes after the block selector are
+   * used directly as independent 9-bit positions within the block.
+   */
+  private static int bit(ByteBuffer hash, int i) {
+    return (int) (hash.getLong(8 + 8 * (i / 7)) >>> 9 * (i % 7)) & (BLOCK_BITS - 1);
+  }
+
+  private synchronized void rotate(Generation full) {
+    if (current != full) return;
+    Generation oldest = previous;
+    previous = full;
+    oldest.clear();
+    current = oldest;
+  }
+
+  /**
+   * @return number of duplicate packets detected by contains_or_add
+   */
+  public long duplicate_count() {
+    return duplicates.sum();
+  }
+
+  /**
+   * @return memory used by the bit arrays in bytes
+   */
+  public long memory_size() {
+    return 2L * blocks * BLOCK_LONGS * Long.BYTES;
+  }
+
+  private static class Generation {
+    final AtomicLongArray bits;
+    final AtomicInteger count = new AtomicInteger();
+
+    Generation(int blocks) {
+      bits = new AtomicLongArray(blocks * BLOCK_LONGS);
+    }
+
+    boolean contains(int block, ByteBuffer hash, int k) {
+      for (int i = 0; i < k; i++) {
+        int bit = bit(hash, i);
+        if ((bits.get(block + (bit >>> 6)) & 1L << bit) == 0) return false;
+      }
+      return true;
+    }
+
+    void add(int block, ByteBuffer hash, int k) {
+      for (int i = 0; i < k; i++) {
+        int bit = bit(hash, i);
+        long mask = 1L << bit;
+        int index = block + (bit >>> 6);
+        long word = bits.get(index);
+        while ((word & mask) == 0 && !bits.weakCompareAndSetVolatile(index, word, word | mask)) {
+          word = bits.get(index);
+        }
+      }
+    }
+
+    void clear() {
+      for (int i = 0; i < bits.length(); i++) bits.set(i, 0);
+      count.set(0);
+    }
+  }
+
+}
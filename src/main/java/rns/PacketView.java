@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import ab.SignatureUtils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Read-only flyweight over a raw Reticulum frame. Header fields are decoded
+ * on demand and the transport id, destination hash and data regions are
+ * exposed as offsets into the wrapped array, so nothing is copied unless a
+ * caller explicitly asks for a copy.
+ *
+ * The view does not own the array, the caller must keep it unchanged for
+ * as long as the view is in use.
+ */
+public final class PacketView {
+
+  private final byte[] raw;
+  private final int offset;
+  private final int length;
+
+  public PacketView(byte[] raw) {
+    this(raw, 0, raw.length);
+  }
+
+  public PacketView(byte[] raw, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > raw.length) throw new IndexOutOfBoundsException();
+    this.raw = raw;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * Wraps the remaining bytes of a heap buffer, position and limit of the buffer are not changed.
+   */
+  public static PacketView wrap(ByteBuffer buffer) {
+    if (!buffer.hasArray()) throw new IllegalArgumentException("heap buffer required");
+    return new PacketView(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+  }
+
+  public byte[] raw() {
+    return raw;
+  }
+
+  public int offset() {
+    return offset;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public boolean is_valid() {
+    return length >= Reticulum.HEADER_MINSIZE && length >= header_length();
+  }
+
+  public int flags() {
+    return raw[offset] & 0xFF;
+  }
+
+  public int hops() {
+    return raw[offset + 1] & 0xFF;
+  }
+
+  public int ifac_flag() {
+    return flags() >> 7;
+  }
+
+  public int header_type() {
+    return flags() >> 6 & 1;
+  }
+
+  public int context_flag() {
+    return flags() >> 5 & 1;
+  }
+
+  public int transport_type() {
+    return flags() >> 4 & 1;
+  }
+
+  public int destination_type() {
+    return flags() >> 2 & 3;
+  }
+
+  public int packet_type() {
+    return flags() & 3;
+  }
+
+  public int header_length() {
+    return header_type() == Packet.HEADER_2 ? Reticulum.HEADER_MAXSIZE : Reticulum.HEADER_MINSIZE;
+  }
+
+  /**
+   * @return absolute offset of the transport id in {@link #raw()}, or -1 for HEADER_1 frames
+   */
+  public int transport_id_offset() {
+    return header_type() == Packet.HEADER_2 ? offset + 2 : -1;
+  }
+
+  public int destination_hash_offset() {
+    return offset + 2 + (header_type() == Packet.HEADER_2 ? Packet.DST_LEN : 0);
+  }
+
+  public int context() {
+    return raw[destination_hash_offset() + Packet.DST_LEN] & 0xFF;
+  }
+
+  public int data_offset() {
+    return destination_hash_offset() + Packet.DST_LEN + 1;
+  }
+
+  public int data_length() {
+    return offset + length - data_offset();
+  }
+
+  /**
+   * @return offset of the hashable part after the masked flags byte, hops and transport id are excluded
+   */
+  public int hashable_offset() {
+    return offset + 2 + (header_type() == Packet.HEADER_2 ? Packet.DST_LEN : 0);
+  }
+
+  /**
+   * Computes the full packet hash straight from the frame, without building the hashable part.
+   */
+  public byte[] hash() {
+    MessageDigest digest = SignatureUtils.sha256();
+    digest.update((byte) (flags() & 0x0F));
+    int i = hashable_offset();
+    digest.update(raw, i, offset + length - i);
+    return digest.digest();
+  }
+
+  public byte[] transport_id() {
+    int i = transport_id_offset();
+    return i < 0 ? null : Arrays.copyOfRange(raw, i, i + Packet.DST_LEN);
+  }
+
+  public byte[] destination_hash() {
+    int i = destination_hash_offset();
+    return Arrays.copyOfRange(raw, i, i + Packet.DST_LEN);
+  }
+
+  public byte[] data() {
+    return Arrays.copyOfRange(raw, data_offset(), offset + length);
+  }
+
+  public byte[] copy() {
+    return Arrays.copyOfRange(raw, offset, offset + length);
+  }
+
+  public boolean destination_hash_equals(byte[] hash) {
+    int i = destination_hash_offset();
+    return Arrays.equals(raw, i, i + Packet.DST_LEN, hash, 0, hash.length);
+  }
+
+  /**
+   * @return read-only buffer over {@code length} bytes of the frame starting at absolute offset {@code from}
+   */
+  public ByteBuffer slice(int from, int length) {
+    return ByteBuffer.wrap(raw, from, length).slice().asReadOnlyBuffer();
+  }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import rns.interfaces.Interface;
+
+/**
+ * Paths to destinations, the counterpart of Transport.path_table, keyed by the
+ * 16-byte destination hash held as two longs.
+ *
+ * Every slot holds an immutable Path, an update replaces it, so a reader that got
+ * the reference under an optimistic read sees a consistent path without locking.
+ * The paths are held in a StripedTable ordered by their expiry, so when a stripe reaches
+ * its share of max_size the path that expires first among a few sampled ones is evicted,
+ * cull() sweeps the expired paths a stripe at a time.
+ */
+public class PathTable {
+
+  private final StripedTable<Path> table;
+
+  public static final class Path {
+    public final byte[] next_hop;
+    public final int hops;
+    public final long timestamp;
+    public final long expires;
+    public final long announce_emitted;
+    public final Interface receiving_interface;
+    public final byte[] packet_hash;
+
+    /**
+     * @param next_hop transport id of the next hop, or the destination hash when the destination is a neighbour
+     * @param announce_emitted emission timestamp carried in the random hash of the announce
+     */
+    public Path(byte[] next_hop, int hops, long timestamp, long expires, long announce_emitted,
+        Interface receiving_interface, byte[] packet_hash) {
+      this.next_hop = next_hop;
+      this.hops = hops;
+      this.timestamp = timestamp;
+      this.expires = expires;
+      this.announce_emitted = announce_emitted;
+      this.receiving_interface = receiving_interface;
+      this.packet_hash = packet_hash;
+    }
+  }
+
+  public PathTable(int max_size) {
+    table = new StripedTable<>(max_size);
+  }
+
+  public void set_max_size(int max_size) {
+    table.set_max_size(max_size);
+  }
+
+  public Path get(byte[] destination_hash) {
+    return get(destination_hash, 0);
+  }
+
+  public Path get(byte[] destination_hash, int offset) {
+    return table.get(DestinationTable.key0(destination_hash, offset), DestinationTable.key1(destination_hash, offset));
+  }
+
+  public void put(byte[] destination_hash, Path path) {
+    table.put(DestinationTable.key0(destination_hash, 0), DestinationTable.key1(destination_hash, 0),
+        path.expires, path);
+  }
+
+  /**
+   * Stores the path of an announce if it is better than the known one, the rules of Transport.inbound
+   * for the path table: fewer or equal hops, or the known path expired, or the announce was emitted
+   * later than the one of the known path.
+   * @return true if the path was stored
+   */
+  public boolean update(byte[] destination_hash, Path path, long now) {
+    return table.put(DestinationTable.key0(destination_hash, 0), DestinationTable.key1(destination_hash, 0),
+        path.expires, path, (expires, known) -> path.hops <= known.hops || now > known.expires
+            || path.announce_emitted > known.announce_emitted);
+  }
+
+  public boolean remove(byte[] destination_hash) {
+    return table.remove(DestinationTable.key0(destination_hash, 0), DestinationTable.key1(destination_hash, 0));
+  }
+
+  /**
+   * Removes the paths that expired before now.
+   * Every stripe is swept in one pass under its lock, the other stripes stay available.
+   * @return number of removed paths
+   */
+  public int cull(long now) {
+    return table.remove_before(now);
+  }
+
+  public int size() {
+    return table.size();
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Latest ratchet key of every announced destination, the counterpart of Identity.known_ratchets.
+ *
+ * The keys are held in a bounded DestinationTable, a lookup takes the destination hash bytes.
+ * A ratchet that is already known only refreshes its timestamp. A new ratchet is written to the
+ * storage log by a StorageWriter, which keeps only the newest pending ratchet of a destination.
+ */
+public class RatchetStore {
+
+  private final DestinationTable table;
+  private final long expiry;
+  final StorageWriter writer;
+
+  /**
+   * @param expiry ratchet lifetime in milliseconds
+   */
+  public RatchetStore(int max_size, long expiry) {
+    this(max_size, expiry, StorageWriter.daemon("ratchet-writer"));
+  }
+
+  /**
+   * @param writer runs the log writes, one at a time
+   */
+  public RatchetStore(int max_size, long expiry, Executor writer) {
+    if (expiry <= 0) throw new IllegalArgumentException();
+    this.table = new DestinationTable(max_size);
+    this.expiry = expiry;
+    this.writer = new StorageWriter(Identity.STORAGE_RATCHET, writer);
+  }
+
+  public void set_max_size(int max_size) {
+    table.set_max_size(max_size);
+  }
+
+  /**
+   * Remembers the ratchet of a destination, the arrays are kept and must not be modified.
+   * @return true if the ratchet is new for the destination
+   */
+  public boolean remember(byte[] destination_hash, byte[] ratchet, long timestamp) { // 303
+    if (ratchet.length != Identity.RATCHETSIZE / 8) throw new IllegalArgumentException("Invalid ratchet length");
+    boolean known = Arrays.equals(table.get(destination_hash), ratchet);
+    table.put(destination_hash, timestamp, ratchet);
+    if (known) return false;
+    writer.submit(destination_hash, timestamp, ratchet);
+    return true;
+  }
+
+  /**
+   * @return the public ratchet key of the destination or null, the returned array must not be modified
+   */
+  public byte[] get(byte[] destination_hash) { // 357
+    return table.get(destination_hash);
+  }
+
+  /**
+   * Adds a ratchet read from the storage log, unless the store holds a newer one or the ratchet is expired.
+   */
+  void load(byte[] destination_hash, long timestamp, byte[] ratchet) {
+    if (timestamp < System.currentTimeMillis() - expiry) return;
+    table.put_if_newer(destination_hash, 0, timestamp, ratchet);
+  }
+
+  /**
+   * Removes the ratchets received longer than the expiry ago.
+   * @return number of removed ratchets
+   */
+  public int expire(long now) { // 342
+    return table.expire(now - expiry);
+  }
+
+  /**
+   * Writes the pending ratchets to the storage log on the calling thread.
+   */
+  public void flush() {
+    writer.flush();
+  }
+
+  DestinationTable table() {
+    return table;
+  }
+
+  public int size() {
+    return table.size();
+  }
+
+  /**
+   * @return number of ratchets waiting to be written
+   */
+  public int pending_count() {
+    return writer.pending_count();
+  }
+
+  public long written_count() {
+    return writer.written_count();
+  }
+
+  /**
+   * @return number of ratchets replaced by a newer one of the same destination before they were written
+   */
+  public long coalesced_count() {
+    return writer.coalesced_count();
+  }
+
+}
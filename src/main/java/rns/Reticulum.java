@@ -18,6 +18,9 @@
 package rns;
 
 import ab.TcpForwarder;
+import rns.interfaces.Framer;
+import rns.interfaces.Interface;
+import rns.interfaces.InterfaceRegistry;
 import rns.interfaces.LocalInterface;
 
 import java.io.IOException;
@@ -25,31 +28,68 @@ import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.Properties;
 
 public class Reticulum {
 
+  public static final int MTU = 500;
+  public static final int IFAC_MIN_SIZE = 1;
   public static final int TRUNCATED_HASHLENGTH = 128;
   public static final int HEADER_MINSIZE = 2 + 1 + (TRUNCATED_HASHLENGTH / 8) * 1;
   public static final int HEADER_MAXSIZE = 2 + 1 + (TRUNCATED_HASHLENGTH / 8) * 2;
+  public static final int MDU = MTU - HEADER_MAXSIZE - IFAC_MIN_SIZE;
+  public static final int ANNOUNCE_CAP = 2;
+  public static final int MAX_QUEUED_ANNOUNCES = 16384;
+  public static final int QUEUED_ANNOUNCE_LIFE = 60 * 60 * 24;
+  final Properties properties = new Properties();
+  final Path storagepath;
   private final TcpForwarder tcpForwarder;
-  private final LocalInterface.LocalClientInterface spawned_interface = new LocalInterface.LocalClientInterface();
+  // every direction of the forwarded stream is a frame stream of its own,
+  // decoded on its own thread, the interfaces share only the Transport state
+  private final LocalInterface.LocalClientInterface inbound_interface;
+  private final LocalInterface.LocalClientInterface outbound_interface;
+  final List<Interface> interfaces = new ArrayList<>();
 
   public Reticulum(String configpath) {
     Path propertiesPath = Paths.get(Optional.ofNullable(configpath).orElse(".")).resolve("reticulum.properties");
-    Properties properties = new Properties();
     try {
       properties.load(Files.newInputStream(propertiesPath));
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
-    tcpForwarder = new TcpForwarder(Integer.parseInt(properties.get("local").toString()),
-        properties.get("host").toString(), Integer.parseInt(properties.get("port").toString()));
-    tcpForwarder.inbound = spawned_interface::receive;
-    tcpForwarder.outbound = spawned_interface::receive;
-    tcpForwarder.start();
+    storagepath = Paths.get(properties.getProperty("storagepath", "../../.reticulum/storage"));
+    interfaces.addAll(InterfaceRegistry.load(properties));
+    if (properties.containsKey("local")) {
+      Framer framer = Framer.forName(properties.getProperty("framing", "hdlc"));
+      inbound_interface = new LocalInterface.LocalClientInterface("LocalInterface[inbound]", framer);
+      outbound_interface = new LocalInterface.LocalClientInterface("LocalInterface[outbound]", framer);
+      interfaces.add(inbound_interface);
+      interfaces.add(outbound_interface);
+      tcpForwarder = new TcpForwarder(Integer.parseInt(properties.get("local").toString()),
+          properties.get("host").toString(), Integer.parseInt(properties.get("port").toString()));
+      tcpForwarder.loops = Integer.parseInt(properties.getProperty("forwarder_loops",
+          Integer.toString(Runtime.getRuntime().availableProcessors())));
+      tcpForwarder.tap_capacity = Integer.parseInt(properties.getProperty("tap_capacity", "1024"));
+      tcpForwarder.tap_overflow = TcpForwarder.Overflow.valueOf(
+          properties.getProperty("tap_overflow", "drop").toUpperCase(Locale.ROOT));
+      // a deframer per connection, the clients of the forwarder send at the same time
+      tcpForwarder.inbound_connection = inbound_interface::connection;
+      tcpForwarder.outbound_connection = outbound_interface::connection;
+      tcpForwarder.start();
+    } else {
+      tcpForwarder = null;
+      inbound_interface = null;
+      outbound_interface = null;
+    }
     Transport.start(this);
+    for (Interface anInterface : interfaces) {
+      Transport.interfaces.add(anInterface);
+      anInterface.start();
+    }
   }
 
 }
@@ -19,30 +19,120 @@ package rns;
 
 import ab.Utils;
 
+import java.util.function.Supplier;
+import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 public class Rns {
 
+  public static final int LOG_NONE     = -1;
+  public static final int LOG_CRITICAL = 0;
+  public static final int LOG_ERROR    = 1;
+  public static final int LOG_WARNING  = 2;
+  public static final int LOG_NOTICE   = 3;
+  public static final int LOG_INFO     = 4;
+  public static final int LOG_VERBOSE  = 5;
+  public static final int LOG_DEBUG    = 6;
+  public static final int LOG_EXTREME  = 7;
+
+  private static final Level[] LEVELS = {Level.SEVERE, Level.SEVERE, Level.WARNING, Level.INFO, Level.INFO,
+      Level.FINE, Level.FINER, Level.FINEST};
+
   static {
     //System.getProperties().setProperty("java.util.logging.SimpleFormatter.format", "%1$tT %4$s: %5$s [%2$s]%6$s%n");
     System.getProperties().setProperty("java.util.logging.SimpleFormatter.format", "%1$tT: %5$s%6$s%n");
   }
 
+  private static final Logger LOGGER = Logger.getLogger("rns");
+  private static final AsyncLogHandler HANDLER = new AsyncLogHandler(new ConsoleHandler(), 1 << 12);
+  private static volatile int loglevel = LOG_NOTICE;
+
+  static {
+    HANDLER.delegate().setLevel(Level.ALL);
+    LOGGER.setUseParentHandlers(false);
+    LOGGER.addHandler(HANDLER);
+    LOGGER.setLevel(Level.ALL);
+  }
+
+  public static void set_loglevel(int level) {
+    loglevel = level;
+  }
+
+  public static int loglevel() {
+    return loglevel;
+  }
+
+  public static boolean is_enabled(int level) {
+    return level <= loglevel;
+  }
+
   public static void log(String s) {
-    Logger.getAnonymousLogger().info(s);
+    log(s, LOG_NOTICE);
+  }
+
+  public static void log(String s, int level) {
+    if (is_enabled(level)) publish(level, s, null, null);
+  }
+
+  /**
+   * The message is built only if the level is enabled.
+   */
+  public static void log(Supplier<String> s, int level) {
+    if (is_enabled(level)) publish(level, s.get(), null, null);
+  }
+
+  /**
+   * The message is formatted with {@link java.text.MessageFormat} on the logging thread,
+   * the parameters must not change after the call. Numbers are logged as they are, without
+   * the grouping of the locale.
+   */
+  public static void log(String pattern, int level, Object... params) {
+    if (!is_enabled(level)) return;
+    for (int i = 0; i < params.length; i++) {
+      if (params[i] instanceof Number) params[i] = String.valueOf(params[i]);
+    }
+    publish(level, pattern, params, null);
   }
 
   public static void logError(String s) {
-    Logger.getAnonymousLogger().severe(s);
+    log(s, LOG_ERROR);
   }
 
   public static void trace_exception(Exception e) {
-    Logger.getAnonymousLogger().log(Level.SEVERE, "", e);
+    if (is_enabled(LOG_ERROR)) publish(LOG_ERROR, "", null, e);
+  }
+
+  private static void publish(int level, String message, Object[] params, Throwable thrown) {
+    LogRecord record = new LogRecord(LEVELS[Math.max(LOG_CRITICAL, Math.min(LOG_EXTREME, level))], message);
+    record.setParameters(params);
+    record.setThrown(thrown);
+    record.setLoggerName(LOGGER.getName());
+    LOGGER.log(record);
+  }
+
+  /**
+   * @return records dropped because the log queue was full
+   */
+  public static long dropped_log_records() {
+    return HANDLER.dropped();
   }
 
   public static String prettyhexrep(byte[] data) {
-    return "<" + Utils.toHex(data).toLowerCase() + ">";
+    return "<" + Utils.toHexLowerCase(data) + ">";
+  }
+
+  /**
+   * @return object that formats the bytes with prettyhexrep when it is logged, for parameterized messages
+   */
+  public static Object hexrep(byte[] data) {
+    return new Object() {
+      @Override
+      public String toString() {
+        return prettyhexrep(data);
+      }
+    };
   }
 
 }
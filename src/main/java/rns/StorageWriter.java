@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the storage log records of one type in the background. Only the newest pending record
+ * of a destination is kept, so the announce handling never waits for the log and a destination
+ * that changes quickly costs at most one append per write cycle.
+ */
+public class StorageWriter {
+
+  private final byte type;
+  private final Executor writer;
+  private final Map<ByteBuffer, Pending> pending = new ConcurrentHashMap<>();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  volatile MappedLog storage;
+
+  /**
+   * @param type record type in the storage log
+   * @param writer runs the log writes, one at a time
+   */
+  public StorageWriter(byte type, Executor writer) {
+    this.type = type;
+    this.writer = writer;
+  }
+
+  /**
+   * @return executor with a single daemon thread
+   */
+  public static Executor daemon(String name) {
+    return Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, name);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Queues the record of a destination for writing, the arrays are kept and must not be modified.
+   */
+  public void submit(byte[] destination_hash, long timestamp, byte[] record) {
+    if (pending.put(ByteBuffer.wrap(destination_hash), new Pending(timestamp, record)) != null) coalesced.increment();
+    if (scheduled.compareAndSet(false, true)) writer.execute(this::write_pending);
+  }
+
+  /**
+   * Sets the storage log the records are written to, null detaches the log.
+   * Once this returns no write to the previous log is in progress, so it can be closed.
+   * The records submitted while no log was set are written to the new one.
+   */
+  synchronized void storage(MappedLog storage) {
+    this.storage = storage;
+    if (storage != null && !pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+      writer.execute(this::write_pending);
+    }
+  }
+
+  /**
+   * Writes the pending records to the storage log on the calling thread.
+   */
+  public void flush() {
+    write_pending();
+  }
+
+  private synchronized void write_pending() {
+    // cleared first, a record added during the write schedules the next one
+    scheduled.set(false);
+    MappedLog storage = this.storage;
+    // without a log the records stay pending until one is set
+    if (storage == null) return;
+    for (Map.Entry<ByteBuffer, Pending> entry : pending.entrySet()) {
+      if (!pending.remove(entry.getKey(), entry.getValue())) continue;
+      byte[] destination_hash = entry.getKey().array();
+      byte[] record = entry.getValue().record;
+      try {
+        storage.append(type, entry.getValue().timestamp,
+            destination_hash, 0, destination_hash.length, record, 0, record.length);
+        written.increment();
+      } catch (IOException | RuntimeException e) {
+        Rns.logError("Could not persist record " + type + " for " + Rns.prettyhexrep(destination_hash) + ": " + e);
+      }
+    }
+  }
+
+  /**
+   * @return number of records waiting to be written
+   */
+  public int pending_count() {
+    return pending.size();
+  }
+
+  public long written_count() {
+    return written.sum();
+  }
+
+  /**
+   * @return number of records replaced by a newer one of the same destination before they were written
+   */
+  public long coalesced_count() {
+    return coalesced.sum();
+  }
+
+  private static class Pending {
+    final long timestamp;
+    final byte[] record;
+
+    Pending(long timestamp, byte[] record) {
+      this.timestamp = timestamp;
+      this.record = record;
+    }
+  }
+
+}
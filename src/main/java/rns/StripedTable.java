@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Hash table keyed by a 16-byte hash held as two longs, shared by DestinationTable and PathTable.
+ *
+ * Every slot holds the key, an order and an immutable value in an open addressing table
+ * with linear probing. The table is split into stripes, each with its own lock, readers use
+ * optimistic reads and never block. When a stripe reaches its share of max_size the entry with
+ * the lowest order among a few sampled ones is evicted, remove_before() removes entries by order.
+ */
+class StripedTable<V> {
+
+  private static final int STRIPES = 64;
+  private static final int EVICTION_SAMPLES = 8;
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+  private volatile int stripe_max_size;
+
+  StripedTable(int max_size) {
+    set_max_size(max_size);
+    for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+  }
+
+  void set_max_size(int max_size) {
+    if (max_size < STRIPES) throw new IllegalArgumentException();
+    stripe_max_size = max_size / STRIPES;
+  }
+
+  private Stripe stripe(long k0) {
+    return stripes[(int) (k0 >>> 58) & (STRIPES - 1)];
+  }
+
+  interface Replace<V> {
+    /**
+     * Called under the stripe lock.
+     * @return true if the known value is replaced
+     */
+    boolean replace(long known_order, V known);
+  }
+
+  interface Visitor<V> {
+    void visit(long k0, long k1, long order, V value);
+  }
+
+  @SuppressWarnings("unchecked")
+  V get(long k0, long k1) {
+    return (V) stripe(k0).get(k0, k1);
+  }
+
+  void put(long k0, long k1, long order, V value) {
+    Stripe stripe = stripe(k0);
+    long stamp = stripe.lock.writeLock();
+    try {
+      stripe.put(k0, k1, order, value, stripe_max_size);
+    } finally {
+      stripe.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Stores the value if the key is not in the table or the known value is replaced.
+   * @return true if the value was stored
+   */
+  @SuppressWarnings("unchecked")
+  boolean put(long k0, long k1, long order, V value, Replace<V> replace) {
+    Stripe stripe = stripe(k0);
+    long stamp = stripe.lock.writeLock();
+    try {
+      int slot = stripe.find(k0, k1);
+      if (slot >= 0 && !replace.replace(stripe.orders[slot], (V) stripe.values[slot])) return false;
+      stripe.put(k0, k1, order, value, stripe_max_size);
+      return true;
+    } finally {
+      stripe.lock.unlockWrite(stamp);
+    }
+  }
+
+  boolean remove(long k0, long k1) {
+    Stripe stripe = stripe(k0);
+    long stamp = stripe.lock.writeLock();
+    try {
+      int slot = stripe.find(k0, k1);
+      if (slot < 0) return false;
+      stripe.delete(slot);
+      return true;
+    } finally {
+      stripe.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes the entries with an order lower than the given one.
+   * Every stripe is swept in one pass under its lock, the other stripes stay available.
+   * @return number of removed entries
+   */
+  int remove_before(long order) {
+    int removed = 0;
+    for (Stripe stripe : stripes) {
+      long stamp = stripe.lock.writeLock();
+      try {
+        for (int slot = 0; slot < stripe.values.length; ) {
+          // a deletion shifts the next entry into this slot, so it is checked again
+          if (stripe.values[slot] != null && stripe.orders[slot] < order) {
+            stripe.delete(slot);
+            removed++;
+          } else {
+            slot++;
+          }
+        }
+      } finally {
+        stripe.lock.unlockWrite(stamp);
+      }
+    }
+    return removed;
+  }
+
+  int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) size += stripe.size;
+    return size;
+  }
+
+  /**
+   * Visits all entries stripe by stripe, each stripe is read under its lock.
+   */
+  @SuppressWarnings("unchecked")
+  void for_each(Visitor<V> visitor) {
+    for (Stripe stripe : stripes) {
+      long stamp = stripe.lock.readLock();
+      try {
+        for (int slot = 0; slot < stripe.values.length; slot++) {
+          if (stripe.values[slot] != null) visitor.visit(stripe.keys[2 * slot], stripe.keys[2 * slot + 1],
+              stripe.orders[slot], (V) stripe.values[slot]);
+        }
+      } finally {
+        stripe.lock.unlockRead(stamp);
+      }
+    }
+  }
+
+  private static class Stripe {
+    final StampedLock lock = new StampedLock();
+    long[] keys = new long[2 * 16];
+    long[] orders = new long[16];
+    Object[] values = new Object[16];
+    int size;
+
+    int mask() {
+      return values.length - 1;
+    }
+
+    /**
+     * @return slot of the key or -1, the caller holds the lock
+     */
+    int find(long k0, long k1) {
+      int mask = mask();
+      for (int slot = (int) k1 & mask; values[slot] != null; slot = slot + 1 & mask) {
+        if (keys[2 * slot] == k0 && keys[2 * slot + 1] == k1) return slot;
+      }
+      return -1;
+    }
+
+    Object get(long k0, long k1) {
+      long stamp = lock.tryOptimisticRead();
+      if (stamp != 0) {
+        Object value = null;
+        try {
+          long[] keys = this.keys;
+          Object[] values = this.values;
+          int mask = values.length - 1;
+          int probes = 0;
+          for (int slot = (int) k1 & mask; probes <= mask; slot = slot + 1 & mask, probes++) {
+            Object v = values[slot];
+            if (v == null) break;
+            if (keys[2 * slot] == k0 && keys[2 * slot + 1] == k1) {
+              value = v;
+              break;
+            }
+          }
+        } catch (ArrayIndexOutOfBoundsException ignore) {
+          // torn read of a resizing stripe, validate fails below
+        }
+        if (lock.validate(stamp)) return value;
+      }
+      stamp = lock.readLock();
+      try {
+        int slot = find(k0, k1);
+        return slot < 0 ? null : values[slot];
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    void put(long k0, long k1, long order, Object value, int max_size) {
+      int slot = find(k0, k1);
+      if (slot < 0) {
+        if (size >= max_size) evict();
+        if (size + 1 > values.length * 3 / 4) resize(values.length * 2);
+        int mask = mask();
+        slot = (int) k1 & mask;
+        while (values[slot] != null) slot = slot + 1 & mask;
+        keys[2 * slot] = k0;
+        keys[2 * slot + 1] = k1;
+        size++;
+      }
+      orders[slot] = order;
+      values[slot] = value;
+    }
+
+    /**
+     * Removes the entry with the lowest order among a few randomly sampled ones.
+     */
+    void evict() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      int lowest = -1;
+      for (int i = 0, found = 0; found < EVICTION_SAMPLES && i < values.length * 2; i++) {
+        int slot = random.nextInt(values.length);
+        if (values[slot] == null) continue;
+        found++;
+        if (lowest < 0 || orders[slot] < orders[lowest]) lowest = slot;
+      }
+      if (lowest >= 0) delete(lowest);
+    }
+
+    /**
+     * Backward shift deletion, keeps the probe sequences intact without tombstones.
+     */
+    void delete(int slot) {
+      int mask = mask();
+      int hole = slot;
+      for (int next = hole + 1 & mask; values[next] != null; next = next + 1 & mask) {
+        int home = (int) keys[2 * next + 1] & mask;
+        // move the entry into the hole unless its home lies cyclically in (hole, next]
+        if ((next - home & mask) >= (next - hole & mask)) {
+          keys[2 * hole] = keys[2 * next];
+          keys[2 * hole + 1] = keys[2 * next + 1];
+          orders[hole] = orders[next];
+          values[hole] = values[next];
+          hole = next;
+        }
+      }
+      values[hole] = null;
+      size--;
+    }
+
+    void resize(int capacity) {
+      long[] old_keys = keys;
+      long[] old_orders = orders;
+      Object[] old_values = values;
+      long[] new_keys = new long[2 * capacity];
+      long[] new_orders = new long[capacity];
+      Object[] new_values = new Object[capacity];
+      int mask = capacity - 1;
+      for (int i = 0; i < old_values.length; i++) {
+        if (old_values[i] == null) continue;
+        int slot = (int) old_keys[2 * i + 1] & mask;
+        while (new_values[slot] != null) slot = slot + 1 & mask;
+        new_keys[2 * slot] = old_keys[2 * i];
+        new_keys[2 * slot + 1] = old_keys[2 * i + 1];
+        new_orders[slot] = old_orders[i];
+        new_values[slot] = old_values[i];
+      }
+      keys = new_keys;
+      orders = new_orders;
+      values = new_values;
+    }
+  }
+
+}
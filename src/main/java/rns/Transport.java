@@ -17,26 +17,119 @@
 
 package rns;
 
-import rns.interfaces.LocalInterface;
+import rns.interfaces.Interface;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Transport {
 
-  static Set<AnnounceHandler> announce_handlers = new HashSet<>(); // 110
+  public static final int HASHLIST_MAXSIZE = 1000000;
+  public static final double HASHLIST_FP_RATE = 1e-6;
+  public static final int PERSIST_INTERVAL = 60 * 5;
+  public static final int PATHFINDER_M = 128; // Max hops
+  public static final int PATHFINDER_E = 60 * 60 * 24 * 7; // Path expiration of one week
+  public static final int TABLES_CULL_INTERVAL = 5;
+  public static final int PATH_TABLE_MAXSIZE = 1 << 20;
+  public static final int LINKS_CHECK_INTERVAL = 1;
+  // Transport types
+  public static final int BROADCAST = 0x00;
+  public static final int TRANSPORT = 0x01;
+
+  static final List<Interface> interfaces = new CopyOnWriteArrayList<>(); // 85
+  static final Map<ByteBuffer, Destination> destinations = new ConcurrentHashMap<>(); // 86
+  // pending and active links by link id, both ends of a link to a local destination share an entry
+  static final Map<ByteBuffer, Link[]> active_links = new ConcurrentHashMap<>(); // 93
+  static Set<AnnounceHandler> announce_handlers = new LinkedHashSet<>(); // 110
+  static volatile AnnounceHandlerIndex announce_handler_index = new AnnounceHandlerIndex(announce_handlers);
   static Identity identity; // 164
+  static AnnounceVerifier announce_verifier = new AnnounceVerifier(0, Transport::inbound_announce);
+  static volatile AnnounceSigner announce_signer = new AnnounceSigner(0);
+  static final ScheduledExecutorService jobs = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "transport-jobs");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final AtomicBoolean jobs_scheduled = new AtomicBoolean();
+  // the announce queues have a thread of their own, a long persist or cull job does not hold back announces
+  static final ScheduledExecutorService announce_jobs = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "transport-announces");
+    thread.setDaemon(true);
+    return thread;
+  });
+  static final BufferPool buffer_pool = new BufferPool(Reticulum.MTU, 1024);
+  static volatile Ingress ingress;
+  static final PathTable path_table = new PathTable(PATH_TABLE_MAXSIZE); // 89
+  static volatile boolean transport_enabled;
+  static int max_queued_announces = Reticulum.MAX_QUEUED_ANNOUNCES;
+  static final LongAdder forwarded = new LongAdder();
+  static PacketHashlist packet_hashlist = new PacketHashlist(HASHLIST_MAXSIZE / 2, HASHLIST_FP_RATE);
 
   public static void start(Reticulum reticulum_instance) { // 167
-    if (identity == null) {
-      identity = new Identity();
+    int threads = Integer.parseInt(reticulum_instance.properties.getProperty("announce_verifier_threads",
+        Integer.toString(Runtime.getRuntime().availableProcessors())));
+    announce_verifier.shutdown();
+    announce_verifier = new AnnounceVerifier(threads, Transport::inbound_announce);
+    announce_signer.shutdown();
+    announce_signer = new AnnounceSigner(Integer.parseInt(reticulum_instance.properties.getProperty(
+        "announce_signer_threads", Integer.toString(Runtime.getRuntime().availableProcessors()))));
+    packet_hashlist = new PacketHashlist(
+        Integer.parseInt(reticulum_instance.properties.getProperty("packet_hashlist_capacity",
+            Integer.toString(HASHLIST_MAXSIZE / 2))),
+        Double.parseDouble(reticulum_instance.properties.getProperty("packet_hashlist_fp_rate",
+            Double.toString(HASHLIST_FP_RATE))));
+    rns.Identity.known_destinations.set_max_size(Integer.parseInt(reticulum_instance.properties.getProperty(
+        "known_destinations_maxsize", Integer.toString(rns.Identity.KNOWN_DESTINATIONS_MAXSIZE))));
+    rns.Identity.known_ratchets.set_max_size(Integer.parseInt(reticulum_instance.properties.getProperty(
+        "known_ratchets_maxsize", Integer.toString(rns.Identity.KNOWN_DESTINATIONS_MAXSIZE))));
+    rns.Identity.load_known_destinations(reticulum_instance.storagepath);
+    if (ingress != null) ingress.shutdown();
+    ingress = new Ingress(
+        Integer.parseInt(reticulum_instance.properties.getProperty("ingress_threads",
+            Integer.toString(Runtime.getRuntime().availableProcessors()))),
+        Integer.parseInt(reticulum_instance.properties.getProperty("ingress_capacity", "4096")));
+    transport_enabled = Boolean.parseBoolean(reticulum_instance.properties.getProperty("enable_transport", "false"));
+    max_queued_announces = Integer.parseInt(reticulum_instance.properties.getProperty(
+        "max_queued_announces", Integer.toString(Reticulum.MAX_QUEUED_ANNOUNCES)));
+    path_table.set_max_size(Integer.parseInt(reticulum_instance.properties.getProperty(
+        "path_table_maxsize", Integer.toString(PATH_TABLE_MAXSIZE))));
+    // the jobs work on the static tables, a restart keeps them running
+    if (jobs_scheduled.compareAndSet(false, true)) {
+      jobs.scheduleWithFixedDelay(Transport::cull_job, TABLES_CULL_INTERVAL, TABLES_CULL_INTERVAL, TimeUnit.SECONDS);
+      jobs.scheduleWithFixedDelay(Transport::persist_job, PERSIST_INTERVAL, PERSIST_INTERVAL, TimeUnit.SECONDS);
+      jobs.scheduleWithFixedDelay(Transport::link_job, LINKS_CHECK_INTERVAL, LINKS_CHECK_INTERVAL, TimeUnit.SECONDS);
+      Metrics.register_mbean();
+    }
+    if (identity == null) { // 174
+      Path transport_identity_path = reticulum_instance.storagepath.resolve("transport_identity");
       try {
-        identity.load_private_key(Files.readAllBytes(Paths.get("../../.reticulum/storage/transport_identity")));
+        if (Files.exists(transport_identity_path)) {
+          identity = new Identity();
+          identity.load_private_key(Files.readAllBytes(transport_identity_path));
+        } else {
+          Rns.log("No valid Transport Identity in storage, creating...", Rns.LOG_VERBOSE);
+          identity = new Identity(true);
+          Files.createDirectories(reticulum_instance.storagepath);
+          Files.write(transport_identity_path, identity.get_private_key());
+        }
       } catch (IOException e) {
         throw new UncheckedIOException(e);
       }
@@ -44,30 +137,502 @@ public class Transport {
 
   }
 
-  public void inbound(byte[] raw, LocalInterface.LocalClientInterface anInterface) { // 1151
+  static void cull_job() {
+    try {
+      int removed = path_table.cull(System.currentTimeMillis());
+      if (removed > 0) Rns.log("Removed {0} expired paths", Rns.LOG_DEBUG, removed);
+    } catch (RuntimeException e) {
+      Rns.logError("An error occurred while culling the path table:");
+      Rns.trace_exception(e);
+    }
+  }
+
+  static void link_job() {
+    long now = System.currentTimeMillis();
+    for (Link[] links : active_links.values()) {
+      for (Link link : links) {
+        try {
+          link.watchdog(now);
+        } catch (RuntimeException e) {
+          Rns.logError("An error occurred while checking link " + link + ":");
+          Rns.trace_exception(e);
+        }
+      }
+    }
+  }
+
+  static void persist_job() {
+    try {
+      rns.Identity.persist_data();
+    } catch (RuntimeException e) {
+      Rns.logError("An error occurred while persisting known destinations:");
+      Rns.trace_exception(e);
+    }
+  }
+
+  /**
+   * Entry point of the interfaces, queues the frame for the ingress workers,
+   * before Transport is started the frame is processed on the calling thread.
+   * @param raw frame in the bytes from 0 to length
+   * @return true if the array was taken and goes to the buffer pool after the processing
+   */
+  public static boolean ingress(byte[] raw, int length, Interface anInterface) {
+    Ingress ingress = Transport.ingress;
+    if (ingress != null) return ingress.offer(raw, length, anInterface);
+    inbound_safely(new Transport(), raw, length, anInterface);
+    return false;
+  }
+
+  static void inbound_safely(Transport transport, byte[] raw, int length, Interface anInterface) {
+    try {
+      transport.inbound(raw, length, anInterface);
+    } catch (RuntimeException e) {
+      Rns.logError("An error in the processing of an incoming frame for {" + anInterface + "}:");
+      Rns.trace_exception(e);
+    }
+  }
+
+  public void inbound(byte[] raw, Interface anInterface) {
+    inbound(raw, raw.length, anInterface);
+  }
+
+  /**
+   * @param raw frame in the bytes from 0 to length, the array can be reused by the caller when the call returns
+   */
+  public void inbound(byte[] raw, int length, Interface anInterface) { // 1151
     // If the interface does not have IFAC enabled,
     // check the received packet IFAC flag.
     // If the flag is set, drop the packet
-    if ((raw[0] & 0x80) == 0x80) return;
+    if ((raw[0] & 0x80) == 0x80) {
+      Metrics.drop(Metrics.DROP_IFAC);
+      return;
+    }
     if (identity == null) return;
+    if (transport_enabled && forward(raw, length)) return;
     Packet packet = new Packet(null, raw);
-    if (!packet.unpack()) return;
-    if (packet.packet_type == rns.Packet.ANNOUNCE) {
-      if (!rns.Identity.validate_announce(packet, true)) throw new IllegalStateException();
-      rns.Identity.validate_announce(packet, false);
-      Identity announce_identity = rns.Identity.recall(packet.destination_hash, false);
-      // 1792
-      for (AnnounceHandler handler : announce_handlers) {
-        byte[] handler_expected_hash = rns.Destination.hash_from_name_and_identity(handler.aspect_filter(), announce_identity);
-        boolean execute_callback = Arrays.equals(packet.destination_hash, handler_expected_hash);
-        if (execute_callback) {
-          handler.received_announce(packet.destination_hash, announce_identity,
-              rns.Identity.recall_app_data(packet.destination_hash), packet.packet_hash,
-              packet.context == rns.Packet.PATH_RESPONSE);
-        }
+    long t = System.nanoTime();
+    if (!packet.unpack(length)) {
+      Metrics.drop(Metrics.DROP_MALFORMED);
+      return;
+    }
+    Metrics.unpack.record_since(t);
+    Metrics.received(packet.packet_type);
+    packet.receiving_interface = anInterface;
+    packet.hops += 1;
+    // Drop copies of packets that already arrived over another path
+    // before any signature work is done on them, keep-alives repeat the same bytes and are never filtered
+    if (packet.context != Packet.KEEPALIVE && packet_hashlist.contains_or_add(packet.get_hash())) {
+      if (packet.packet_type != Packet.ANNOUNCE || !duplicate_announce(packet)) Metrics.drop(Metrics.DROP_DUPLICATE);
+      return;
+    }
+    if (packet.packet_type == Packet.ANNOUNCE) {
+      // verified asynchronously, so it can not stay in the receive buffer
+      announce_verifier.submit(packet.detach());
+    } else if (packet.packet_type == Packet.LINKREQUEST) { // 1866
+      int transport_id = packet.view().transport_id_offset();
+      if (transport_id >= 0 && !Arrays.equals(raw, transport_id, transport_id + Packet.DST_LEN,
+          identity.hash, 0, Packet.DST_LEN)) return;
+      Destination destination = destinations.get(
+          ByteBuffer.wrap(raw, packet.view().destination_hash_offset(), Packet.DST_LEN));
+      if (destination != null && destination.type == Destination.SINGLE) destination.receive(packet);
+    } else if (packet.destination_type == Destination.LINK) { // 1903
+      boolean proof = packet.packet_type == Packet.PROOF && packet.context == Packet.LRPROOF;
+      Link link = find_link(raw, packet.view().destination_hash_offset(), proof ? null : anInterface);
+      if (link == null) return;
+      if (proof) {
+        link.validate_proof(packet);
+      } else {
+        link.receive(packet);
       }
+    } else if (packet.packet_type == Packet.DATA) { // 1914
+      Destination destination = destinations.get(
+          ByteBuffer.wrap(raw, packet.view().destination_hash_offset(), Packet.DST_LEN));
+      if (destination != null && destination.type == packet.destination_type) destination.receive(packet);
+    }
+  }
+
+  /**
+   * Forwarding fast path for a packet that names this node as its next transport and whose
+   * destination has a known path. Only the header bytes are changed in the receive buffer,
+   * the packet is neither unpacked nor hashed before it is framed for the outbound interface.
+   * A packet that travelled more than PATHFINDER_M hops is dropped.
+   * @return true if the packet was forwarded or dropped
+   */
+  static boolean forward(byte[] raw, int length) { // 1356
+    if (length < Reticulum.HEADER_MAXSIZE) return false;
+    int flags = raw[0] & 0xFF;
+    if ((flags >> 6 & 1) != Packet.HEADER_2 || (flags & 0x03) == Packet.ANNOUNCE) return false;
+    if (!Arrays.equals(raw, 2, 2 + Packet.DST_LEN, identity.hash, 0, Packet.DST_LEN)) return false;
+    PathTable.Path path = path_table.get(raw, 2 + Packet.DST_LEN);
+    if (path == null || path.receiving_interface == null) return false;
+    int hops = (raw[1] & 0xFF) + 1;
+    if (hops > PATHFINDER_M) {
+      Metrics.drop(Metrics.DROP_MAX_HOPS);
+      return true;
+    }
+    int offset = 0;
+    if (path.hops > 1) {
+      // Just increase hop count and transmit
+      raw[1] = (byte) hops;
+      System.arraycopy(path.next_hop, 0, raw, 2, Packet.DST_LEN);
+    } else if (path.hops == 1) {
+      // Strip transport headers and transmit, the header is written over the end of the transport id
+      offset = Packet.DST_LEN;
+      raw[offset] = (byte) (Packet.HEADER_1 << 6 | flags & 0x20 | BROADCAST << 4 | flags & 0x0F);
+      raw[offset + 1] = (byte) hops;
+    } else {
+      // Just increase hop count and transmit
+      raw[1] = (byte) hops;
+    }
+    if (!transmit(path.receiving_interface, raw, offset, length - offset)) return false;
+    forwarded.increment();
+    return true;
+  }
+
+  /**
+   * Packs and sends a packet, over the path to its destination when one is known,
+   * otherwise on every interface that is online. The packet hash goes to the
+   * packet hashlist, so the packet is not processed again if it comes back.
+   * @return true if the packet was sent
+   */
+  public static boolean outbound(PacketBuilder packet, byte[] packet_hash) { // 926
+    return outbound(packet, packet_hash, null);
+  }
 
+  /**
+   * @param attached_interface interface of the link the packet belongs to, it is sent there as is
+   */
+  static boolean outbound(PacketBuilder packet, byte[] packet_hash, Interface attached_interface) {
+    if (attached_interface != null) {
+      packet.pack();
+      packet.get_hash(packet_hash);
+      if (packet.context != Packet.KEEPALIVE) packet_hashlist.contains_or_add(packet_hash);
+      return transmit(attached_interface, packet.raw(), packet.offset(), packet.length());
+    }
+    PathTable.Path path = packet.packet_type == Packet.ANNOUNCE || packet.destination_type == Destination.PLAIN
+        || packet.destination_type == Destination.GROUP ? null : path_table.get(packet.destination_hash());
+    if (path != null && path.receiving_interface != null && path.hops > 1 && packet.header_type == Packet.HEADER_1) {
+      // Insert packet into transport
+      packet.pack(Packet.HEADER_2, TRANSPORT, path.next_hop);
+    } else {
+      packet.pack();
+    }
+    packet.get_hash(packet_hash);
+    packet_hashlist.contains_or_add(packet_hash);
+    boolean sent = false;
+    if (path != null && path.receiving_interface != null) {
+      sent = transmit(path.receiving_interface, packet.raw(), packet.offset(), packet.length());
+    } else {
+      for (Interface anInterface : interfaces) {
+        if (!anInterface.online || !anInterface.OUT) continue;
+        sent |= transmit(anInterface, packet.raw(), packet.offset(), packet.length());
+      }
     }
+    return sent;
+  }
+
+  /**
+   * @return false if the interface can not send or failed to send the packet
+   */
+  static boolean transmit(Interface anInterface, byte[] raw, int offset, int length) { // 922
+    return transmit(anInterface, raw, offset, length, true);
+  }
+
+  /**
+   * Sends a frame that fills the array, the interface gets the array itself.
+   */
+  static boolean transmit(Interface anInterface, byte[] raw) {
+    return transmit(anInterface, raw, 0, raw.length, false);
+  }
+
+  private static boolean transmit(Interface anInterface, byte[] raw, int offset, int length, boolean copy) {
+    if (!anInterface.OUT) return false;
+    try {
+      if (!(copy ? anInterface.process_outgoing(raw, offset, length) : anInterface.process_outgoing(raw))) {
+        return false;
+      }
+      Metrics.sent(raw[offset]);
+      return true;
+    } catch (RuntimeException e) {
+      Rns.logError("Error while transmitting on " + anInterface);
+      Rns.trace_exception(e);
+      return false;
+    }
+  }
+
+  public static void register_destination(Destination destination) { // 2128
+    if (destination.direction != Destination.IN) return;
+    if (destinations.putIfAbsent(ByteBuffer.wrap(destination.hash), destination) != null) {
+      throw new IllegalStateException("Attempt to register an already registered destination " + destination);
+    }
+  }
+
+  public static void deregister_destination(Destination destination) { // 2149
+    destinations.remove(ByteBuffer.wrap(destination.hash), destination);
+  }
+
+  /**
+   * Adds an interface created while running, such as the interface of a client connected to a server.
+   */
+  public static void register_interface(Interface anInterface) {
+    if (!interfaces.contains(anInterface)) interfaces.add(anInterface);
+  }
+
+  public static void deregister_interface(Interface anInterface) {
+    interfaces.remove(anInterface);
+  }
+
+  /**
+   * @return the interfaces Transport sends on, for monitoring
+   */
+  public static List<Interface> interfaces() {
+    return Collections.unmodifiableList(interfaces);
+  }
+
+  static void register_link(Link link) { // 2153
+    active_links.merge(ByteBuffer.wrap(link.link_id), new Link[]{link}, (links, added) -> {
+      Link[] merged = Arrays.copyOf(links, links.length + 1);
+      merged[links.length] = link;
+      return merged;
+    });
+  }
+
+  static void deregister_link(Link link) {
+    active_links.computeIfPresent(ByteBuffer.wrap(link.link_id), (key, links) -> {
+      Link[] remaining = Arrays.stream(links).filter(l -> l != link).toArray(Link[]::new);
+      return remaining.length == 0 ? null : remaining;
+    });
+  }
+
+  /**
+   * Looks up a link by the id stored in the receive buffer, without allocating a key.
+   * @param anInterface the receiving interface, which must be the one the link is attached to,
+   *     null for a pending link
+   */
+  static Link find_link(byte[] raw, int offset, Interface anInterface) {
+    Link[] links = active_links.get(ByteBuffer.wrap(raw, offset, Packet.DST_LEN));
+    if (links == null) return null;
+    for (Link link : links) {
+      if (anInterface == null ? link.initiator && link.status == Link.PENDING : link.attached_interface == anInterface) {
+        return link;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return number of pending and active links
+   */
+  public static int link_count() {
+    int count = 0;
+    for (Link[] links : active_links.values()) count += links.length;
+    return count;
+  }
+
+  /**
+   * @return number of packets forwarded by the fast path
+   */
+  public static long forwarded_count() {
+    return forwarded.sum();
+  }
+
+  /**
+   * Second half of the announce processing, called by the announce verifier in arrival order.
+   */
+  static void inbound_announce(Packet packet) {
+    rns.Identity.remember_announce(packet);
+    if (update_path(packet, System.currentTimeMillis()) && transport_enabled) rebroadcast(packet);
+    long t = System.nanoTime();
+    dispatch_announce(packet);
+    Metrics.dispatch.record_since(t);
+  }
+
+  static void dispatch_announce(Packet packet) { // 1792
+    // the announce passed the destination check, so a handler matches exactly when its name hash does
+    AnnounceHandlerIndex index = announce_handler_index;
+    byte[] raw = packet.view().raw();
+    int name_hash = packet.view().data_offset() + rns.Identity.KEYSIZE / 8;
+    AnnounceHandlerIndex.Entry[] entries = index.get(DestinationTable.key0(raw, name_hash));
+    if (entries.length == 0) return;
+    byte[] destination_hash = packet.get_destination_hash();
+    Identity announce_identity = rns.Identity.recall(destination_hash, false);
+    for (AnnounceHandlerIndex.Entry entry : entries) {
+      byte[] filter = entry.name_hash;
+      if (filter == null || Arrays.equals(raw, name_hash, name_hash + filter.length, filter, 0, filter.length)) {
+        received_announce(entry.handler, packet, destination_hash, announce_identity);
+      }
+    }
+  }
+
+  /**
+   * Another copy of an announce that is already in the path table, it is not verified again as its
+   * signed bytes are the same. The copy only replaces the path when it came over fewer hops or the
+   * stored path expired, the announce handlers have seen the announce already.
+   * @return true if the path was updated
+   */
+  static boolean duplicate_announce(Packet packet) {
+    PathTable.Path known = path_table.get(packet.get_destination_hash());
+    if (known == null || !Arrays.equals(known.packet_hash, packet.get_hash())) return false;
+    long now = System.currentTimeMillis();
+    if (packet.hops >= known.hops && now <= known.expires) return false;
+    return update_path(packet, now);
+  }
+
+  /**
+   * Records the path of a validated announce, the next hop is the transport that
+   * forwarded it or the destination itself when it was received directly.
+   */
+  static boolean update_path(Packet packet, long now) { // 1560
+    // a path must lead to an interface the packets can be sent on
+    if (packet.receiving_interface != null && !packet.receiving_interface.OUT) return false;
+    byte[] received_from = packet.header_type == Packet.HEADER_2
+        ? packet.get_transport_id() : packet.get_destination_hash();
+    PathTable.Path path = new PathTable.Path(received_from, packet.hops, now, now + PATHFINDER_E * 1000L,
+        announce_emitted(packet), packet.receiving_interface, packet.get_hash());
+    boolean updated = path_table.update(packet.get_destination_hash(), path, now);
+    if (updated) Rns.log("Destination {0} is now {1} hops away via {2} on {3}", Rns.LOG_DEBUG,
+        Rns.hexrep(packet.get_destination_hash()), packet.hops, Rns.hexrep(received_from), packet.receiving_interface);
+    return updated;
+  }
+
+  /**
+   * Retransmits an announce that gave a new or better path on the other interfaces, as coming from
+   * this transport node. The announce queues of the interfaces pace and coalesce the retransmissions.
+   */
+  static void rebroadcast(Packet packet) { // 516
+    PacketView view = packet.view();
+    byte[] raw = view.raw();
+    int destination = view.offset() + (packet.header_type == Packet.HEADER_2 ? 2 + Packet.DST_LEN : 2);
+    int length = view.offset() + view.length() - destination;
+    byte[] new_raw = new byte[2 + Packet.DST_LEN + length];
+    new_raw[0] = (byte) (Packet.HEADER_2 << 6 | packet.flags & 0x20 | TRANSPORT << 4 | packet.flags & 0x0F);
+    new_raw[1] = (byte) packet.hops;
+    System.arraycopy(identity.hash, 0, new_raw, 2, Packet.DST_LEN);
+    System.arraycopy(raw, destination, new_raw, 2 + Packet.DST_LEN, length);
+    outbound_announce(packet.get_destination_hash(), packet.hops, announce_emitted(packet), new_raw,
+        packet.receiving_interface);
+  }
+
+  /**
+   * Sends an announce created by this node on every interface. Its hash goes to the
+   * packet hashlist, so the announce is not processed when it is heard back.
+   */
+  static void outbound_announce(byte[] raw) {
+    Packet packet = new Packet(null, raw);
+    packet.unpack();
+    packet_hashlist.contains_or_add(packet.get_hash());
+    outbound_announce(packet.get_destination_hash(), 0, announce_emitted(packet), raw, null);
+  }
+
+  /**
+   * Queues an announce on every interface that is online except the given one.
+   */
+  static void outbound_announce(byte[] destination_hash, int hops, long emitted, byte[] raw, Interface except) {
+    for (Interface anInterface : interfaces) {
+      if (anInterface == except || !anInterface.online || !anInterface.OUT) continue;
+      announce_queue(anInterface).submit(destination_hash, hops, emitted, raw);
+    }
+  }
+
+  /**
+   * @return announce queue of the interface, created on first use
+   */
+  public static AnnounceScheduler announce_queue(Interface anInterface) {
+    AnnounceScheduler announce_queue = anInterface.announce_queue;
+    if (announce_queue == null) synchronized (anInterface) {
+      announce_queue = anInterface.announce_queue;
+      if (announce_queue == null) {
+        announce_queue = new AnnounceScheduler(anInterface, announce_jobs, max_queued_announces);
+        anInterface.announce_queue = announce_queue;
+      }
+    }
+    return announce_queue;
+  }
+
+  /**
+   * @return the emission timestamp in seconds, the last 5 bytes of the random hash of an announce
+   */
+  static long announce_emitted(Packet packet) {
+    byte[] raw = packet.view().raw();
+    int emitted = packet.view().data_offset() + rns.Identity.KEYSIZE / 8 + rns.Identity.NAME_HASH_LENGTH / 8 + 5;
+    long timestamp = 0;
+    for (int i = 0; i < 5; i++) timestamp = timestamp << 8 | raw[emitted + i] & 0xFF;
+    return timestamp;
+  }
+
+  public static boolean has_path(byte[] destination_hash) { // 2244
+    return path_table.get(destination_hash) != null;
+  }
+
+  /**
+   * @return number of hops to the destination or PATHFINDER_M if the path is unknown
+   */
+  public static int hops_to(byte[] destination_hash) { // 2256
+    PathTable.Path path = path_table.get(destination_hash);
+    return path == null ? PATHFINDER_M : path.hops;
+  }
+
+  public static byte[] next_hop(byte[] destination_hash) { // 2269
+    PathTable.Path path = path_table.get(destination_hash);
+    return path == null ? null : path.next_hop;
+  }
+
+  public static Interface next_hop_interface(byte[] destination_hash) { // 2282
+    PathTable.Path path = path_table.get(destination_hash);
+    return path == null ? null : path.receiving_interface;
+  }
+
+  public static boolean expire_path(byte[] destination_hash) { // 2305
+    return path_table.remove(destination_hash);
+  }
+
+  /**
+   * @return pool that signs the announces of Destination.announce_all
+   */
+  public static AnnounceSigner announce_signer() {
+    return announce_signer;
+  }
+
+  /**
+   * @return the path table, for monitoring its size
+   */
+  public static PathTable path_table() {
+    return path_table;
+  }
+
+  private static void received_announce(AnnounceHandler handler, Packet packet, byte[] destination_hash,
+      Identity announce_identity) {
+    handler.received_announce(destination_hash, announce_identity,
+        rns.Identity.recall_app_data(destination_hash), packet.get_hash(),
+        packet.context == Packet.PATH_RESPONSE);
+  }
+
+  /**
+   * @return the duplicate filter, for monitoring the duplicate drop count
+   */
+  public static PacketHashlist packet_hashlist() {
+    return packet_hashlist;
+  }
+
+  /**
+   * @return the ingress queue, null until Transport is started
+   */
+  public static Ingress ingress() {
+    return ingress;
+  }
+
+  /**
+   * @return pool of MTU-sized frame buffers shared by the interfaces
+   */
+  public static BufferPool buffer_pool() {
+    return buffer_pool;
+  }
+
+  /**
+   * @return the announce verification stage, for monitoring its queue depth and worker utilization
+   */
+  public static AnnounceVerifier announce_verifier() {
+    return announce_verifier;
   }
 
   public interface AnnounceHandler {
@@ -83,6 +648,9 @@ public class Transport {
     default boolean receive_path_responses() {
       return false;
     }
+    /**
+     * @return full destination name without identity, or null to receive all announces
+     */
     String aspect_filter();
   }
 
@@ -95,8 +663,88 @@ public class Transport {
    *   callable. Can optionally have a *receive_path_responses* attribute set to ``True``, to also receive all path
    *   responses, in addition to live announces. See the :ref:`Announce Example<example-announce>` for more info.
    */
-  public static void register_announce_handler(AnnounceHandler handler) { // 2167
+  public static synchronized void register_announce_handler(AnnounceHandler handler) { // 2167
     announce_handlers.add(handler);
+    announce_handler_index = new AnnounceHandlerIndex(announce_handlers);
+  }
+
+  /**
+   * Deregisters an announce handler.
+   * @param handler The announce handler to be deregistered.
+   */
+  public static synchronized void deregister_announce_handler(AnnounceHandler handler) { // 2182
+    announce_handlers.remove(handler);
+    announce_handler_index = new AnnounceHandlerIndex(announce_handlers);
+  }
+
+  /**
+   * Immutable lookup from the announced name hash to the handlers, rebuilt on every registration.
+   * Handlers without an aspect filter receive all announces, every handler is called in registration order.
+   */
+  static class AnnounceHandlerIndex {
+    // open addressing on the first 8 bytes of the name hash, a slot is used when its entries are not null
+    private final long[] keys;
+    private final Entry[][] entries;
+    private final int mask;
+    final Entry[] accept_all;
+
+    AnnounceHandlerIndex(Collection<AnnounceHandler> announce_handlers) {
+      List<Entry> all = new ArrayList<>();
+      List<Entry> accept_all = new ArrayList<>();
+      for (AnnounceHandler handler : announce_handlers) {
+        String aspect_filter = handler.aspect_filter();
+        byte[] name_hash = aspect_filter == null ? null : rns.Destination.name_hash_from_name(aspect_filter);
+        Entry entry = new Entry(name_hash, handler);
+        all.add(entry);
+        if (entry.name_hash == null) accept_all.add(entry);
+      }
+      this.accept_all = accept_all.toArray(new Entry[0]);
+      int capacity = Integer.highestOneBit(Math.max(1, all.size() - accept_all.size()) * 2 - 1) << 1;
+      keys = new long[capacity];
+      entries = new Entry[capacity][];
+      mask = capacity - 1;
+      for (Entry entry : all) {
+        if (entry.name_hash == null) continue;
+        long key = DestinationTable.key0(entry.name_hash, 0);
+        int slot = slot(key);
+        if (entries[slot] != null) continue;
+        // the handlers that accept all announces stay in their registration order among the filtered ones
+        List<Entry> matching = new ArrayList<>();
+        for (Entry e : all) {
+          if (e.name_hash == null || DestinationTable.key0(e.name_hash, 0) == key) matching.add(e);
+        }
+        keys[slot] = key;
+        entries[slot] = matching.toArray(new Entry[0]);
+      }
+    }
+
+    /**
+     * @return slot of the key, or the empty slot where it would go
+     */
+    private int slot(long key) {
+      int slot = (int) (key ^ key >>> 32) & mask;
+      while (entries[slot] != null && keys[slot] != key) slot = slot + 1 & mask;
+      return slot;
+    }
+
+    /**
+     * @return handlers that may match the name hash, in registration order, the name hash of
+     *     an entry is null if it accepts all announces
+     */
+    Entry[] get(long key) {
+      Entry[] found = entries[slot(key)];
+      return found == null ? accept_all : found;
+    }
+
+    static class Entry {
+      final byte[] name_hash;
+      final AnnounceHandler handler;
+
+      Entry(byte[] name_hash, AnnounceHandler handler) {
+        this.name_hash = name_hash;
+        this.handler = handler;
+      }
+    }
   }
 
 }
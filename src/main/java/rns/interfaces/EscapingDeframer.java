@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import rns.BufferPool;
+import rns.Reticulum;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Incremental deframer of the escaping framings. The input is consumed as it arrives,
+ * in chunks of any size, the state is kept between the chunks, so a frame split over
+ * many reads is scanned once. The frame is unescaped directly into a pooled buffer
+ * that is handed to the receiver when the closing flag arrives. The closing flag
+ * also opens the next frame. Runs of plain bytes are found a word at a time and copied in bulk.
+ *
+ * Frames not longer than the minimal header and frames longer than max_length are dropped.
+ */
+abstract class EscapingDeframer implements Framer.Deframer {
+
+  private final byte flag;
+  private final byte escape;
+  private final long flags;
+  private final long escapes;
+  private final int header;
+  private final BufferPool pool;
+  private final int max_length;
+  private final Framer.Receiver receiver;
+  private byte[] buffer;
+  private int length;
+  private boolean in_frame;
+  private boolean escaped;
+  private boolean overflow;
+  private boolean ignore;
+  private int skip;
+  private long dropped;
+
+  /**
+   * @param header number of command bytes that follow the opening flag
+   */
+  EscapingDeframer(byte flag, byte escape, int header, BufferPool pool, int max_length, Framer.Receiver receiver) {
+    this.flag = flag;
+    this.escape = escape;
+    this.flags = Swar.broadcast(flag);
+    this.escapes = Swar.broadcast(escape);
+    this.header = header;
+    this.pool = pool;
+    this.max_length = max_length;
+    this.receiver = receiver;
+  }
+
+  /**
+   * @return the byte of the escape sequence ending with b, -1 if the escape byte is kept as is
+   */
+  abstract int unescape(byte b);
+
+  /**
+   * @return false to ignore the frame
+   */
+  boolean command(byte b) {
+    return true;
+  }
+
+  public void receive(byte[] data, int offset, int length) {
+    receive(ByteBuffer.wrap(data, offset, length));
+  }
+
+  @Override
+  public void receive(ByteBuffer data) {
+    if (!data.hasArray()) {
+      while (data.hasRemaining()) accept(data.get());
+      return;
+    }
+    byte[] array = data.array();
+    int i = data.arrayOffset() + data.position();
+    int end = i + data.remaining();
+    data.position(data.limit());
+    while (i < end) {
+      if (!in_frame) {
+        // hunt for the opening flag
+        while (i < end && array[i] != flag) i++;
+        if (i == end) return;
+        i++;
+        start();
+        continue;
+      }
+      if (escaped || overflow || ignore || skip > 0) {
+        accept(array[i++]);
+        continue;
+      }
+      int special = Swar.indexOf(array, i, end, flags, escapes);
+      if (special > i) {
+        append(array, i, special - i);
+        i = special;
+      }
+      if (i < end) accept(array[i++]);
+    }
+  }
+
+  private void start() {
+    in_frame = true;
+    escaped = false;
+    overflow = false;
+    ignore = false;
+    skip = header;
+    length = 0;
+  }
+
+  private void accept(byte b) {
+    if (b == flag) {
+      if (in_frame) {
+        if (escaped && unescape(b) < 0) put(escape);
+        end();
+      }
+      start();
+      return;
+    }
+    if (!in_frame || ignore) return;
+    if (skip > 0) {
+      skip--;
+      if (!command(b)) ignore = true;
+      return;
+    }
+    if (escaped) {
+      escaped = false;
+      int u = unescape(b);
+      if (u >= 0) {
+        put((byte) u);
+        return;
+      }
+      put(escape);
+    }
+    if (b == escape) {
+      escaped = true;
+    } else {
+      put(b);
+    }
+  }
+
+  private void put(byte b) {
+    if (!reserve(1)) return;
+    buffer[length++] = b;
+  }
+
+  private void append(byte[] array, int offset, int n) {
+    if (!reserve(n)) return;
+    System.arraycopy(array, offset, buffer, length, n);
+    length += n;
+  }
+
+  private boolean reserve(int n) {
+    if (overflow) return false;
+    if (length + n > max_length) {
+      overflow = true;
+      return false;
+    }
+    if (buffer == null) buffer = pool.acquire();
+    if (length + n > buffer.length) {
+      // frames above the pool buffer size are rare, the larger array is not returned to the pool
+      buffer = Arrays.copyOf(buffer, Math.min(max_length, Math.max(length + n, 2 * buffer.length)));
+    }
+    return true;
+  }
+
+  private void end() {
+    in_frame = false;
+    if (ignore) return;
+    if (overflow || length <= Reticulum.HEADER_MINSIZE) {
+      if (length > 0 || overflow) dropped++;
+      return;
+    }
+    if (receiver.frame(buffer, length)) {
+      buffer = null;
+    } else if (buffer.length != pool.buffer_size()) {
+      buffer = null;
+    }
+  }
+
+  @Override
+  public long dropped() {
+    return dropped;
+  }
+
+}
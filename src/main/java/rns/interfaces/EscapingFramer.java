@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encoder of the framings that enclose the payload in flags and escape
+ * the flag and escape bytes with a two-byte sequence. The payload is scanned
+ * for these bytes a word at a time and copied in runs, a payload without them
+ * is copied with a single arraycopy.
+ */
+abstract class EscapingFramer implements Framer {
+
+  final byte flag;
+  final byte escape;
+  final long flags;
+  final long escapes;
+  private final byte[] header;
+
+  /**
+   * @param header bytes that follow the opening flag
+   */
+  EscapingFramer(byte flag, byte escape, byte... header) {
+    this.flag = flag;
+    this.escape = escape;
+    this.flags = Swar.broadcast(flag);
+    this.escapes = Swar.broadcast(escape);
+    this.header = header;
+  }
+
+  /**
+   * @return the second byte of the escape sequence of a flag or escape byte
+   */
+  abstract byte escaped(byte b);
+
+  @Override
+  public int max_encoded_length(int length) {
+    return 2 * length + header.length + 2;
+  }
+
+  @Override
+  public void encode(ByteBuffer data, ByteBuffer out) {
+    int length = data.remaining();
+    if (data.hasArray() && out.hasArray() && !out.isReadOnly()) {
+      int from = data.arrayOffset() + data.position();
+      int at = out.arrayOffset() + out.position();
+      int end = encode(data.array(), from, from + length, out.array(), at, at + out.remaining());
+      out.position(out.position() + end - at);
+    } else {
+      out.position(encode(data, data.position(), data.limit(), out, out.position(), out.limit()));
+    }
+    data.position(data.limit());
+  }
+
+  /**
+   * Encodes with absolute gets and puts, for the direct buffers that have no array to copy runs from.
+   * @return end of the frame in dst
+   */
+  int encode(ByteBuffer src, int from, int to, ByteBuffer dst, int at, int end) {
+    if (end - at < to - from + header.length + 2) throw new BufferOverflowException();
+    int p = at;
+    dst.put(p++, flag);
+    for (byte b : header) dst.put(p++, b);
+    for (int i = from; i < to; i++) {
+      byte b = src.get(i);
+      boolean special = b == flag || b == escape;
+      // the closing flag is always reserved
+      if (end - p < (special ? 3 : 2)) throw new BufferOverflowException();
+      if (special) {
+        dst.put(p++, escape);
+        dst.put(p++, escaped(b));
+      } else {
+        dst.put(p++, b);
+      }
+    }
+    dst.put(p++, flag);
+    return p;
+  }
+
+  /**
+   * @return end of the frame in dst
+   */
+  int encode(byte[] src, int from, int to, byte[] dst, int at, int end) {
+    if (end - at < to - from + header.length + 2) throw new BufferOverflowException();
+    int p = at;
+    dst[p++] = flag;
+    for (byte b : header) dst[p++] = b;
+    for (int i = from; ; ) {
+      int special = Swar.indexOf(src, i, to, flags, escapes);
+      int run = special - i;
+      // the closing flag is always reserved
+      if (end - p < run + 1) throw new BufferOverflowException();
+      System.arraycopy(src, i, dst, p, run);
+      p += run;
+      if (special == to) break;
+      if (end - p < 3) throw new BufferOverflowException();
+      dst[p++] = escape;
+      dst[p++] = escaped(src[special]);
+      i = special + 1;
+    }
+    dst[p++] = flag;
+    return p;
+  }
+
+}
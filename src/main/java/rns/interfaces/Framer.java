@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import rns.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Framing of packets on a byte stream. The framing of an interface is selected
+ * by name with forName, both framings escape the payload, so a frame needs
+ * at most max_encoded_length bytes.
+ */
+public interface Framer {
+
+  Framer HDLC = new HdlcFramer();
+  Framer KISS = new KissFramer();
+
+  static Framer forName(String name) {
+    switch (name.toLowerCase(Locale.ROOT)) {
+      case "hdlc": return HDLC;
+      case "kiss": return KISS;
+      default: throw new IllegalArgumentException("Unknown framing " + name);
+    }
+  }
+
+  String name();
+
+  int max_encoded_length(int length);
+
+  /**
+   * Encodes the remaining bytes of data as one frame into out.
+   * @throws java.nio.BufferOverflowException if the frame does not fit, out is left unchanged
+   */
+  void encode(ByteBuffer data, ByteBuffer out);
+
+  /**
+   * @param max_length longer frames are dropped
+   */
+  Deframer deframer(BufferPool pool, int max_length, Receiver receiver);
+
+  interface Receiver {
+    /**
+     * @param frame decoded frame in the bytes from 0 to length
+     * @return true if the receiver keeps the buffer and releases it to the pool itself,
+     * false if the buffer can be reused as soon as the call returns
+     */
+    boolean frame(byte[] frame, int length);
+  }
+
+  /**
+   * Decodes a byte stream that arrives in chunks of any size, not thread safe.
+   */
+  interface Deframer {
+    /**
+     * Consumes all remaining bytes of the buffer.
+     */
+    void receive(ByteBuffer data);
+
+    /**
+     * @return number of frames dropped as too short or too long
+     */
+    long dropped();
+  }
+
+}
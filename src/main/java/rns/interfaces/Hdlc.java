@@ -17,6 +17,7 @@
 
 package rns.interfaces;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 // https://en.wikipedia.org/wiki/High-Level_Data_Link_Control
@@ -26,39 +27,13 @@ public class Hdlc {
   public static final byte ESCAPE = 0x7D;
   public static final byte MASK = 0x20;
 
-  public static byte[] escape() {
-    return null;
-  }
-
-  public static byte[] unescape(byte[] data) {
-    byte[] bytes = new byte[data.length];
-    int length = 0;
-    for (int i = 0; i < data.length; i++) {
-      byte b = data[i];
-      if (b == FLAG) throw new IllegalStateException(); // end of frame
-      if (b == ESCAPE) {
-        b = (byte) (data[++i] ^ MASK);
-        if (b != FLAG && b != ESCAPE) throw new IllegalStateException();
-      }
-      bytes[length++] = b;
-    }
-    return Arrays.copyOf(bytes, length);
-  }
-
-  public static byte[] decode(byte[] data) {
-    if (data.length < 1 || data[0] != FLAG) throw new IllegalStateException();
-    byte[] bytes = new byte[data.length];
-    int length = 0;
-    for (int i = 1; i < data.length; i++) {
-      byte b = data[i];
-      if (b == FLAG) break; // end of frame
-      if (b == ESCAPE) {
-        b = (byte) (data[++i] ^ MASK);
-        if (b != FLAG && b != ESCAPE) throw new IllegalStateException();
-      }
-      bytes[length++] = b;
-    }
-    return Arrays.copyOf(bytes, length);
+  /**
+   * @return the data escaped and enclosed in flags
+   */
+  public static byte[] encode(byte[] data) {
+    ByteBuffer out = ByteBuffer.allocate(Framer.HDLC.max_encoded_length(data.length));
+    Framer.HDLC.encode(ByteBuffer.wrap(data), out);
+    return Arrays.copyOf(out.array(), out.position());
   }
 
 }
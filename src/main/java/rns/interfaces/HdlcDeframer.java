@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import rns.BufferPool;
+
+/**
+ * HDLC deframer. Escapes are undone the way the Python implementation does it,
+ * an escape byte followed by anything but an escaped flag or escape is kept as is.
+ */
+public class HdlcDeframer extends EscapingDeframer {
+
+  public HdlcDeframer(BufferPool pool, int max_length, Framer.Receiver receiver) {
+    super(Hdlc.FLAG, Hdlc.ESCAPE, 0, pool, max_length, receiver);
+  }
+
+  @Override
+  int unescape(byte b) {
+    byte u = (byte) (b ^ Hdlc.MASK);
+    return u == Hdlc.FLAG || u == Hdlc.ESCAPE ? u & 0xFF : -1;
+  }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import rns.BufferPool;
+
+class HdlcFramer extends EscapingFramer {
+
+  HdlcFramer() {
+    super(Hdlc.FLAG, Hdlc.ESCAPE);
+  }
+
+  @Override
+  public String name() {
+    return "hdlc";
+  }
+
+  @Override
+  byte escaped(byte b) {
+    return (byte) (b ^ Hdlc.MASK);
+  }
+
+  @Override
+  public Framer.Deframer deframer(BufferPool pool, int max_length, Framer.Receiver receiver) {
+    return new HdlcDeframer(pool, max_length, receiver);
+  }
+
+}
@@ -17,7 +17,104 @@
 
 package rns.interfaces;
 
-public class Interface {
-  public int rxb = 0;
-  public int txb = 0;
+import rns.AnnounceScheduler;
+import rns.Reticulum;
+import rns.Transport;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An interface moves frames between a medium and Transport. Received frames are
+ * passed to process_incoming, which queues them for the Transport ingress workers,
+ * so a reader thread only deals with its medium and never waits for packet processing.
+ */
+public abstract class Interface {
+  public String name;
+  /**
+   * Bytes and frames as they are on the medium, counted by the reader and the writer threads.
+   */
+  public final LongAdder rxb = new LongAdder();
+  public final LongAdder txb = new LongAdder();
+  public final LongAdder rx_frames = new LongAdder();
+  public final LongAdder tx_frames = new LongAdder();
+  public volatile boolean online;
+  /**
+   * False for interfaces that only observe traffic, they are not used for paths and are not sent to.
+   */
+  public boolean OUT = true;
+  /**
+   * Bits per second, 0 if unknown, the announces are not capped then.
+   */
+  public double bitrate;
+  /**
+   * Share of the bitrate the announces may use.
+   */
+  public double announce_cap = Reticulum.ANNOUNCE_CAP / 100.0;
+  public volatile AnnounceScheduler announce_queue;
+  Interface parent_interface;
+
+  /**
+   * Starts the reader threads of the interface.
+   */
+  public void start() {
+  }
+
+  public void detach() {
+    online = false;
+  }
+
+  /**
+   * Sends a packet, the interface frames it as its medium requires.
+   * @return false if the packet could not be written to the medium
+   */
+  public abstract boolean process_outgoing(byte[] data);
+
+  /**
+   * Sends the packet in the bytes from offset to offset + length, the array can be reused when the call returns.
+   */
+  public boolean process_outgoing(byte[] data, int offset, int length) {
+    return process_outgoing(Arrays.copyOfRange(data, offset, offset + length));
+  }
+
+  /**
+   * Counts a received frame and passes it to Transport.
+   * @param data frame in the bytes from 0 to length
+   * @return true if the buffer was taken by the ingress queue, which releases it to the pool
+   */
+  boolean process_incoming(byte[] data, int length) {
+    rxb.add(length);
+    rx_frames.increment();
+    Interface parent_interface = this.parent_interface;
+    if (parent_interface != null) {
+      parent_interface.rxb.add(length);
+      parent_interface.rx_frames.increment();
+    }
+    return Transport.ingress(data, length, this);
+  }
+
+  /**
+   * Counts a frame written to the medium, on the parent interface too.
+   */
+  protected void sent(int length) {
+    txb.add(length);
+    tx_frames.increment();
+    Interface parent_interface = this.parent_interface;
+    if (parent_interface != null) {
+      parent_interface.txb.add(length);
+      parent_interface.tx_frames.increment();
+    }
+  }
+
+  Thread start_thread(Runnable runnable) {
+    Thread thread = new Thread(runnable, toString());
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  @Override
+  public String toString() {
+    return name == null ? super.toString() : name;
+  }
 }
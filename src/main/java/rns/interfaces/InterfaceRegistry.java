@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Creates the interfaces listed in reticulum.properties, for example
+ * <pre>
+ * interfaces = uplink, lan
+ * interface.uplink.type = TCPClientInterface
+ * interface.uplink.target_host = 127.0.0.1
+ * interface.uplink.target_port = 4242
+ * interface.lan.type = UDPInterface
+ * interface.lan.listen_ip = 0.0.0.0
+ * interface.lan.listen_port = 4242
+ * interface.lan.forward_ip = 255.255.255.255
+ * interface.lan.forward_port = 4242
+ * </pre>
+ * TCPClientInterface, TCPServerInterface and UDPInterface are supported, an interface
+ * with enabled = false is skipped. The TCP interfaces use HDLC framing unless
+ * kiss_framing = true or another framing is set with framing. Announces may use
+ * announce_cap percent of the bitrate in bits per second, both can be set for any interface.
+ */
+public final class InterfaceRegistry {
+
+  private InterfaceRegistry() {
+  }
+
+  public static List<Interface> load(Properties properties) {
+    List<Interface> interfaces = new ArrayList<>();
+    for (String name : properties.getProperty("interfaces", "").split(",")) {
+      name = name.trim();
+      if (name.isEmpty()) continue;
+      Interface anInterface = create(name, new Config(properties, "interface." + name + "."));
+      if (anInterface != null) interfaces.add(anInterface);
+    }
+    return interfaces;
+  }
+
+  static Interface create(String name, Config c) {
+    if (!Boolean.parseBoolean(c.get("enabled", "true"))) return null;
+    Interface anInterface = create_type(name, c);
+    anInterface.bitrate = Double.parseDouble(c.get("bitrate", Double.toString(anInterface.bitrate)));
+    double announce_cap = Double.parseDouble(c.get("announce_cap", Double.toString(anInterface.announce_cap * 100)));
+    if (announce_cap <= 0 || announce_cap > 100) throw new IllegalArgumentException("Invalid announce_cap for interface " + name);
+    anInterface.announce_cap = announce_cap / 100;
+    return anInterface;
+  }
+
+  private static Interface create_type(String name, Config c) {
+    String type = c.get("type", null);
+    if (type == null) throw new IllegalArgumentException("No type for interface " + name);
+    Framer framer = Framer.forName(c.get("framing", Boolean.parseBoolean(c.get("kiss_framing", "false")) ? "kiss" : "hdlc"));
+    switch (type) {
+      case "TCPClientInterface":
+        return new TCPInterface.TCPClientInterface("TCPInterface[" + name + "]",
+            c.required("target_host"), Integer.parseInt(c.required("target_port")), framer);
+      case "TCPServerInterface":
+        return new TCPInterface.TCPServerInterface("TCPServerInterface[" + name + "]",
+            c.get("listen_ip", "0.0.0.0"), Integer.parseInt(c.required("listen_port")), framer);
+      case "UDPInterface":
+        return new UDPInterface("UDPInterface[" + name + "]",
+            c.get("listen_ip", "0.0.0.0"), Integer.parseInt(c.required("listen_port")),
+            c.get("forward_ip", "255.255.255.255"), Integer.parseInt(c.get("forward_port", c.required("listen_port"))));
+      default:
+        throw new IllegalArgumentException("Unknown interface type " + type + " for interface " + name);
+    }
+  }
+
+  static class Config {
+    final Properties properties;
+    final String prefix;
+
+    Config(Properties properties, String prefix) {
+      this.properties = properties;
+      this.prefix = prefix;
+    }
+
+    String get(String key, String defaultValue) {
+      String value = properties.getProperty(prefix + key);
+      return value == null ? defaultValue : value.trim();
+    }
+
+    String required(String key) {
+      String value = get(key, null);
+      if (value == null) throw new IllegalArgumentException("Missing " + prefix + key);
+      return value;
+    }
+  }
+
+}
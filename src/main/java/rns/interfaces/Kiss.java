@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// https://en.wikipedia.org/wiki/KISS_(amateur_radio_protocol)
+public class Kiss {
+
+  public static final byte FEND = (byte) 0xC0;
+  public static final byte FESC = (byte) 0xDB;
+  public static final byte TFEND = (byte) 0xDC;
+  public static final byte TFESC = (byte) 0xDD;
+  public static final byte CMD_DATA = 0x00;
+
+  /**
+   * @return the data as a KISS data frame
+   */
+  public static byte[] encode(byte[] data) {
+    ByteBuffer out = ByteBuffer.allocate(Framer.KISS.max_encoded_length(data.length));
+    Framer.KISS.encode(ByteBuffer.wrap(data), out);
+    return Arrays.copyOf(out.array(), out.position());
+  }
+
+}
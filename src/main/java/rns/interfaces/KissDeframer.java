@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import rns.BufferPool;
+
+/**
+ * KISS deframer, only data frames are passed on. The port nibble of the command
+ * is ignored, an escape followed by anything but TFEND or TFESC is dropped.
+ */
+public class KissDeframer extends EscapingDeframer {
+
+  public KissDeframer(BufferPool pool, int max_length, Framer.Receiver receiver) {
+    super(Kiss.FEND, Kiss.FESC, 1, pool, max_length, receiver);
+  }
+
+  @Override
+  int unescape(byte b) {
+    if (b == Kiss.TFEND) return Kiss.FEND & 0xFF;
+    if (b == Kiss.TFESC) return Kiss.FESC & 0xFF;
+    return b & 0xFF;
+  }
+
+  @Override
+  boolean command(byte b) {
+    // only one port is supported, the port nibble is stripped off
+    return (b & 0x0F) == Kiss.CMD_DATA;
+  }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import rns.BufferPool;
+
+/**
+ * KISS data frames on port 0.
+ */
+class KissFramer extends EscapingFramer {
+
+  KissFramer() {
+    super(Kiss.FEND, Kiss.FESC, Kiss.CMD_DATA);
+  }
+
+  @Override
+  public String name() {
+    return "kiss";
+  }
+
+  @Override
+  byte escaped(byte b) {
+    return b == Kiss.FEND ? Kiss.TFEND : Kiss.TFESC;
+  }
+
+  @Override
+  public Framer.Deframer deframer(BufferPool pool, int max_length, Framer.Receiver receiver) {
+    return new KissDeframer(pool, max_length, receiver);
+  }
+
+}
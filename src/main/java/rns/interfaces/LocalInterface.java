@@ -17,47 +17,74 @@
 
 package rns.interfaces;
 
-import ab.Utils;
-import rns.Reticulum;
-import rns.Rns;
 import rns.Transport;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
 
 public class LocalInterface {
   public static class LocalClientInterface extends Interface {
-    Interface parent_interface;
-    byte[] frame_buffer = new byte[0];
-    Transport owner = new Transport();
+    public static final int BITRATE_GUESS = 1000 * 1000 * 1000;
+    public static final int HW_MTU = 262144;
+    public final Framer framer;
+    final Framer.Deframer deframer;
+
+    public LocalClientInterface() {
+      this(null, Framer.HDLC);
+    }
+
+    public LocalClientInterface(String name, Framer framer) {
+      this.name = name;
+      this.framer = framer;
+      this.bitrate = BITRATE_GUESS;
+      // only taps the forwarded traffic, the frames it sees are sent by the forwarder
+      this.OUT = false;
+      this.deframer = framer.deframer(Transport.buffer_pool(), HW_MTU, this::process_incoming);
+    }
 
     public void process_incoming(byte[] data) {
-      rxb += data.length;
-      Interface parent_interface = this.parent_interface;
-      if (parent_interface != null) parent_interface.rxb += data.length;
-      try {
-        owner.inbound(data, this);
-      } catch (Exception e) {
-        Rns.logError("An error in the processing of an incoming frame for {" + this + "}:");
-        Rns.trace_exception(e);
-      }
+      // the ingress queue recycles the buffers it takes, the caller keeps its array
+      process_incoming(data.clone(), data.length);
+    }
 
+    public void handle_hdlc(ByteBuffer data_in) {
+      deframer.receive(data_in);
     }
 
-    public void handle_hdlc(byte[] data_in) {
-      frame_buffer = Utils.concatenate(frame_buffer, data_in);
-      while (true) {
-        int frame_start = Utils.indexOf(frame_buffer, Hdlc.FLAG, 0);
-        if (frame_start < 0) return;
-        int frame_end = Utils.indexOf(frame_buffer, Hdlc.FLAG, frame_start + 1);
-        if (frame_end < 0) return;
-        byte[] frame = Hdlc.unescape(Arrays.copyOfRange(frame_buffer, frame_start + 1, frame_end));
-        if (frame.length > Reticulum.HEADER_MINSIZE) process_incoming(frame);
-        frame_buffer = Arrays.copyOfRange(frame_buffer, frame_end, frame_buffer.length);
-      }
+    /**
+     * The forwarder sends the frames, the interface only sees them.
+     * @return false
+     */
+    @Override
+    public boolean process_outgoing(byte[] data) {
+      return false;
+    }
+
+    /**
+     * Frames the packet for the wire.
+     * @throws java.nio.BufferOverflowException if out has not enough room
+     */
+    public void process_outgoing(ByteBuffer data, ByteBuffer out) {
+      int position = out.position();
+      framer.encode(data, out);
+      sent(out.position() - position);
+    }
+
+    /**
+     * @return receiver of the byte stream of one connection, with a deframer of its own, so the partial
+     *     frames of connections received at the same time are never mixed. To be called by one thread.
+     */
+    public Consumer<byte[]> connection() {
+      Framer.Deframer deframer = framer.deframer(Transport.buffer_pool(), HW_MTU, this::process_incoming);
+      return data -> deframer.receive(ByteBuffer.wrap(data));
     }
 
     public synchronized void receive(byte[] data_in) {
-      if (data_in.length > 0) {
+      receive(ByteBuffer.wrap(data_in));
+    }
+
+    public synchronized void receive(ByteBuffer data_in) {
+      if (data_in.hasRemaining()) {
         handle_hdlc(data_in);
       } else {
         throw new IllegalStateException();
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Word at a time byte search, eight bytes are tested with a few arithmetic operations
+ * instead of eight compares and branches.
+ */
+final class Swar {
+
+  private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGHS = 0x8080808080808080L;
+
+  private Swar() {
+  }
+
+  /**
+   * @return the byte repeated in every byte of a long, the pattern for indexOf
+   */
+  static long broadcast(byte b) {
+    return (b & 0xFFL) * ONES;
+  }
+
+  /**
+   * High bit set in every zero byte of the word. A borrow can mark a byte above
+   * a zero byte as well, but never below, so the lowest mark is exact.
+   */
+  private static long zero(long word) {
+    return word - ONES & ~word & HIGHS;
+  }
+
+  /**
+   * @param x broadcast of the first byte
+   * @param y broadcast of the second byte
+   * @return index of the first of the two bytes in from..to, to if there is none
+   */
+  static int indexOf(byte[] bytes, int from, int to, long x, long y) {
+    int i = from;
+    for (; i + Long.BYTES <= to; i += Long.BYTES) {
+      long word = (long) LONG.get(bytes, i);
+      long found = zero(word ^ x) | zero(word ^ y);
+      if (found != 0) return i + (Long.numberOfTrailingZeros(found) >>> 3);
+    }
+    byte bx = (byte) x;
+    byte by = (byte) y;
+    for (; i < to; i++) if (bytes[i] == bx || bytes[i] == by) return i;
+    return to;
+  }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import rns.Reticulum;
+import rns.Rns;
+import rns.Transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class TCPInterface {
+
+  public static class TCPClientInterface extends Interface {
+    public static final int BITRATE_GUESS = 10 * 1000 * 1000;
+    public static final int HW_MTU = 262144;
+    public static final int RECONNECT_WAIT = 5;
+    public static final int INITIAL_CONNECT_TIMEOUT = 5;
+    final String target_host;
+    final int target_port;
+    final boolean initiator;
+    public final Framer framer;
+    final Framer.Deframer deframer;
+    private volatile Socket socket;
+    private volatile boolean detached;
+    private ByteBuffer out = ByteBuffer.allocate(0);
+
+    public TCPClientInterface(String name, String target_host, int target_port, Framer framer) {
+      this.name = name;
+      this.target_host = target_host;
+      this.target_port = target_port;
+      this.initiator = true;
+      this.framer = framer;
+      this.bitrate = BITRATE_GUESS;
+      this.deframer = framer.deframer(Transport.buffer_pool(), HW_MTU, this::process_incoming);
+    }
+
+    /**
+     * Interface of a client connected to a TCPServerInterface.
+     */
+    TCPClientInterface(String name, Socket socket, Framer framer, Interface parent_interface) {
+      this.name = name;
+      this.target_host = socket.getInetAddress().getHostAddress();
+      this.target_port = socket.getPort();
+      this.initiator = false;
+      this.socket = socket;
+      this.framer = framer;
+      this.deframer = framer.deframer(Transport.buffer_pool(), HW_MTU, this::process_incoming);
+      this.parent_interface = parent_interface;
+      this.bitrate = parent_interface.bitrate;
+      this.announce_cap = parent_interface.announce_cap;
+    }
+
+    @Override
+    public void start() {
+      start_thread(this::read_loop);
+    }
+
+    private void read_loop() {
+      byte[] buffer = new byte[4096];
+      while (!detached) {
+        Socket socket = this.socket;
+        try {
+          if (socket == null) {
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(target_host, target_port),
+                (int) TimeUnit.SECONDS.toMillis(INITIAL_CONNECT_TIMEOUT));
+            this.socket = socket;
+          }
+          socket.setTcpNoDelay(true);
+          online = true;
+          Rns.log("{0} is connected", Rns.LOG_VERBOSE, this);
+          InputStream in = socket.getInputStream();
+          for (int n; (n = in.read(buffer)) != -1; ) deframer.receive(ByteBuffer.wrap(buffer, 0, n));
+          Rns.log("The socket for {0} was closed", Rns.LOG_WARNING, this);
+        } catch (IOException e) {
+          if (!detached) Rns.log("An error occurred on {0}: {1}", Rns.LOG_ERROR, this, e);
+        }
+        online = false;
+        close(socket);
+        this.socket = null;
+        if (!initiator) break;
+        try {
+          if (!detached) Thread.sleep(TimeUnit.SECONDS.toMillis(RECONNECT_WAIT));
+        } catch (InterruptedException e) {
+          break;
+        }
+      }
+      if (parent_interface instanceof TCPServerInterface) {
+        Transport.deregister_interface(this);
+        ((TCPServerInterface) parent_interface).spawned_interfaces.remove(this);
+      }
+    }
+
+    private static void close(Socket socket) {
+      if (socket == null) return;
+      try {
+        socket.close();
+      } catch (IOException ignore) {
+      }
+    }
+
+    @Override
+    public boolean process_outgoing(byte[] data) {
+      return process_outgoing(data, 0, data.length);
+    }
+
+    /**
+     * Frames the packet straight into a buffer reused by the interface and writes it.
+     */
+    @Override
+    public synchronized boolean process_outgoing(byte[] data, int offset, int length) {
+      Socket socket = this.socket;
+      if (!online || socket == null) return false;
+      int max_length = framer.max_encoded_length(length);
+      if (out.capacity() < max_length) {
+        out = ByteBuffer.allocate(Math.max(max_length, framer.max_encoded_length(Reticulum.MTU)));
+      }
+      out.clear();
+      framer.encode(ByteBuffer.wrap(data, offset, length), out);
+      try {
+        OutputStream stream = socket.getOutputStream();
+        stream.write(out.array(), 0, out.position());
+        sent(out.position());
+        return true;
+      } catch (IOException e) {
+        Rns.log("Exception occurred while transmitting via {0}: {1}", Rns.LOG_ERROR, this, e);
+        close(socket);
+        return false;
+      }
+    }
+
+    @Override
+    public void detach() {
+      detached = true;
+      online = false;
+      close(socket);
+    }
+  }
+
+  public static class TCPServerInterface extends Interface {
+    final String listen_ip;
+    final int listen_port;
+    public final Framer framer;
+    final List<TCPClientInterface> spawned_interfaces = new CopyOnWriteArrayList<>();
+    private ServerSocket server;
+
+    public TCPServerInterface(String name, String listen_ip, int listen_port, Framer framer) {
+      this.name = name;
+      this.listen_ip = listen_ip;
+      this.listen_port = listen_port;
+      this.framer = framer;
+      this.bitrate = TCPClientInterface.BITRATE_GUESS;
+      // the spawned client interfaces are registered with Transport and send on their own
+      this.OUT = false;
+    }
+
+    @Override
+    public void start() {
+      try {
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress(listen_ip, listen_port));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      online = true;
+      start_thread(this::accept_loop);
+    }
+
+    /**
+     * @return the bound port, useful when listen_port is 0
+     */
+    public int port() {
+      return server.getLocalPort();
+    }
+
+    private void accept_loop() {
+      try {
+        while (true) {
+          Socket socket = server.accept();
+          TCPClientInterface spawned_interface = new TCPClientInterface("Client on " + name, socket, framer, this);
+          spawned_interface.online = true;
+          Transport.register_interface(spawned_interface);
+          spawned_interfaces.add(spawned_interface);
+          Rns.log("Accepting incoming TCP connection on {0}", Rns.LOG_VERBOSE, this);
+          spawned_interface.start();
+        }
+      } catch (IOException e) {
+        if (online) Rns.log("An error occurred on {0}: {1}", Rns.LOG_ERROR, this, e);
+      }
+    }
+
+    /**
+     * Sends the packet to all connected clients.
+     * @return true if a client took the packet
+     */
+    @Override
+    public boolean process_outgoing(byte[] data) {
+      return process_outgoing(data, 0, data.length);
+    }
+
+    @Override
+    public boolean process_outgoing(byte[] data, int offset, int length) {
+      boolean sent = false;
+      for (TCPClientInterface spawned_interface : spawned_interfaces) {
+        sent |= spawned_interface.process_outgoing(data, offset, length);
+      }
+      return sent;
+    }
+
+    /**
+     * @return the interfaces of the connected clients
+     */
+    public List<TCPClientInterface> spawned_interfaces() {
+      return spawned_interfaces;
+    }
+
+    @Override
+    public void detach() {
+      online = false;
+      try {
+        if (server != null) server.close();
+      } catch (IOException ignore) {
+      }
+      for (TCPClientInterface spawned_interface : spawned_interfaces) spawned_interface.detach();
+    }
+  }
+
+}
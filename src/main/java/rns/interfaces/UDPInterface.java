@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import rns.BufferPool;
+import rns.Rns;
+import rns.Transport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * One packet per datagram, no framing.
+ */
+public class UDPInterface extends Interface {
+  public static final int BITRATE_GUESS = 10 * 1000 * 1000;
+  public static final int HW_MTU = 1064;
+  final InetSocketAddress listen_address;
+  final InetSocketAddress forward_address;
+  private DatagramChannel channel;
+
+  public UDPInterface(String name, String listen_ip, int listen_port, String forward_ip, int forward_port) {
+    this.name = name;
+    this.listen_address = new InetSocketAddress(listen_ip, listen_port);
+    this.forward_address = new InetSocketAddress(forward_ip, forward_port);
+    this.bitrate = BITRATE_GUESS;
+  }
+
+  @Override
+  public void start() {
+    try {
+      channel = DatagramChannel.open()
+          .setOption(StandardSocketOptions.SO_REUSEADDR, true)
+          .setOption(StandardSocketOptions.SO_BROADCAST, true)
+          .bind(listen_address);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    online = true;
+    start_thread(this::read_loop);
+  }
+
+  /**
+   * @return the bound port, useful when listen_port is 0
+   */
+  public int port() {
+    try {
+      return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void read_loop() {
+    ByteBuffer datagram = ByteBuffer.allocateDirect(HW_MTU);
+    BufferPool pool = Transport.buffer_pool();
+    try {
+      while (online) {
+        datagram.clear();
+        channel.receive(datagram);
+        datagram.flip();
+        int length = datagram.remaining();
+        // packets above the MTU are not pooled
+        byte[] buffer = length <= pool.buffer_size() ? pool.acquire() : new byte[length];
+        datagram.get(buffer, 0, length);
+        if (!process_incoming(buffer, length)) pool.release(buffer);
+      }
+    } catch (IOException e) {
+      if (online) Rns.log("An error occurred on {0}: {1}", Rns.LOG_ERROR, this, e);
+    }
+  }
+
+  @Override
+  public boolean process_outgoing(byte[] data) {
+    return process_outgoing(data, 0, data.length);
+  }
+
+  @Override
+  public boolean process_outgoing(byte[] data, int offset, int length) {
+    try {
+      channel.send(ByteBuffer.wrap(data, offset, length), forward_address);
+      sent(length);
+      return true;
+    } catch (IOException e) {
+      Rns.log("Could not transmit on {0}: {1}", Rns.LOG_ERROR, this, e);
+      return false;
+    }
+  }
+
+  @Override
+  public void detach() {
+    online = false;
+    try {
+      if (channel != null) channel.close();
+    } catch (IOException ignore) {
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnnounceSchedulerTest {
+
+  static byte[] destination(int i) {
+    byte[] hash = new byte[Packet.DST_LEN];
+    hash[0] = (byte) i;
+    return hash;
+  }
+
+  @Test
+  void cap() {
+    TransportTest.Capture capture = new TransportTest.Capture();
+    // 100 bytes per second
+    capture.bitrate = 8000;
+    capture.announce_cap = 0.1;
+    AnnounceScheduler scheduler = new AnnounceScheduler(capture, null, 16);
+    byte[] a = new byte[150];
+    byte[] b = new byte[150];
+    byte[] b_newer = new byte[150];
+    byte[] c = new byte[150];
+    a[0] = b[0] = b_newer[0] = c[0] = Packet.ANNOUNCE;
+    long announces_sent = Metrics.sent_count(Packet.ANNOUNCE);
+    assertTrue(scheduler.submit(destination(1), 1, 10, a, 0));
+    assertEquals(1, capture.sent.size());
+    assertTrue(scheduler.submit(destination(2), 2, 10, b, 0));
+    assertTrue(scheduler.submit(destination(3), 1, 10, c, 0));
+    assertTrue(scheduler.submit(destination(2), 1, 11, b_newer, 0));
+    assertTrue(scheduler.submit(destination(2), 1, 10, b, 0));
+    assertEquals(2, scheduler.size());
+    assertEquals(2, scheduler.coalesced_count());
+    // the first announce left the bucket 50 bytes in debt
+    assertEquals(0, scheduler.drain(100));
+    assertEquals(1, scheduler.drain(600));
+    assertSame(c, capture.sent.get(1));
+    assertEquals(0, scheduler.drain(2000));
+    assertEquals(1, scheduler.drain(2100));
+    assertSame(b_newer, capture.sent.get(2));
+    assertEquals(0, scheduler.size());
+    assertEquals(3, scheduler.sent_count());
+    // the announces are sent through Transport.transmit, which counts them
+    assertEquals(announces_sent + 3, Metrics.sent_count(Packet.ANNOUNCE));
+  }
+
+  @Test
+  void bounded() {
+    TransportTest.Capture capture = new TransportTest.Capture();
+    capture.bitrate = 8000;
+    capture.announce_cap = 0.1;
+    AnnounceScheduler scheduler = new AnnounceScheduler(capture, null, 2);
+    scheduler.submit(destination(1), 1, 10, new byte[200], 0);
+    scheduler.submit(destination(2), 3, 10, new byte[100], 0);
+    scheduler.submit(destination(3), 4, 10, new byte[100], 0);
+    assertFalse(scheduler.submit(destination(4), 5, 10, new byte[100], 0));
+    assertTrue(scheduler.submit(destination(5), 2, 10, new byte[100], 0));
+    assertEquals(2, scheduler.size());
+    assertEquals(2, scheduler.dropped_count());
+    // queued announces expire
+    long life = Reticulum.QUEUED_ANNOUNCE_LIFE * 1000L;
+    assertEquals(0, scheduler.drain(life + 1));
+    assertEquals(0, scheduler.size());
+    assertEquals(4, scheduler.dropped_count());
+  }
+
+  @Test
+  void uncapped() {
+    TransportTest.Capture capture = new TransportTest.Capture();
+    AnnounceScheduler scheduler = new AnnounceScheduler(capture, null, 16);
+    byte[] raw = new byte[100];
+    for (int i = 0; i < 100; i++) assertTrue(scheduler.submit(destination(1), 1, i, raw, 0));
+    assertEquals(100, capture.sent.size());
+    assertArrayEquals(raw, capture.sent.get(99));
+    assertEquals(0, scheduler.size());
+  }
+
+}
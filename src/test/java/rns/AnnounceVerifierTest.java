@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static rns.SignatureUtilsTest.fromHex;
+
+class AnnounceVerifierTest {
+
+  @Test
+  void arrivalOrder() throws InterruptedException {
+    List<Packet> packets = new ArrayList<>();
+    List<Packet> expected = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      byte[] raw = fromHex(PacketViewTest.ANNOUNCE);
+      if (i % 3 == 0) raw[raw.length - 1] ^= 1;
+      Packet packet = new Packet(null, raw);
+      packet.unpack();
+      if (i % 3 != 0) expected.add(packet);
+      packets.add(packet);
+    }
+    List<Packet> received = Collections.synchronizedList(new ArrayList<>());
+    // the last announce is valid, so all of them are dispatched when it is
+    CountDownLatch dispatched = new CountDownLatch(expected.size());
+    AnnounceVerifier verifier = new AnnounceVerifier(4, packet -> {
+      received.add(packet);
+      dispatched.countDown();
+    });
+    for (Packet packet : packets) verifier.submit(packet);
+    assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+    verifier.shutdown();
+    assertEquals(0, verifier.queue_depth());
+    assertEquals(expected.size(), verifier.valid_count());
+    assertEquals(200 - expected.size(), verifier.invalid_count());
+    assertEquals(expected.size(), received.size());
+    for (int i = 0; i < expected.size(); i++) assertSame(expected.get(i), received.get(i));
+  }
+
+  @Test
+  void submitAfterShutdown() {
+    List<Packet> received = Collections.synchronizedList(new ArrayList<>());
+    AnnounceVerifier verifier = new AnnounceVerifier(1, received::add);
+    verifier.shutdown();
+    Packet packet = new Packet(null, fromHex(PacketViewTest.ANNOUNCE));
+    packet.unpack();
+    // dropped, it does not stay queued and hold back the announces behind it
+    verifier.submit(packet);
+    assertEquals(0, verifier.queue_depth());
+    assertEquals(0, verifier.valid_count() + verifier.invalid_count());
+    assertTrue(received.isEmpty());
+  }
+
+}
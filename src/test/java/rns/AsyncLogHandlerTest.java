@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncLogHandlerTest {
+
+  @Test
+  void dropsWhenFull() throws InterruptedException {
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> published = new CopyOnWriteArrayList<>();
+    AsyncLogHandler handler = new AsyncLogHandler(new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        blocked.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException ignore) {
+        }
+        published.add(record.getMessage());
+      }
+      @Override public void flush() {}
+      @Override public void close() {}
+    }, 2);
+    handler.publish(new LogRecord(Level.INFO, "0"));
+    blocked.await();
+    for (int i = 1; i <= 4; i++) handler.publish(new LogRecord(Level.INFO, Integer.toString(i)));
+    assertEquals(2, handler.dropped());
+    release.countDown();
+    handler.close();
+    assertEquals(List.of("0", "1", "2"), published);
+  }
+
+  @Test
+  void numbers() {
+    List<String> messages = new CopyOnWriteArrayList<>();
+    Handler capture = new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        messages.add(new SimpleFormatter().formatMessage(record));
+      }
+      @Override public void flush() {}
+      @Override public void close() {}
+    };
+    int loglevel = Rns.loglevel();
+    Rns.set_loglevel(Rns.LOG_NOTICE);
+    Logger.getLogger("rns").addHandler(capture);
+    try {
+      Rns.log("Loaded {0} known destinations, {1} ms", Rns.LOG_CRITICAL, 1048576, 2.5);
+      Rns.log("Not logged {0}", Rns.LOG_DEBUG, 1);
+    } finally {
+      Logger.getLogger("rns").removeHandler(capture);
+      Rns.set_loglevel(loglevel);
+    }
+    assertEquals(List.of("Loaded 1048576 known destinations, 2.5 ms"), messages);
+  }
+
+  @Test
+  void hex() {
+    byte[] bytes = {0x00, 0x7F, (byte) 0x80, (byte) 0xAB};
+    assertEquals("007F80AB", ab.Utils.toHex(bytes));
+    assertEquals("007f80ab", ab.Utils.toHexLowerCase(bytes));
+    assertEquals("<007f80ab>", Rns.prettyhexrep(bytes));
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import org.bouncycastle.crypto.params.X25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static rns.SignatureUtilsTest.fromHex;
+
+class CryptographyTest {
+
+  static byte[] range(int from, int to) {
+    byte[] bytes = new byte[to - from];
+    for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) (from + i);
+    return bytes;
+  }
+
+  @Test
+  void hkdf() {
+    // RFC 5869 test case 1
+    assertArrayEquals(fromHex("3CB25F25FAACD57A90434F64D0362F2A2D2D0A90CF1A5A4C5DB02D56ECC4C5BF34007208D5B887185865"),
+        Cryptography.hkdf(42, fromHex("0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B"),
+            fromHex("000102030405060708090A0B0C"), fromHex("F0F1F2F3F4F5F6F7F8F9")));
+  }
+
+  @Test
+  void token() {
+    // created with the Python implementation
+    byte[] python = fromHex("808182838485868788898A8B8C8D8E8F927BE428764602A6FD86E8C71D64D39C"
+        + "26C0001EA02743BB73E90DDDB89E76834A8A3132C7C23A04D3B8AAF687753896");
+    byte[] plaintext = "Reticulum token".getBytes();
+    Cryptography.Token token = new Cryptography.Token(range(0, 64));
+    byte[] encrypted = new byte[Cryptography.Token.token_length(plaintext.length)];
+    assertEquals(python.length, token.encrypt(plaintext, 0, plaintext.length, encrypted, 0, range(0x80, 0x90)));
+    assertArrayEquals(python, encrypted);
+    assertArrayEquals(plaintext, token.decrypt(python));
+    // decrypted in place, behind the token
+    byte[] buffer = new byte[python.length + 10];
+    System.arraycopy(python, 0, buffer, 10, python.length);
+    assertEquals(plaintext.length, token.decrypt(buffer, 10, python.length, buffer, 10));
+    assertArrayEquals(plaintext, Arrays.copyOfRange(buffer, 10, 10 + plaintext.length));
+    byte[] random_iv = token.encrypt(new byte[0]);
+    assertEquals(Cryptography.Token.TOKEN_OVERHEAD + 16, random_iv.length);
+    assertEquals(0, token.decrypt(random_iv).length);
+    python[20] ^= 1;
+    assertThrows(IllegalArgumentException.class, () -> token.decrypt(python));
+    assertThrows(IllegalArgumentException.class, () -> new Cryptography.Token(new byte[48]));
+  }
+
+  @Test
+  void single() {
+    // ephemeral public key and token created with the Python implementation for the X25519 key 0x20..0x3F
+    byte[] python = fromHex("7D9C24316539825C1896E57F28197746793CE60CBEE3AD47DA9D07B85FA55E2A"
+        + "808182838485868788898A8B8C8D8E8F7221763D6BCFA02D677D7421EC9C9D031A66694FA0CA9B369FCA3A7A3550568F"
+        + "016D8B9D867A89CEDA29C4828A7FA398");
+    byte[] derived_key = Identity.derive_key(new X25519PrivateKeyParameters(range(32, 64)),
+        new X25519PublicKeyParameters(python, 0), range(200, 216), null);
+    assertArrayEquals(fromHex("1995103726887A4D9A93B4A473B8F0EFEC15F1ED4CE8ACEFCBAF3497AEE0F46A"
+        + "3DF4F486C4D0E59C4AC055B6CDC6FFA9911C5D68E589E79B7D70D02789676DEA"), derived_key);
+    assertArrayEquals("Reticulum token".getBytes(),
+        new Cryptography.Token(derived_key).decrypt(Arrays.copyOfRange(python, 32, python.length)));
+
+    Identity identity = new Identity(true);
+    Identity recalled = new Identity();
+    recalled.load_public_key(identity.get_public_key());
+    byte[] plaintext = "message".getBytes();
+    byte[] ciphertext = recalled.encrypt(plaintext);
+    assertArrayEquals(plaintext, identity.decrypt(ciphertext));
+    assertNull(new Identity(true).decrypt(ciphertext));
+    assertNull(identity.decrypt(Arrays.copyOf(ciphertext, 32)));
+    assertThrows(IllegalStateException.class, () -> recalled.decrypt(ciphertext));
+  }
+
+  @Test
+  void group() {
+    Destination destination = new Destination(null, Destination.IN, Destination.GROUP, "example_utilities", "group");
+    assertThrows(IllegalStateException.class, () -> destination.encrypt(new byte[1]));
+    destination.create_keys();
+    Destination other = new Destination(null, Destination.OUT, Destination.GROUP, "example_utilities", "group");
+    other.load_private_key(destination.get_private_key());
+    byte[] plaintext = "group message".getBytes();
+    assertArrayEquals(plaintext, other.decrypt(destination.encrypt(plaintext)));
+    other.create_keys();
+    assertNull(other.decrypt(destination.encrypt(plaintext)));
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DestinationTableTest {
+
+  static byte[] destination(int i) {
+    return Identity.truncated_hash(new byte[]{(byte) i, (byte) (i >> 8), (byte) (i >> 16)});
+  }
+
+  static byte[] record(int i) {
+    return DestinationTable.record(null, new byte[Identity.KEYSIZE / 8], new byte[]{(byte) i});
+  }
+
+  @Test
+  void putGetRemove() {
+    DestinationTable table = new DestinationTable(1 << 20);
+    for (int i = 0; i < 10000; i++) table.put(destination(i), i, record(i));
+    assertEquals(10000, table.size());
+    for (int i = 0; i < 10000; i += 2) assertTrue(table.remove(destination(i)));
+    assertEquals(5000, table.size());
+    for (int i = 0; i < 10000; i++) {
+      byte[] record = table.get(destination(i));
+      if (i % 2 == 0) {
+        assertNull(record);
+      } else {
+        assertArrayEquals(new byte[]{(byte) i}, Arrays.copyOfRange(record, DestinationTable.APP_DATA, record.length));
+      }
+    }
+    assertEquals(2500, table.expire(5000));
+    assertNull(table.get(destination(4999)));
+    // an older record does not replace a newer one
+    table.put_if_newer(destination(5001), 0, 0, record(0));
+    assertEquals((byte) 5001, table.get(destination(5001))[DestinationTable.APP_DATA]);
+  }
+
+  @Test
+  void eviction() {
+    DestinationTable table = new DestinationTable(6400);
+    for (int i = 0; i < 100000; i++) table.put(destination(i), i, record(i));
+    assertTrue(table.size() <= 6400);
+    int recent = 0;
+    for (int i = 99000; i < 100000; i++) if (table.get(destination(i)) != null) recent++;
+    assertTrue(recent > 900);
+  }
+
+}
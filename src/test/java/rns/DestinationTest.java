@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DestinationTest {
+
+  @Test
+  void announce() {
+    Identity identity = new Identity(true);
+    Identity loaded = new Identity();
+    loaded.load_private_key(identity.get_private_key());
+    assertArrayEquals(identity.hash, loaded.hash);
+    assertArrayEquals(identity.get_public_key(), loaded.get_public_key());
+    byte[] message = "message".getBytes();
+    assertTrue(loaded.validate(identity.sign(message), message));
+
+    Destination destination = new Destination(identity, Destination.IN, Destination.SINGLE,
+        "example_utilities", "announcesample", "fruits");
+    assertEquals("example_utilities.announcesample.fruits." + identity.hexhash, destination.name);
+    assertArrayEquals(Destination.hash_from_name_and_identity("example_utilities.announcesample.fruits", identity),
+        destination.hash);
+    long now = System.currentTimeMillis() / 1000;
+    for (byte[] app_data : new byte[][]{"Peach".getBytes(), null}) {
+      Packet packet = new Packet(null, destination.announce_packet(app_data, true, now));
+      assertTrue(packet.unpack());
+      assertEquals(Packet.ANNOUNCE, packet.packet_type);
+      assertEquals(Packet.PATH_RESPONSE, packet.context);
+      assertArrayEquals(destination.hash, packet.get_destination_hash());
+      assertTrue(Identity.verify_announce(packet, false));
+      assertEquals(now, Transport.announce_emitted(packet));
+      assertEquals(app_data == null ? 0 : app_data.length,
+          packet.view().length() - 2 - Packet.DST_LEN - 1 - 64 - 10 - 10 - 64);
+    }
+    byte[] raw = destination.announce_packet("Peach".getBytes(), false, now);
+    raw[raw.length - 1] ^= 1;
+    Packet packet = new Packet(null, raw);
+    packet.unpack();
+    assertFalse(Identity.verify_announce(packet, false));
+
+    Destination out = new Destination(identity, Destination.OUT, Destination.SINGLE, "example_utilities", "out");
+    assertThrows(IllegalStateException.class, () -> out.announce_packet(null, false, now));
+    assertThrows(IllegalStateException.class, () -> new Identity(false).sign(message));
+  }
+
+  @Test
+  void announce_all() {
+    TransportTest.Capture capture = new TransportTest.Capture();
+    capture.online = true;
+    Transport.interfaces.add(capture);
+    AnnounceSigner signer = new AnnounceSigner(2);
+    try {
+      List<Destination> destinations = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        destinations.add(new Destination(null, Destination.IN, Destination.SINGLE, "bulk", "destination"));
+      }
+      assertEquals(50, signer.announce(destinations, d -> d.hexhash.getBytes()));
+      assertEquals(50, capture.sent.size());
+      for (byte[] raw : capture.sent) {
+        Packet packet = new Packet(null, raw);
+        packet.unpack();
+        assertTrue(Identity.verify_announce(packet, false));
+      }
+    } finally {
+      signer.shutdown();
+      Transport.interfaces.remove(capture);
+    }
+  }
+
+  @Test
+  void prove_all() {
+    TransportTest.Capture capture = new TransportTest.Capture();
+    Identity identity = new Identity(true);
+    Destination in = new Destination(identity, Destination.IN, Destination.SINGLE, "proof", "all");
+    in.set_proof_strategy(Destination.PROVE_ALL);
+    Destination out = new Destination(identity, Destination.OUT, Destination.SINGLE, "proof", "all");
+    PacketBuilder builder = new PacketBuilder();
+    try {
+      builder.destination_hash(out.hash).destination_type(Destination.SINGLE).packet_type(Packet.DATA)
+          .data(out.encrypt("Peach".getBytes())).pack();
+      Packet packet = new Packet(null,
+          Arrays.copyOfRange(builder.raw(), builder.offset(), builder.offset() + builder.length()));
+      packet.unpack();
+      packet.receiving_interface = capture;
+      assertTrue(in.receive(packet));
+      assertEquals(1, capture.sent.size());
+      Packet proof = new Packet(null, capture.sent.get(0));
+      proof.unpack();
+      assertEquals(Packet.PROOF, proof.packet_type);
+      assertArrayEquals(Arrays.copyOf(packet.get_hash(), Packet.DST_LEN), proof.get_destination_hash());
+      assertTrue(identity.validate(proof.get_data(), packet.get_hash()));
+      // no proof is sent with the default strategy
+      in.set_proof_strategy(Destination.PROVE_NONE);
+      assertTrue(in.receive(packet));
+      assertEquals(1, capture.sent.size());
+    } finally {
+      builder.release();
+      Transport.deregister_destination(in);
+    }
+  }
+
+}
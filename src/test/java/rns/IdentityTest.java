@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdentityTest {
+
+  @Test
+  void recallWhileLoading(@TempDir Path dir) throws IOException {
+    byte[] destination_hash = new byte[Packet.DST_LEN];
+    byte[] unknown = new byte[Packet.DST_LEN];
+    Arrays.fill(destination_hash, (byte) 0x3C);
+    Arrays.fill(unknown, (byte) 0x3D);
+    byte[] record = DestinationTable.record(null, new byte[Identity.KEYSIZE / 8], new byte[]{7});
+    MappedLog storage = Identity.storage;
+    boolean storage_loaded = Identity.storage_loaded;
+    try (MappedLog log = new MappedLog(dir.resolve("known_destinations.log"))) {
+      log.append(Identity.STORAGE_DESTINATION, 1, destination_hash, 0, destination_hash.length,
+          record, 0, record.length);
+      Identity.storage = log;
+      Identity.storage_loaded = false;
+      // persisted but not indexed yet
+      assertArrayEquals(new byte[]{7}, Identity.recall(destination_hash, false).app_data);
+      assertArrayEquals(record, Identity.known_destinations.get(destination_hash));
+      assertThrows(IllegalStateException.class, () -> Identity.recall(unknown, false));
+    } finally {
+      Identity.known_destinations.remove(destination_hash);
+      Identity.storage = storage;
+      Identity.storage_loaded = storage_loaded;
+    }
+  }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+import rns.interfaces.Interface;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkTest {
+
+  /**
+   * One end of a wire between two nodes that live in this process. Each node has its own
+   * packet hashlist, which is swapped in while the frame is processed on the receiving side.
+   */
+  static class Pipe extends Interface {
+    Pipe peer;
+    final PacketHashlist hashlist = new PacketHashlist(1000, 1e-6);
+    int received;
+
+    static Pipe[] pair() {
+      Pipe a = new Pipe();
+      Pipe b = new Pipe();
+      a.peer = b;
+      b.peer = a;
+      a.online = true;
+      b.online = true;
+      return new Pipe[]{a, b};
+    }
+
+    @Override
+    public boolean process_outgoing(byte[] data) {
+      return process_outgoing(data, 0, data.length);
+    }
+
+    @Override
+    public boolean process_outgoing(byte[] data, int offset, int length) {
+      byte[] raw = Arrays.copyOfRange(data, offset, offset + length);
+      PacketHashlist hashlist = Transport.packet_hashlist;
+      Transport.packet_hashlist = peer.hashlist;
+      try {
+        peer.received++;
+        new Transport().inbound(raw, raw.length, peer);
+      } finally {
+        Transport.packet_hashlist = hashlist;
+      }
+      return true;
+    }
+  }
+
+  @Test
+  void link() {
+    Identity identity = Transport.identity;
+    PacketHashlist packet_hashlist = Transport.packet_hashlist;
+    Pipe[] pipe = Pipe.pair();
+    Transport.identity = new Identity(true);
+    Transport.packet_hashlist = pipe[0].hashlist;
+    Transport.interfaces.add(pipe[0]);
+    Destination server = new Destination(new Identity(true), Destination.IN, Destination.SINGLE, "link_test", "server");
+    try {
+      List<Link> established = new ArrayList<>();
+      List<String> received = Collections.synchronizedList(new ArrayList<>());
+      server.set_link_established_callback(link -> {
+        established.add(link);
+        link.set_packet_callback((data, packet) -> {
+          if (data.length > 100) return;
+          received.add("server " + new String(data));
+          link.send(("echo " + new String(data)).getBytes());
+        });
+      });
+      Identity server_identity = new Identity();
+      server_identity.load_public_key(server.identity.get_public_key());
+      Destination out = new Destination(server_identity, Destination.OUT, Destination.SINGLE, "link_test", "server");
+      List<Link> closed = new ArrayList<>();
+      Link link = new Link(out, null, closed::add);
+      link.set_packet_callback((data, packet) -> received.add("client " + new String(data)));
+
+      // request, proof and rtt went over the pipe synchronously
+      assertEquals(Link.ACTIVE, link.get_status());
+      assertEquals(1, established.size());
+      Link remote = established.get(0);
+      assertArrayEquals(link.link_id, remote.link_id);
+      assertEquals(Link.ACTIVE, remote.get_status());
+      assertEquals(pipe[0], link.get_attached_interface());
+      assertEquals(pipe[1], remote.get_attached_interface());
+      assertEquals(link, Transport.find_link(link.link_id, 0, pipe[0]));
+      assertEquals(remote, Transport.find_link(link.link_id, 0, pipe[1]));
+
+      assertTrue(link.send("hello".getBytes()));
+      assertTrue(link.send("world".getBytes()));
+      assertEquals(Arrays.asList("server hello", "client echo hello", "server world", "client echo world"), received);
+      assertThrows(IllegalArgumentException.class, () -> link.send(new byte[Link.MDU + 1]));
+      link.send(new byte[Link.MDU]);
+
+      // keep-alives carry the same bytes every time and pass the packet hashlist
+      int requests = pipe[1].received;
+      int responses = pipe[0].received;
+      link.send_keepalive();
+      link.send_keepalive();
+      assertEquals(requests + 2, pipe[1].received);
+      assertEquals(responses + 2, pipe[0].received);
+      link.last_inbound = 0;
+      link.watchdog(System.currentTimeMillis());
+      assertEquals(Link.STALE, link.get_status());
+      // sent by the destination node, with its hashlist
+      Transport.packet_hashlist = pipe[1].hashlist;
+      remote.send("wake up".getBytes());
+      Transport.packet_hashlist = pipe[0].hashlist;
+      assertEquals(Link.ACTIVE, link.get_status());
+
+      link.teardown();
+      assertEquals(Link.CLOSED, link.get_status());
+      assertEquals(Link.INITIATOR_CLOSED, link.get_teardown_reason());
+      assertEquals(Link.CLOSED, remote.get_status());
+      assertEquals(Link.INITIATOR_CLOSED, remote.get_teardown_reason());
+      assertEquals(Collections.singletonList(link), closed);
+      assertNull(Transport.find_link(link.link_id, 0, pipe[0]));
+      assertNull(Transport.find_link(link.link_id, 0, pipe[1]));
+      assertThrows(IllegalStateException.class, () -> link.send("closed".getBytes()));
+    } finally {
+      Transport.interfaces.remove(pipe[0]);
+      Transport.deregister_destination(server);
+      Transport.identity = identity;
+      Transport.packet_hashlist = packet_hashlist;
+    }
+  }
+
+  @Test
+  void establishment_timeout() {
+    Destination server = new Destination(new Identity(true), Destination.OUT, Destination.SINGLE, "link_test", "none");
+    List<Link> closed = new ArrayList<>();
+    Link link = new Link(server, null, closed::add);
+    assertEquals(Link.PENDING, link.get_status());
+    assertNotNull(Transport.find_link(link.link_id, 0, null));
+    link.watchdog(System.currentTimeMillis());
+    assertEquals(Link.PENDING, link.get_status());
+    link.watchdog(System.currentTimeMillis() + Link.ESTABLISHMENT_TIMEOUT_PER_HOP * 1000);
+    assertEquals(Link.CLOSED, link.get_status());
+    assertEquals(Link.TIMEOUT, link.get_teardown_reason());
+    assertEquals(Collections.singletonList(link), closed);
+    assertNull(Transport.find_link(link.link_id, 0, null));
+  }
+
+  @Test
+  void rtt() {
+    assertEquals(0.125, Link.unpack_rtt(Link.pack_rtt(0.125)));
+    assertEquals(3, Link.unpack_rtt(new byte[]{3}));
+    assertEquals(0, Link.unpack_rtt(new byte[0]));
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MappedLogTest {
+
+  static List<Long> timestamps(MappedLog log) {
+    List<Long> timestamps = new ArrayList<>();
+    log.read_backward((type, timestamp, payload) -> {
+      assertEquals(timestamp, payload.remaining());
+      timestamps.add(timestamp);
+      return true;
+    });
+    return timestamps;
+  }
+
+  @Test
+  void recovery(@TempDir Path dir) throws IOException {
+    Path path = dir.resolve("test.log");
+    long torn;
+    try (MappedLog log = new MappedLog(path)) {
+      for (int i = 1; i <= 3; i++) log.append((byte) 1, i, new byte[i], 0, i, new byte[0], 0, 0);
+      torn = log.size();
+      log.append((byte) 1, 4, new byte[2], 0, 2, new byte[2], 0, 2);
+    }
+    try (MappedLog log = new MappedLog(path)) {
+      assertEquals(List.of(4L, 3L, 2L, 1L), timestamps(log));
+    }
+    // a crash after the last record was written but before it was committed in the header
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(8);
+      file.writeLong(torn);
+      file.writeLong(3);
+    }
+    try (MappedLog log = new MappedLog(path)) {
+      assertEquals(4, log.count());
+      assertEquals(List.of(4L, 3L, 2L, 1L), timestamps(log));
+    }
+    // the same crash with the last record torn
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(8);
+      file.writeLong(torn);
+      file.writeLong(3);
+      file.seek(torn + 14);
+      file.write(0x55);
+    }
+    try (MappedLog log = new MappedLog(path)) {
+      assertEquals(3, log.count());
+      assertEquals(torn, log.size());
+      assertEquals(List.of(3L, 2L, 1L), timestamps(log));
+    }
+    // the torn record was cleared
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+      byte[] record = new byte[4 + 1 + 8 + 4 + 4 + 4];
+      file.seek(torn);
+      file.readFully(record);
+      assertArrayEquals(new byte[record.length], record);
+    }
+  }
+
+  @Test
+  void compact(@TempDir Path dir) throws IOException {
+    try (MappedLog log = new MappedLog(dir.resolve("test.log"))) {
+      for (int i = 1; i <= 100; i++) log.append((byte) 1, i % 10, new byte[i % 10], 0, i % 10, new byte[0], 0, 0);
+      log.compact(compacted -> {
+        for (int i = 0; i < 10; i++) compacted.append((byte) 1, i, new byte[i], 0, i, new byte[0], 0, 0);
+        // written concurrently with the compaction
+        log.append((byte) 2, 5, new byte[5], 0, 5, new byte[0], 0, 0);
+      });
+      assertEquals(11, log.count());
+      assertEquals(List.of(5L, 9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L, 0L), timestamps(log));
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+  @Test
+  void histogram() {
+    for (long v : new long[]{0, 1, 3, 4, 5, 7, 8, 1000, 123456789, Long.MAX_VALUE}) {
+      int bucket = LatencyHistogram.bucket(v);
+      assertTrue(v <= LatencyHistogram.upper_bound(bucket), Long.toString(v));
+      assertTrue(bucket == 0 || v > LatencyHistogram.upper_bound(bucket - 1), Long.toString(v));
+    }
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.quantile(0.5));
+    for (int i = 1; i <= 1000; i++) histogram.record(i * 1000L);
+    assertEquals(1000, histogram.count());
+    assertEquals(500500000L, histogram.sum());
+    long median = histogram.quantile(0.5);
+    assertTrue(median >= 500000 && median < 500000 * 1.25, Long.toString(median));
+    long p99 = histogram.quantile(0.99);
+    assertTrue(p99 >= 990000 && p99 < 990000 * 1.25, Long.toString(p99));
+    assertEquals(LatencyHistogram.upper_bound(LatencyHistogram.bucket(1000000)), histogram.quantile(1));
+  }
+
+  @Test
+  void snapshot() throws Exception {
+    Identity identity = Transport.identity;
+    Transport.identity = new Identity(true);
+    try {
+      long duplicates = Metrics.drop_count(Metrics.DROP_DUPLICATE);
+      long ifac = Metrics.drop_count(Metrics.DROP_IFAC);
+      long received = Metrics.received_count(Packet.DATA);
+      byte[] raw = TransportTest.transit_packet(new byte[Packet.DST_LEN], new byte[Packet.DST_LEN], 0);
+      raw[8] ^= 0x5A;
+      new Transport().inbound(raw.clone(), null);
+      new Transport().inbound(raw.clone(), null);
+      raw[0] |= 0x80;
+      new Transport().inbound(raw, null);
+      assertEquals(duplicates + 1, Metrics.drop_count(Metrics.DROP_DUPLICATE));
+      assertEquals(ifac + 1, Metrics.drop_count(Metrics.DROP_IFAC));
+      assertEquals(received + 2, Metrics.received_count(Packet.DATA));
+    } finally {
+      Transport.identity = identity;
+    }
+    String snapshot = Metrics.snapshot();
+    assertTrue(snapshot.contains("# TYPE rns_packets_dropped_total counter\n"), snapshot);
+    assertTrue(snapshot.contains("rns_packets_dropped_total{reason=\"duplicate\"} "), snapshot);
+    assertTrue(snapshot.contains("rns_latency_seconds{operation=\"unpack\",quantile=\"0.99\"} "), snapshot);
+    assertTrue(snapshot.contains("rns_latency_seconds_count{operation=\"verify\"} "), snapshot);
+
+    Metrics.register_mbean();
+    Metrics.register_mbean();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+    Map<String, Number> values = Metrics.values();
+    assertTrue(values.containsKey("rns_packets_received_total.data"));
+    assertEquals(values.size(), server.getMBeanInfo(name).getAttributes().length);
+    assertTrue(((Number) server.getAttribute(name, "rns_packets_dropped_total.ifac")).longValue() >= 1);
+  }
+
+}
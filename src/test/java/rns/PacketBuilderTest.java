@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PacketBuilderTest {
+
+  @Test
+  void pack() {
+    byte[] destination_hash = new byte[Packet.DST_LEN];
+    byte[] transport_id = new byte[Packet.DST_LEN];
+    Arrays.fill(destination_hash, (byte) 0xDD);
+    Arrays.fill(transport_id, (byte) 0x77);
+    PacketBuilder builder = new PacketBuilder().destination_hash(destination_hash)
+        .destination_type(Destination.SINGLE).packet_type(Packet.DATA).context(Packet.NONE);
+    builder.data("hello".getBytes()).pack();
+    byte[] frame = Arrays.copyOfRange(builder.raw(), builder.offset(), builder.offset() + builder.length());
+    assertEquals(2 + Packet.DST_LEN + 1 + 5, frame.length);
+    assertEquals(0x00, frame[0]);
+    Packet packet = new Packet(null, frame);
+    packet.unpack();
+    assertArrayEquals(destination_hash, packet.get_destination_hash());
+    assertArrayEquals("hello".getBytes(), packet.get_data());
+    byte[] packet_hash = new byte[32];
+    builder.get_hash(packet_hash);
+    assertArrayEquals(packet.get_hash(), packet_hash);
+    // the same packet in transport has the same hash
+    builder.pack(Packet.HEADER_2, Transport.TRANSPORT, transport_id);
+    assertEquals(0, builder.offset());
+    assertEquals(frame.length + Packet.DST_LEN, builder.length());
+    packet = new Packet(null, Arrays.copyOf(builder.raw(), builder.length()));
+    packet.unpack();
+    assertEquals(0x50, packet.flags);
+    assertArrayEquals(transport_id, packet.get_transport_id());
+    assertArrayEquals(destination_hash, packet.get_destination_hash());
+    builder.get_hash(packet_hash);
+    assertArrayEquals(packet.get_hash(), packet_hash);
+    // the builder is reused for the next packet
+    builder.reset().hops(3).data(new byte[Reticulum.MDU]).pack();
+    assertEquals(Reticulum.HEADER_MINSIZE + Reticulum.MDU, builder.length());
+    assertEquals(3, builder.raw()[builder.offset() + 1]);
+    builder.header_type(Packet.HEADER_2).transport_id(transport_id).pack();
+    assertEquals(Reticulum.HEADER_MAXSIZE + Reticulum.MDU, builder.length());
+    builder.header_type(Packet.HEADER_1).transport_id(null);
+    assertThrows(IllegalStateException.class, () -> builder.reset().data(new byte[Reticulum.MDU + 1]).pack());
+    // the header of a link packet is never extended, it can fill the MTU
+    builder.reset().destination_type(Destination.LINK).data(new byte[Reticulum.MTU - Reticulum.HEADER_MINSIZE]).pack();
+    assertEquals(Reticulum.MTU, builder.length());
+    assertThrows(IllegalStateException.class, () -> builder.header_type(Packet.HEADER_2).transport_id(transport_id).pack());
+    builder.release();
+    assertThrows(IllegalStateException.class, builder::reset);
+  }
+
+}
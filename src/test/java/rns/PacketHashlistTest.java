@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PacketHashlistTest {
+
+  static byte[] hash(int i) {
+    return Identity.full_hash(ByteBuffer.allocate(4).putInt(i).array());
+  }
+
+  @Test
+  void rotation() {
+    PacketHashlist hashlist = new PacketHashlist(1000, 1e-6);
+    for (int i = 0; i < 1000; i++) assertFalse(hashlist.contains_or_add(hash(i)));
+    for (int i = 0; i < 1000; i++) assertTrue(hashlist.contains_or_add(hash(i)));
+    assertEquals(1000, hashlist.duplicate_count());
+    // the second generation keeps the first one visible
+    for (int i = 1000; i < 1999; i++) assertFalse(hashlist.contains_or_add(hash(i)));
+    assertTrue(hashlist.contains(hash(0)));
+    // the third generation clears the first one
+    for (int i = 1999; i < 2999; i++) hashlist.contains_or_add(hash(i));
+    assertFalse(hashlist.contains(hash(0)));
+    assertTrue(hashlist.contains(hash(1500)));
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static rns.SignatureUtilsTest.fromHex;
+
+class PacketViewTest {
+
+  public static final String DESTINATION = "234EED3D3775EB1E29CF5A3842961C25";
+  public static final String ANNOUNCE = "0100" + DESTINATION + "00" +
+      "B5D0A228394D29AACB127F5F9A791A6842F6B95C40A3AF677ADFA8F2DFA1FD72" +
+      "8BFDE75083EDF2C1C2B004F6F7A60985E9AA858F62E688C91D80A7F6460FC26C" +
+      "213E6311BCEC54AB4FDE" + "F00E34ED1100692683F7" +
+      "CE102E28266AF7072B13DEBCB15EE35DC492A00B6D9A68AE36BA3416121C49B2" +
+      "0A740D420D6C139A0594B73B140105620EA01EC61CE777AAE180231A3A869203" +
+      "6730306E20436C6F7564202844616C6C617329";
+
+  @Test
+  void headerFields() {
+    byte[] frame = fromHex("FF" + ANNOUNCE + "FF");
+    PacketView view = new PacketView(frame, 1, frame.length - 2);
+    assertTrue(view.is_valid());
+    assertEquals(Packet.HEADER_1, view.header_type());
+    assertEquals(Packet.ANNOUNCE, view.packet_type());
+    assertEquals(Destination.SINGLE, view.destination_type());
+    assertEquals(0, view.hops());
+    assertNull(view.transport_id());
+    assertEquals(3, view.destination_hash_offset());
+    assertArrayEquals(fromHex(DESTINATION), view.destination_hash());
+    assertTrue(view.destination_hash_equals(fromHex(DESTINATION)));
+    assertEquals(frame.length - 2 - Reticulum.HEADER_MINSIZE, view.data_length());
+    assertFalse(new PacketView(frame, 1, Reticulum.HEADER_MINSIZE - 1).is_valid());
+  }
+
+  @Test
+  void header2() {
+    byte[] frame = fromHex("5103" + "00112233445566778899AABBCCDDEEFF" + DESTINATION + "00" + "CAFE");
+    PacketView view = new PacketView(frame);
+    assertEquals(Packet.HEADER_2, view.header_type());
+    assertEquals(3, view.hops());
+    assertArrayEquals(fromHex("00112233445566778899AABBCCDDEEFF"), view.transport_id());
+    assertArrayEquals(fromHex(DESTINATION), view.destination_hash());
+    assertArrayEquals(fromHex("CAFE"), view.data());
+  }
+
+  @Test
+  void hash() {
+    Packet packet = new Packet(null, fromHex(ANNOUNCE));
+    packet.unpack();
+    byte[] hash = packet.get_hash();
+    assertArrayEquals(Identity.full_hash(packet.get_hashable_part()), hash);
+    assertSame(hash, packet.get_hash());
+    // a retransmitted announce has a transport id and more hops but the same hash
+    byte[] header1 = fromHex(ANNOUNCE);
+    byte[] header2 = new byte[header1.length + Packet.DST_LEN];
+    header2[0] = (byte) (header1[0] | Packet.HEADER_2 << 6 | 0x10);
+    header2[1] = 5;
+    System.arraycopy(header1, 2, header2, 2 + Packet.DST_LEN, header1.length - 2);
+    packet = new Packet(null, header2);
+    packet.unpack();
+    assertArrayEquals(hash, packet.get_hash());
+    assertArrayEquals(hash, Identity.full_hash(packet.get_hashable_part()));
+  }
+
+  @Test
+  void hashReusedBuffer() {
+    byte[] frame = fromHex(ANNOUNCE);
+    byte[] buffer = Arrays.copyOf(frame, frame.length + 100);
+    Arrays.fill(buffer, frame.length, buffer.length, (byte) 0x55);
+    Packet packet = new Packet(null, buffer);
+    packet.unpack(frame.length);
+    Packet expected = new Packet(null, frame);
+    expected.unpack();
+    assertArrayEquals(expected.get_hash(), packet.get_hash());
+    assertArrayEquals(expected.get_hashable_part(), packet.get_hashable_part());
+  }
+
+  @Test
+  void validateAnnounce() {
+    Packet packet = new Packet(null, fromHex(ANNOUNCE));
+    assertTrue(packet.unpack());
+    assertTrue(Identity.validate_announce(packet, false));
+    assertArrayEquals("g00n Cloud (Dallas)".getBytes(), Identity.recall_app_data(fromHex(DESTINATION)));
+    byte[] tampered = fromHex(ANNOUNCE);
+    tampered[tampered.length - 1] ^= 1;
+    packet = new Packet(null, tampered);
+    assertTrue(packet.unpack());
+    assertFalse(Identity.validate_announce(packet, true));
+  }
+
+}
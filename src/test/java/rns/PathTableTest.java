@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathTableTest {
+
+  static PathTable.Path path(int hops, long expires, long emitted) {
+    return new PathTable.Path(new byte[16], hops, 0, expires, emitted, null, null);
+  }
+
+  @Test
+  void update() {
+    PathTable table = new PathTable(1 << 20);
+    byte[] destination = DestinationTableTest.destination(1);
+    assertTrue(table.update(destination, path(3, 100, 10), 0));
+    assertFalse(table.update(destination, path(4, 100, 10), 0));
+    // fewer hops, a later announce or an expired path
+    assertTrue(table.update(destination, path(2, 100, 10), 0));
+    assertTrue(table.update(destination, path(5, 100, 11), 0));
+    assertTrue(table.update(destination, path(6, 200, 11), 101));
+    assertEquals(6, table.get(destination).hops);
+    assertEquals(1, table.size());
+  }
+
+  @Test
+  void cullAndEvict() {
+    PathTable table = new PathTable(64 * 100);
+    for (int i = 0; i < 10000; i++) table.put(DestinationTableTest.destination(i), path(1, i, 0));
+    assertTrue(table.size() <= 64 * 100);
+    int size = table.size();
+    int removed = table.cull(5000);
+    assertEquals(size - removed, table.size());
+    for (int i = 0; i < 10000; i++) {
+      PathTable.Path path = table.get(DestinationTableTest.destination(i));
+      if (path != null) assertTrue(path.expires >= 5000);
+    }
+  }
+
+  @Test
+  void concurrentReads() throws InterruptedException {
+    PathTable table = new PathTable(1 << 20);
+    AtomicBoolean failed = new AtomicBoolean();
+    Thread reader = new Thread(() -> {
+      for (int n = 0; n < 20; n++) {
+        for (int i = 0; i < 1000; i++) {
+          PathTable.Path path = table.get(DestinationTableTest.destination(i));
+          if (path != null && path.hops != i % 100) failed.set(true);
+        }
+      }
+    });
+    reader.start();
+    for (int i = 0; i < 20000; i++) table.put(DestinationTableTest.destination(i % 1000), path(i % 100, 0, 0));
+    reader.join();
+    assertFalse(failed.get());
+  }
+
+}
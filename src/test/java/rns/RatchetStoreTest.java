@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package rns;
+
+import ab.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RatchetStoreTest {
+
+  static byte[] random(Random random, int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  @Test
+  void persistence(@TempDir Path dir) throws IOException {
+    Random random = new Random(0);
+    List<Runnable> writes = new ArrayList<>();
+    RatchetStore store = new RatchetStore(1024, 1000, writes::add);
+    byte[] a = random(random, Packet.DST_LEN);
+    byte[] b = random(random, Packet.DST_LEN);
+    byte[] ratchet = random(random, 32);
+    try (MappedLog log = new MappedLog(dir.resolve("ratchets.log"))) {
+      store.writer.storage(log);
+      long now = System.currentTimeMillis();
+      assertTrue(store.remember(a, ratchet, now));
+      assertFalse(store.remember(a, ratchet.clone(), now + 1));
+      assertArrayEquals(ratchet, store.get(a));
+      // a destination rotating its ratchet before the writer runs is written once
+      for (int i = 0; i < 10; i++) assertTrue(store.remember(b, random(random, 32), now + i));
+      byte[] latest = random(random, 32);
+      assertTrue(store.remember(b, latest, now + 10));
+      assertEquals(1, writes.size());
+      assertEquals(2, store.pending_count());
+      assertEquals(10, store.coalesced_count());
+      assertEquals(0, log.count());
+      writes.get(0).run();
+      assertEquals(0, store.pending_count());
+      assertEquals(2, log.count());
+      assertEquals(2, store.written_count());
+
+      RatchetStore loaded = new RatchetStore(1024, 1000, Runnable::run);
+      log.read_backward((type, timestamp, payload) -> {
+        assertEquals(Identity.STORAGE_RATCHET, type);
+        byte[] destination_hash = new byte[Packet.DST_LEN];
+        byte[] record = new byte[payload.remaining() - destination_hash.length];
+        payload.get(destination_hash).get(record);
+        loaded.load(destination_hash, timestamp, record);
+        return true;
+      });
+      assertArrayEquals(ratchet, loaded.get(a));
+      assertArrayEquals(latest, loaded.get(b));
+      loaded.load(a, now - 2000, random(random, 32));
+      assertArrayEquals(ratchet, loaded.get(a));
+      assertEquals(1, loaded.expire(now + 1005));
+      assertNull(loaded.get(a));
+      assertArrayEquals(latest, loaded.get(b));
+    }
+  }
+
+  @Test
+  void detachedStorage(@TempDir Path dir) throws IOException {
+    Random random = new Random(3);
+    List<Runnable> writes = new ArrayList<>();
+    RatchetStore store = new RatchetStore(1024, 1000, writes::add);
+    long now = System.currentTimeMillis();
+    assertTrue(store.remember(random(random, Packet.DST_LEN), random(random, 32), now));
+    // without a log the ratchet stays pending
+    writes.remove(0).run();
+    assertEquals(1, store.pending_count());
+    try (MappedLog log = new MappedLog(dir.resolve("ratchets.log"))) {
+      store.writer.storage(log);
+      assertEquals(1, writes.size());
+      writes.remove(0).run();
+      assertEquals(0, store.pending_count());
+      assertEquals(1, log.count());
+    }
+  }
+
+  @Test
+  void announce() {
+    Identity identity = new Identity(true);
+    byte[] name_hash = Destination.name_hash("ratchet_test", new String[]{"announce"});
+    byte[] destination_hash = Destination.hash(identity, "ratchet_test", new String[]{"announce"});
+    byte[] ratchet = random(new Random(1), Identity.RATCHETSIZE / 8);
+    byte[] random_hash = random(new Random(2), Identity.RANDOM_HASH_LENGTH / 8);
+    byte[] app_data = "ratchet".getBytes();
+    byte[] signature = identity.sign(Utils.concatenate(destination_hash, identity.get_public_key(), name_hash,
+        random_hash, ratchet, app_data));
+    byte[] header = new byte[2 + Packet.DST_LEN + 1];
+    header[0] = (byte) (Packet.FLAG_SET << 5 | Packet.ANNOUNCE);
+    System.arraycopy(destination_hash, 0, header, 2, Packet.DST_LEN);
+    Packet packet = new Packet(null, Utils.concatenate(header, identity.get_public_key(), name_hash,
+        random_hash, ratchet, signature, app_data));
+    assertTrue(packet.unpack());
+    assertTrue(Identity.verify_announce(packet, false));
+    Identity.remember_announce(packet);
+    assertArrayEquals(ratchet, Identity.get_ratchet(destination_hash));
+    assertArrayEquals(app_data, Identity.recall_app_data(destination_hash));
+  }
+
+}
@@ -20,7 +20,11 @@ package rns;
 import ab.SignatureUtils;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SignatureUtilsTest {
@@ -31,6 +35,17 @@ class SignatureUtilsTest {
     return bytes;
   }
 
+  static final String KEY = "" +
+      "8BFDE75083EDF2C1C2B004F6F7A60985E9AA858F62E688C91D80A7F6460FC26C";
+  static final String SIGNATURE = "" +
+      "CE102E28266AF7072B13DEBCB15EE35DC492A00B6D9A68AE36BA3416121C49B2" +
+      "0A740D420D6C139A0594B73B140105620EA01EC61CE777AAE180231A3A869203";
+  static final String DATA = "" +
+      "234EED3D3775EB1E29CF5A3842961C25B5D0A228394D29AACB127F5F9A791A68" +
+      "42F6B95C40A3AF677ADFA8F2DFA1FD728BFDE75083EDF2C1C2B004F6F7A60985" +
+      "E9AA858F62E688C91D80A7F6460FC26C213E6311BCEC54AB4FDEF00E34ED1100" +
+      "692683F76730306E20436C6F7564202844616C6C617329";
+
   @Test
   void validateSignature() {
     String key = "" +
@@ -46,4 +61,21 @@ class SignatureUtilsTest {
     assertTrue(SignatureUtils.verify25519(fromHex(key), fromHex(signature), fromHex(data)));
     assertFalse(SignatureUtils.verify25519(fromHex(key), fromHex(signature), fromHex(data + key)));
   }
+
+  @Test
+  void publicKeyCache() {
+    assertTrue(SignatureUtils.verify25519(fromHex(KEY), fromHex(SIGNATURE), fromHex(DATA)));
+    long hits = SignatureUtils.publicKeyCacheHits();
+    assertFalse(SignatureUtils.verify25519(fromHex(KEY), fromHex(SIGNATURE), fromHex(DATA + KEY)));
+    assertTrue(SignatureUtils.verify25519(fromHex(KEY), fromHex(SIGNATURE), fromHex(DATA)));
+    assertEquals(hits + 2, SignatureUtils.publicKeyCacheHits());
+  }
+
+  @Test
+  void truncatedSignature() {
+    // the truncated signature fails after the data went into the verifier, the next call starts clean
+    assertThrows(IllegalStateException.class,
+        () -> SignatureUtils.verify25519(fromHex(KEY), new byte[10], 0, ByteBuffer.wrap(fromHex(DATA))));
+    assertTrue(SignatureUtils.verify25519(fromHex(KEY), fromHex(SIGNATURE), fromHex(DATA)));
+  }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import ab.TcpForwarder;
+import org.junit.jupiter.api.Test;
+import rns.interfaces.Framer;
+import rns.interfaces.Hdlc;
+import rns.interfaces.LocalInterface;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TcpForwarderTest {
+
+  private static void echo(Socket socket) {
+    try (InputStream in = socket.getInputStream(); OutputStream out = socket.getOutputStream()) {
+      in.transferTo(out);
+    } catch (IOException ignore) {
+    }
+  }
+
+  private static Socket connect(int port) throws IOException, InterruptedException {
+    for (int i = 0; ; i++) {
+      try {
+        return new Socket("localhost", port);
+      } catch (ConnectException e) {
+        if (i > 100) throw e;
+        Thread.sleep(20);
+      }
+    }
+  }
+
+  private static ServerSocket echoServer() throws IOException {
+    ServerSocket echo = new ServerSocket(0);
+    Thread server = new Thread(() -> {
+      try {
+        while (true) {
+          Socket socket = echo.accept();
+          new Thread(() -> echo(socket)).start();
+        }
+      } catch (IOException ignore) {
+      }
+    });
+    server.setDaemon(true);
+    server.start();
+    return echo;
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket free = new ServerSocket(0)) {
+      return free.getLocalPort();
+    }
+  }
+
+  /**
+   * Echoes the data through the forwarder over several concurrent connections.
+   */
+  private static void echo(int port, byte[] data) throws Exception {
+    new Random(0).nextBytes(data);
+    List<Thread> clients = new ArrayList<>();
+    List<Throwable> errors = new CopyOnWriteArrayList<>();
+    for (int c = 0; c < 4; c++) {
+      Socket socket = connect(port);
+      Thread writer = new Thread(() -> {
+        try {
+          OutputStream out = socket.getOutputStream();
+          out.write(data);
+          socket.shutdownOutput();
+        } catch (IOException e) {
+          errors.add(e);
+        }
+      });
+      Thread reader = new Thread(() -> {
+        try (socket) {
+          assertArrayEquals(data, socket.getInputStream().readAllBytes());
+        } catch (Throwable e) {
+          errors.add(e);
+        }
+      });
+      writer.start();
+      reader.start();
+      clients.add(writer);
+      clients.add(reader);
+    }
+    for (Thread thread : clients) thread.join(10000);
+    assertEquals(List.of(), errors);
+  }
+
+  @Test
+  void loops() throws Exception {
+    ServerSocket echo = echoServer();
+    int port = freePort();
+    TcpForwarder forwarder = new TcpForwarder(port, "localhost", echo.getLocalPort());
+    AtomicLong outbound = new AtomicLong();
+    AtomicLong inbound = new AtomicLong();
+    forwarder.outbound = bytes -> outbound.addAndGet(bytes.length);
+    forwarder.inbound = bytes -> inbound.addAndGet(bytes.length);
+    forwarder.loops = 2;
+    forwarder.tap_overflow = TcpForwarder.Overflow.BLOCK;
+    forwarder.setDaemon(true);
+    forwarder.start();
+    byte[] data = new byte[200000];
+    echo(port, data);
+    // the taps are behind the forwarding
+    for (int i = 0; i < 100 && inbound.get() < 4L * data.length; i++) Thread.sleep(20);
+    assertEquals(4L * data.length, outbound.get());
+    assertEquals(4L * data.length, inbound.get());
+    assertEquals(0, forwarder.tap_dropped());
+    echo.close();
+  }
+
+  @Test
+  void slowConsumer() throws Exception {
+    ServerSocket echo = echoServer();
+    int port = freePort();
+    TcpForwarder forwarder = new TcpForwarder(port, "localhost", echo.getLocalPort());
+    forwarder.inbound = bytes -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException ignore) {
+      }
+    };
+    forwarder.loops = 1;
+    forwarder.tap_capacity = 2;
+    forwarder.setDaemon(true);
+    forwarder.start();
+    byte[] data = new byte[1 << 20];
+    long t = System.nanoTime();
+    echo(port, data);
+    assertTrue(System.nanoTime() - t < 5_000_000_000L);
+    assertTrue(forwarder.tap_dropped() > 0);
+    echo.close();
+  }
+
+  @Test
+  void connections() throws Exception {
+    ServerSocket echo = echoServer();
+    int port = freePort();
+    TcpForwarder forwarder = new TcpForwarder(port, "localhost", echo.getLocalPort());
+    LocalInterface.LocalClientInterface anInterface = new LocalInterface.LocalClientInterface("outbound", Framer.HDLC);
+    forwarder.outbound_connection = anInterface::connection;
+    forwarder.loops = 1;
+    forwarder.tap_overflow = TcpForwarder.Overflow.BLOCK;
+    forwarder.setDaemon(true);
+    forwarder.start();
+    byte[] frame = new byte[100];
+    new Random(0).nextBytes(frame);
+    frame[0] = 0; // no IFAC
+    byte[] encoded = Hdlc.encode(frame);
+    List<Thread> clients = new ArrayList<>();
+    List<Throwable> errors = new CopyOnWriteArrayList<>();
+    for (int c = 0; c < 2; c++) {
+      Socket socket = connect(port);
+      socket.setTcpNoDelay(true);
+      Thread writer = new Thread(() -> {
+        try {
+          OutputStream out = socket.getOutputStream();
+          // both connections send partial frames at the same time
+          for (int i = 0; i < 200; i++) {
+            for (int p = 0; p < encoded.length; p += 7) {
+              out.write(encoded, p, Math.min(7, encoded.length - p));
+              out.flush();
+            }
+          }
+          socket.shutdownOutput();
+        } catch (IOException e) {
+          errors.add(e);
+        }
+      });
+      Thread reader = new Thread(() -> {
+        try (socket) {
+          socket.getInputStream().readAllBytes();
+        } catch (IOException e) {
+          errors.add(e);
+        }
+      });
+      writer.start();
+      reader.start();
+      clients.add(writer);
+      clients.add(reader);
+    }
+    for (Thread thread : clients) thread.join(10000);
+    assertEquals(List.of(), errors);
+    for (int i = 0; i < 100 && anInterface.rx_frames.sum() < 400; i++) Thread.sleep(20);
+    assertEquals(400, anInterface.rx_frames.sum());
+    assertEquals(400L * frame.length, anInterface.rxb.sum());
+    echo.close();
+  }
+
+}
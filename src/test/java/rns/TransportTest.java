@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns;
+
+import org.junit.jupiter.api.Test;
+import rns.interfaces.Interface;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static rns.SignatureUtilsTest.fromHex;
+
+class TransportTest {
+
+  static class Handler implements Transport.AnnounceHandler {
+    final String aspect_filter;
+    final List<byte[]> received = new ArrayList<>();
+    final List<Handler> calls;
+
+    Handler(String aspect_filter) {
+      this(aspect_filter, new ArrayList<>());
+    }
+
+    Handler(String aspect_filter, List<Handler> calls) {
+      this.aspect_filter = aspect_filter;
+      this.calls = calls;
+    }
+
+    @Override
+    public String aspect_filter() {
+      return aspect_filter;
+    }
+
+    @Override
+    public void received_announce(byte[] destination_hash, Identity announced_identity, byte[] app_data) {
+      received.add(app_data);
+      calls.add(this);
+    }
+  }
+
+  @Test
+  void announceHandlers() {
+    List<Handler> calls = new ArrayList<>();
+    Handler first = new Handler(null, calls);
+    Handler node = new Handler("nomadnetwork.node", calls);
+    Handler delivery = new Handler("lxmf.delivery", calls);
+    Handler all = new Handler(null, calls);
+    Transport.register_announce_handler(first);
+    Transport.register_announce_handler(node);
+    Transport.register_announce_handler(delivery);
+    Transport.register_announce_handler(all);
+    try {
+      Packet packet = new Packet(null, fromHex(PacketViewTest.ANNOUNCE));
+      packet.unpack();
+      Transport.inbound_announce(packet);
+      assertEquals(1, node.received.size());
+      assertArrayEquals("g00n Cloud (Dallas)".getBytes(), node.received.get(0));
+      assertEquals(0, delivery.received.size());
+      assertEquals(1, all.received.size());
+      // in registration order
+      assertEquals(List.of(first, node, all), calls);
+      // received directly, the destination is the next hop
+      byte[] destination_hash = packet.get_destination_hash();
+      assertTrue(Transport.has_path(destination_hash));
+      assertEquals(0, Transport.hops_to(destination_hash));
+      assertArrayEquals(destination_hash, Transport.next_hop(destination_hash));
+      assertTrue(Transport.expire_path(destination_hash));
+      assertEquals(Transport.PATHFINDER_M, Transport.hops_to(destination_hash));
+    } finally {
+      Transport.deregister_announce_handler(first);
+      Transport.deregister_announce_handler(node);
+      Transport.deregister_announce_handler(delivery);
+      Transport.deregister_announce_handler(all);
+    }
+  }
+
+  static Packet announce(int hops) {
+    Packet packet = new Packet(null, fromHex(PacketViewTest.ANNOUNCE));
+    packet.unpack();
+    packet.hops = hops;
+    return packet;
+  }
+
+  @Test
+  void duplicateAnnounce() {
+    Packet packet = announce(4);
+    byte[] destination_hash = packet.get_destination_hash();
+    // not verified before, a copy is not trusted
+    assertFalse(Transport.duplicate_announce(packet));
+    assertTrue(Transport.update_path(packet, System.currentTimeMillis()));
+    try {
+      assertFalse(Transport.duplicate_announce(announce(4)));
+      assertFalse(Transport.duplicate_announce(announce(5)));
+      assertEquals(4, Transport.hops_to(destination_hash));
+      // a copy that came over a shorter path
+      assertTrue(Transport.duplicate_announce(announce(2)));
+      assertEquals(2, Transport.hops_to(destination_hash));
+      // the stored path expired
+      long now = System.currentTimeMillis();
+      Transport.path_table.put(destination_hash,
+          new PathTable.Path(destination_hash, 2, now, now - 1, 0, null, packet.get_hash()));
+      assertTrue(Transport.duplicate_announce(announce(5)));
+      assertEquals(5, Transport.hops_to(destination_hash));
+    } finally {
+      Transport.path_table.remove(destination_hash);
+    }
+  }
+
+  static class Capture extends Interface {
+    final List<byte[]> sent = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public boolean process_outgoing(byte[] data) {
+      sent.add(data);
+      return true;
+    }
+  }
+
+  static byte[] transit_packet(byte[] transport_id, byte[] destination_hash, int hops) {
+    byte[] raw = new byte[2 + 2 * Packet.DST_LEN + 1 + 8];
+    raw[0] = (byte) (Packet.HEADER_2 << 6 | Transport.TRANSPORT << 4 | Packet.DATA);
+    raw[1] = (byte) hops;
+    System.arraycopy(transport_id, 0, raw, 2, Packet.DST_LEN);
+    System.arraycopy(destination_hash, 0, raw, 2 + Packet.DST_LEN, Packet.DST_LEN);
+    Arrays.fill(raw, 2 + 2 * Packet.DST_LEN, raw.length, (byte) 0x55);
+    return raw;
+  }
+
+  @Test
+  void forward() {
+    Identity identity = Transport.identity;
+    boolean transport_enabled = Transport.transport_enabled;
+    Transport.identity = new Identity();
+    Transport.identity.load_public_key(new byte[Identity.KEYSIZE / 8]);
+    Transport.transport_enabled = true;
+    byte[] transport_id = Arrays.copyOf(Transport.identity.hash, Packet.DST_LEN);
+    byte[] far = new byte[Packet.DST_LEN];
+    byte[] near = new byte[Packet.DST_LEN];
+    byte[] next_hop = new byte[Packet.DST_LEN];
+    Arrays.fill(far, (byte) 0xF0);
+    Arrays.fill(near, (byte) 0x0F);
+    Arrays.fill(next_hop, (byte) 0xAA);
+    Capture capture = new Capture();
+    long now = System.currentTimeMillis() / 1000;
+    Transport.path_table.put(far, new PathTable.Path(next_hop, 3, now, now + 60, now, capture, null));
+    Transport.path_table.put(near, new PathTable.Path(near, 1, now, now + 60, now, capture, null));
+    try {
+      // more hops to go, the transport id is replaced with the next hop
+      byte[] raw = transit_packet(transport_id, far, 2);
+      byte[] expected = raw.clone();
+      expected[1] = 3;
+      System.arraycopy(next_hop, 0, expected, 2, Packet.DST_LEN);
+      new Transport().inbound(raw, raw.length, null);
+      assertArrayEquals(expected, capture.sent.get(0));
+      // the destination is a neighbour, the transport header is stripped
+      raw = transit_packet(transport_id, near, 0);
+      expected = new byte[raw.length - Packet.DST_LEN];
+      System.arraycopy(raw, Packet.DST_LEN, expected, 0, expected.length);
+      expected[0] = Packet.HEADER_1 << 6 | Transport.BROADCAST << 4 | Packet.DATA;
+      expected[1] = 1;
+      new Transport().inbound(raw, raw.length, null);
+      assertArrayEquals(expected, capture.sent.get(1));
+      // addressed to another transport node
+      raw = transit_packet(next_hop, far, 0);
+      assertFalse(Transport.forward(raw, raw.length));
+      assertEquals(2, capture.sent.size());
+      // travelled too far
+      raw = transit_packet(transport_id, far, Transport.PATHFINDER_M);
+      assertTrue(Transport.forward(raw, raw.length));
+      assertEquals(2, capture.sent.size());
+      // a send that fails is not counted as forwarded
+      long forwarded = Transport.forwarded.sum();
+      Interface failing = new Interface() {
+        @Override
+        public boolean process_outgoing(byte[] data) {
+          return false;
+        }
+      };
+      Transport.path_table.put(far, new PathTable.Path(next_hop, 3, now, now + 60, now, failing, null));
+      raw = transit_packet(transport_id, far, 2);
+      assertFalse(Transport.forward(raw, raw.length));
+      assertEquals(forwarded, Transport.forwarded.sum());
+    } finally {
+      Transport.path_table.remove(far);
+      Transport.path_table.remove(near);
+      Transport.identity = identity;
+      Transport.transport_enabled = transport_enabled;
+    }
+  }
+
+  @Test
+  void outboundMultiHop() {
+    byte[] far = new byte[Packet.DST_LEN];
+    byte[] next_hop = new byte[Packet.DST_LEN];
+    Arrays.fill(far, (byte) 0xF1);
+    Arrays.fill(next_hop, (byte) 0xAB);
+    Capture capture = new Capture();
+    long now = System.currentTimeMillis() / 1000;
+    Transport.path_table.put(far, new PathTable.Path(next_hop, 3, now, now + 60, now, capture, null));
+    PacketBuilder builder = new PacketBuilder();
+    try {
+      // a packet of the largest payload still fits when the transport header is inserted
+      builder.destination_hash(far).destination_type(Destination.SINGLE).packet_type(Packet.DATA)
+          .context(Packet.NONE).data(new byte[Reticulum.MDU]);
+      assertTrue(Transport.outbound(builder, new byte[32]));
+      byte[] sent = capture.sent.get(0);
+      assertEquals(Reticulum.HEADER_MAXSIZE + Reticulum.MDU, sent.length);
+      assertEquals(Packet.HEADER_2, sent[0] >> 6 & 1);
+      assertArrayEquals(next_hop, Arrays.copyOfRange(sent, 2, 2 + Packet.DST_LEN));
+    } finally {
+      builder.release();
+      Transport.path_table.remove(far);
+    }
+  }
+
+}
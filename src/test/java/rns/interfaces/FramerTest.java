@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import org.junit.jupiter.api.Test;
+import rns.BufferPool;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FramerTest {
+
+  @Test
+  void roundTrip() {
+    Random random = new Random(0);
+    for (Framer framer : new Framer[]{Framer.HDLC, Framer.KISS}) {
+      List<byte[]> frames = new ArrayList<>();
+      Framer.Deframer deframer = framer.deframer(new BufferPool(500, 4), 1000, (frame, length) -> {
+        frames.add(Arrays.copyOf(frame, length));
+        return false;
+      });
+      // a single special byte at every position around the word boundaries
+      for (int length = 20; length < 40; length++) {
+        for (int i = 0; i < length; i++) {
+          for (byte special : new byte[]{Hdlc.FLAG, Hdlc.ESCAPE, Kiss.FEND, Kiss.FESC}) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            for (int j = 0; j < length; j++) if (data[j] == Hdlc.FLAG || data[j] == Hdlc.ESCAPE
+                || data[j] == Kiss.FEND || data[j] == Kiss.FESC) data[j] = 0;
+            data[i] = special;
+            ByteBuffer out = ByteBuffer.allocate(framer.max_encoded_length(length));
+            framer.encode(ByteBuffer.wrap(data), out);
+            boolean escaped = framer == Framer.HDLC ? special == Hdlc.FLAG || special == Hdlc.ESCAPE
+                : special == Kiss.FEND || special == Kiss.FESC;
+            int overhead = framer == Framer.HDLC ? 2 : 3;
+            assertEquals(length + overhead + (escaped ? 1 : 0), out.position());
+            deframer.receive(out.flip());
+            assertArrayEquals(data, frames.remove(0), framer.name() + " " + length + " " + i);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void directBuffers() {
+    byte[] data = new byte[100];
+    new Random(1).nextBytes(data);
+    for (Framer framer : new Framer[]{Framer.HDLC, Framer.KISS}) {
+      ByteBuffer in = ByteBuffer.allocateDirect(data.length).put(data).flip();
+      ByteBuffer out = ByteBuffer.allocateDirect(framer.max_encoded_length(data.length));
+      framer.encode(in, out);
+      assertFalse(in.hasRemaining());
+      byte[][] decoded = new byte[1][];
+      framer.deframer(new BufferPool(500, 4), 500, (frame, length) -> {
+        decoded[0] = Arrays.copyOf(frame, length);
+        return false;
+      }).receive(out.flip());
+      assertArrayEquals(data, decoded[0]);
+    }
+  }
+
+  @Test
+  void directBufferOverflow() {
+    byte[] data = new byte[30];
+    Arrays.fill(data, Hdlc.FLAG);
+    ByteBuffer in = ByteBuffer.allocateDirect(data.length).put(data).flip();
+    ByteBuffer out = ByteBuffer.allocateDirect(40);
+    assertThrows(BufferOverflowException.class, () -> Framer.HDLC.encode(in, out));
+    assertEquals(0, out.position());
+    assertEquals(0, in.position());
+  }
+
+  @Test
+  void overflow() {
+    byte[] data = new byte[30];
+    Arrays.fill(data, Hdlc.FLAG);
+    ByteBuffer out = ByteBuffer.allocate(40);
+    assertThrows(BufferOverflowException.class, () -> Framer.HDLC.encode(ByteBuffer.wrap(data), out));
+    assertEquals(0, out.position());
+  }
+
+  @Test
+  void kissCommands() {
+    List<byte[]> frames = new ArrayList<>();
+    Framer.Deframer deframer = Framer.KISS.deframer(new BufferPool(500, 4), 500, (frame, length) -> {
+      frames.add(Arrays.copyOf(frame, length));
+      return false;
+    });
+    byte[] data = new byte[30];
+    byte[] frame = Kiss.encode(data);
+    frame[1] = 0x06; // set hardware, not data
+    deframer.receive(ByteBuffer.wrap(frame));
+    frame[1] = 0x10; // data on port 1
+    deframer.receive(ByteBuffer.wrap(frame));
+    assertEquals(1, frames.size());
+    assertEquals(0, deframer.dropped());
+    assertSame(Framer.KISS, Framer.forName("KISS"));
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import org.junit.jupiter.api.Test;
+import rns.BufferPool;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HdlcDeframerTest {
+
+  private final List<byte[]> frames = new ArrayList<>();
+  private final BufferPool pool = new BufferPool(500, 4);
+  private final HdlcDeframer deframer = new HdlcDeframer(pool, 1000, (frame, length) -> {
+    frames.add(Arrays.copyOf(frame, length));
+    return false;
+  });
+
+  private static byte[] frame(int length, long seed) {
+    byte[] frame = new byte[length];
+    new Random(seed).nextBytes(frame);
+    frame[5] = Hdlc.FLAG;
+    frame[6] = Hdlc.ESCAPE;
+    return frame;
+  }
+
+  @Test
+  void fragmented() {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    List<byte[]> expected = new ArrayList<>();
+    stream.writeBytes(new byte[]{1, 2, 3}); // noise before the first flag
+    for (int i = 0; i < 20; i++) {
+      byte[] frame = frame(20 + i * 23, i);
+      expected.add(frame);
+      stream.writeBytes(Hdlc.encode(frame));
+    }
+    byte[] input = stream.toByteArray();
+    Random random = new Random(0);
+    for (int chunk : new int[]{1, 2, 7, 64, input.length}) {
+      frames.clear();
+      for (int i = 0; i < input.length; ) {
+        int n = Math.min(input.length - i, 1 + random.nextInt(chunk));
+        deframer.receive(input, i, n);
+        i += n;
+      }
+      assertEquals(expected.size(), frames.size());
+      for (int i = 0; i < expected.size(); i++) assertArrayEquals(expected.get(i), frames.get(i));
+    }
+    assertEquals(1, pool.allocated());
+  }
+
+  @Test
+  void readOnlyBuffer() {
+    byte[] frame = frame(200, 2);
+    deframer.receive(ByteBuffer.wrap(Hdlc.encode(frame)).asReadOnlyBuffer());
+    assertArrayEquals(frame, frames.get(0));
+  }
+
+  @Test
+  void dropsShortAndLongFrames() {
+    deframer.receive(ByteBuffer.wrap(Hdlc.encode(new byte[19])));
+    byte[] large = frame(800, 1);
+    deframer.receive(ByteBuffer.wrap(Hdlc.encode(large)));
+    deframer.receive(ByteBuffer.wrap(Hdlc.encode(new byte[1001])));
+    assertEquals(1, frames.size());
+    assertArrayEquals(large, frames.get(0));
+    assertEquals(2, deframer.dropped());
+  }
+
+}
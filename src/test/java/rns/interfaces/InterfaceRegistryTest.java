@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import org.junit.jupiter.api.Test;
+import rns.Transport;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterfaceRegistryTest {
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    for (int i = 0; i < 250 && !condition.getAsBoolean(); i++) Thread.sleep(20);
+    assertTrue(condition.getAsBoolean());
+  }
+
+  @Test
+  void load() {
+    Properties properties = new Properties();
+    properties.setProperty("interfaces", "uplink, server, lan, off");
+    properties.setProperty("interface.uplink.type", "TCPClientInterface");
+    properties.setProperty("interface.uplink.target_host", "127.0.0.1");
+    properties.setProperty("interface.uplink.target_port", "4242");
+    properties.setProperty("interface.uplink.kiss_framing", "true");
+    properties.setProperty("interface.server.type", "TCPServerInterface");
+    properties.setProperty("interface.server.listen_port", "4242");
+    properties.setProperty("interface.lan.type", "UDPInterface");
+    properties.setProperty("interface.lan.listen_port", "4242");
+    properties.setProperty("interface.off.type", "UDPInterface");
+    properties.setProperty("interface.off.enabled", "false");
+    List<Interface> interfaces = InterfaceRegistry.load(properties);
+    assertEquals(3, interfaces.size());
+    assertSame(Framer.KISS, ((TCPInterface.TCPClientInterface) interfaces.get(0)).framer);
+    assertSame(Framer.HDLC, ((TCPInterface.TCPServerInterface) interfaces.get(1)).framer);
+    assertEquals("UDPInterface[lan]", interfaces.get(2).toString());
+    properties.setProperty("interface.off.enabled", "true");
+    properties.setProperty("interface.off.type", "SerialInterface");
+    assertThrows(IllegalArgumentException.class, () -> InterfaceRegistry.load(properties));
+  }
+
+  @Test
+  void tcp() throws InterruptedException {
+    TCPInterface.TCPServerInterface server = new TCPInterface.TCPServerInterface("server", "127.0.0.1", 0, Framer.HDLC);
+    server.start();
+    TCPInterface.TCPClientInterface client = new TCPInterface.TCPClientInterface("client", "127.0.0.1", server.port(), Framer.HDLC);
+    client.start();
+    await(() -> client.online && server.spawned_interfaces().size() == 1);
+    TCPInterface.TCPClientInterface spawned = server.spawned_interfaces().get(0);
+    assertTrue(Transport.interfaces().contains(spawned));
+    byte[] packet = new byte[100];
+    for (int i = 0; i < 10; i++) client.process_outgoing(packet);
+    await(() -> server.rxb.sum() == 1000);
+    server.process_outgoing(packet);
+    await(() -> client.rxb.sum() == 100);
+    client.detach();
+    assertFalse(client.process_outgoing(packet));
+    server.detach();
+    await(() -> server.spawned_interfaces().isEmpty());
+    assertFalse(Transport.interfaces().contains(spawned));
+  }
+
+  @Test
+  void udp() throws InterruptedException {
+    UDPInterface receiver = new UDPInterface("receiver", "127.0.0.1", 0, "127.0.0.1", 1);
+    receiver.start();
+    UDPInterface sender = new UDPInterface("sender", "127.0.0.1", 0, "127.0.0.1", receiver.port());
+    sender.start();
+    for (int i = 0; i < 10; i++) sender.process_outgoing(new byte[100]);
+    await(() -> receiver.rxb.sum() == 1000);
+    assertEquals(1000, sender.txb.sum());
+    sender.detach();
+    receiver.detach();
+  }
+
+}
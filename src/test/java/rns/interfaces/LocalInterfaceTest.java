@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025 Aleksei Balan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package rns.interfaces;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocalInterfaceTest {
+
+  @Test
+  void directions() throws InterruptedException {
+    byte[] frame = new byte[100];
+    new Random(0).nextBytes(frame);
+    frame[0] = 0; // no IFAC
+    byte[] encoded = Hdlc.encode(frame);
+    LocalInterface.LocalClientInterface[] interfaces = {
+        new LocalInterface.LocalClientInterface("inbound", Framer.HDLC),
+        new LocalInterface.LocalClientInterface("outbound", Framer.HDLC)};
+    Thread[] threads = new Thread[2];
+    for (int t = 0; t < 2; t++) {
+      LocalInterface.LocalClientInterface anInterface = interfaces[t];
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          // fragments of both directions are received at the same time
+          for (int p = 0; p < encoded.length; p += 7) {
+            anInterface.receive(Arrays.copyOfRange(encoded, p, Math.min(encoded.length, p + 7)));
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) thread.join();
+    for (LocalInterface.LocalClientInterface anInterface : interfaces) {
+      assertEquals(1000 * frame.length, anInterface.rxb.sum());
+      assertEquals(0, anInterface.deframer.dropped());
+    }
+    assertEquals("inbound", interfaces[0].toString());
+  }
+
+  @Test
+  void connections() throws InterruptedException {
+    byte[] frame = new byte[100];
+    new Random(1).nextBytes(frame);
+    frame[0] = 0; // no IFAC
+    byte[] encoded = Hdlc.encode(frame);
+    LocalInterface.LocalClientInterface anInterface = new LocalInterface.LocalClientInterface("inbound", Framer.HDLC);
+    Thread[] threads = new Thread[2];
+    for (int t = 0; t < 2; t++) {
+      Consumer<byte[]> connection = anInterface.connection();
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          // fragments of both connections reach the same interface at the same time
+          for (int p = 0; p < encoded.length; p += 7) {
+            connection.accept(Arrays.copyOfRange(encoded, p, Math.min(encoded.length, p + 7)));
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) thread.join();
+    assertEquals(2 * 1000 * frame.length, anInterface.rxb.sum());
+  }
+
+}